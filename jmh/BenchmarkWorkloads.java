@@ -0,0 +1,762 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Dimension;
+import java.awt.FlowLayout;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import javax.swing.BoxLayout;
+import javax.swing.ImageIcon;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+import org.jsoup.Jsoup;
+
+/**
+ * The work measured by the JMH benchmarks in jmh/benchmarks.
+ *
+ * JMH only accepts benchmark classes that are in a named package, and a named package cannot refer to the classes of
+ * this app, which live in the default package. So every workload is built here, in the default package, and handed to
+ * its benchmark as a plain Supplier: the benchmark looks the factory method up once per trial, and the measured call
+ * is a single interface call that the JIT inlines. All data is generated from fixed seeds, so runs are comparable.
+ */
+public final class BenchmarkWorkloads {
+    private static final String[] SYLLABLES = {
+        "ba", "ce", "di", "fo", "gu", "ha", "ke", "li", "mo", "nu", "pa", "re", "si", "to", "vu", "za", " "
+    };
+    private static final String[] CATEGORIES = {"Vegetarian", "Vegan", "Gluten-Free", "Halal"};
+    private static final String[] MEALS = {"BREAKFAST", "LUNCH", "DINNER"};
+    private static final Path FIXTURE = Path.of("test/fixtures/cafemac-menu.html");
+
+    private BenchmarkWorkloads() {
+    }
+
+    /**
+     * Builds a Trie of size items from scratch.
+     * @param size Number of items.
+     * @param legacy Whether to use the original HashMap-based trie instead of the current one.
+     * @return The operation.
+     */
+    public static Supplier<Object> trieInsert(int size, boolean legacy) {
+        List<FoodItem> items = items(size, 1);
+        if (legacy) {
+            return () -> {
+                LegacyTrie trie = new LegacyTrie();
+                for (FoodItem item : items) {
+                    trie.insert(item.getName(), item);
+                }
+                return trie;
+            };
+        }
+        return () -> {
+            Trie trie = new Trie();
+            for (FoodItem item : items) {
+                trie.insert(item.getName(), item);
+            }
+            trie.clear(); // unregisters the rating listeners, which would otherwise pile up on the shared items
+            return trie;
+        };
+    }
+
+    /**
+     * Collects every item under a two-letter prefix, cycling through prefixes taken from the items.
+     * @param size Number of items in the trie.
+     * @param legacy Whether to use the original HashMap-based trie instead of the current one.
+     * @return The operation.
+     */
+    public static Supplier<Object> trieSearch(int size, boolean legacy) {
+        List<FoodItem> items = items(size, 2);
+        String[] prefixes = prefixes(items, 2);
+        int[] next = {0};
+        if (legacy) {
+            LegacyTrie trie = new LegacyTrie();
+            items.forEach(item -> trie.insert(item.getName(), item));
+            return () -> trie.searchByPrefix(prefixes[next[0]++ & (prefixes.length - 1)]);
+        }
+        Trie trie = new Trie();
+        items.forEach(item -> trie.insert(item.getName(), item));
+        return () -> trie.searchByPrefix(prefixes[next[0]++ & (prefixes.length - 1)]);
+    }
+
+    /**
+     * Finds the 10 best rated items under a three-letter prefix. The legacy version collects and sorts the whole
+     * subtree, which is what the app did before the ranked caches.
+     * @param size Number of items in the trie.
+     * @param legacy Whether to use the original HashMap-based trie instead of the current one.
+     * @return The operation.
+     */
+    public static Supplier<Object> trieTopCompletions(int size, boolean legacy) {
+        List<FoodItem> items = items(size, 3);
+        String[] prefixes = prefixes(items, 3);
+        int[] next = {0};
+        if (legacy) {
+            LegacyTrie trie = new LegacyTrie();
+            items.forEach(item -> trie.insert(item.getName(), item));
+            FoodComparator comparator = new FoodComparator();
+            return () -> {
+                List<FoodItem> all = trie.searchByPrefix(prefixes[next[0]++ & (prefixes.length - 1)]);
+                all.sort(comparator);
+                return new ArrayList<>(all.subList(0, Math.min(10, all.size())));
+            };
+        }
+        Trie trie = new Trie();
+        items.forEach(item -> trie.insert(item.getName(), item));
+        return () -> trie.topCompletions(prefixes[next[0]++ & (prefixes.length - 1)], 10);
+    }
+
+    /**
+     * Types a 6 character prefix of a random name one keystroke at a time and reads the first 10 results after each
+     * keystroke, cycling through 1024 names.
+     * @param size Number of items in the vocabulary.
+     * @param cursor Whether to follow the keystrokes with a PrefixCursor instead of calling searchByPrefix each time.
+     * @return The operation.
+     */
+    public static Supplier<Object> prefixTyping(int size, boolean cursor) {
+        List<FoodItem> items = items(size, 10);
+        String[] queries = prefixes(items, 6);
+        Trie trie = new Trie();
+        items.forEach(item -> trie.insert(item.getName(), item));
+        int[] next = {0};
+        if (cursor) {
+            PrefixCursor typing = trie.cursor();
+            return () -> {
+                String query = queries[next[0]++ & (queries.length - 1)];
+                typing.moveTo("");
+                List<FoodItem> shown = new ArrayList<>(10);
+                for (int i = 0; i < query.length(); i++) {
+                    typing.advance(query.charAt(i));
+                    shown.clear();
+                    Iterator<FoodItem> results = typing.iterator();
+                    while (shown.size() < 10 && results.hasNext()) {
+                        shown.add(results.next());
+                    }
+                }
+                return shown;
+            };
+        }
+        return () -> {
+            String query = queries[next[0]++ & (queries.length - 1)];
+            List<FoodItem> shown = null;
+            for (int i = 1; i <= query.length(); i++) {
+                List<FoodItem> results = trie.searchByPrefix(query.substring(0, i));
+                shown = new ArrayList<>(results.subList(0, Math.min(10, results.size())));
+            }
+            return shown;
+        };
+    }
+
+    /**
+     * Finds the 10 best items within 2 edits of a misspelled name prefix, cycling through misspellings of random names.
+     * @param size Number of items in the vocabulary.
+     * @param bruteForce Whether to compute the edit distance to every name instead of walking the trie.
+     * @return The operation.
+     */
+    public static Supplier<Object> fuzzySearch(int size, boolean bruteForce) {
+        List<FoodItem> items = items(size, 8);
+        Random random = new Random(8);
+        String[] queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String name = items.get(random.nextInt(items.size())).getName();
+            char[] typo = name.substring(0, Math.min(6, name.length())).toCharArray();
+            int at = random.nextInt(typo.length - 1);
+            char swapped = typo[at];
+            typo[at] = typo[at + 1];
+            typo[at + 1] = swapped;
+            queries[i] = new String(typo);
+        }
+        int[] next = {0};
+        if (bruteForce) {
+            FoodComparator comparator = new FoodComparator();
+            return () -> {
+                String query = queries[next[0]++ & (queries.length - 1)];
+                List<FoodItem> matches = new ArrayList<>();
+                Map<FoodItem, Integer> distances = new IdentityHashMap<>();
+                for (FoodItem item : items) {
+                    int distance = prefixEditDistance(item.getName(), query);
+                    if (distance <= 2) {
+                        matches.add(item);
+                        distances.put(item, distance);
+                    }
+                }
+                matches.sort(Comparator.<FoodItem>comparingInt(distances::get).thenComparing(comparator));
+                return new ArrayList<>(matches.subList(0, Math.min(10, matches.size())));
+            };
+        }
+        Trie trie = new Trie();
+        items.forEach(item -> trie.insert(item.getName(), item));
+        return () -> trie.fuzzySearch(queries[next[0]++ & (queries.length - 1)], 2, 10);
+    }
+
+    /**
+     * The smallest optimal string alignment distance between the query and any prefix of the name.
+     */
+    private static int prefixEditDistance(String name, String query) {
+        int m = query.length();
+        int[] before = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        int best = previous[m];
+        for (int i = 1; i <= name.length(); i++) {
+            current[0] = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = name.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && name.charAt(i - 1) == query.charAt(j - 2) && name.charAt(i - 2) == query.charAt(j - 1)) {
+                    value = Math.min(value, before[j - 2] + 1);
+                }
+                current[j] = value;
+            }
+            best = Math.min(best, current[m]);
+            int[] recycled = before;
+            before = previous;
+            previous = current;
+            current = recycled;
+        }
+        return best;
+    }
+
+    /**
+     * Builds the word and infix index of the item names.
+     * @param size Number of items.
+     * @param withSuffixArray Whether to also build the suffix array.
+     * @return The operation.
+     */
+    public static Supplier<Object> nameIndexBuild(int size, boolean withSuffixArray) {
+        List<FoodItem> items = items(size, 9);
+        return () -> new NameIndex(items, withSuffixArray);
+    }
+
+    /**
+     * Looks up names in the word and infix index, cycling through queries taken from random names.
+     * @param size Number of items indexed.
+     * @param mode "words" (two word prefixes), "trigram" or "suffixarray" (a 4 character infix), or "scan" (the
+     *             infix found by calling String.contains on every name, for comparison).
+     * @return The operation.
+     */
+    public static Supplier<Object> nameIndexSearch(int size, String mode) {
+        List<FoodItem> items = items(size, 9);
+        Random random = new Random(9);
+        String[] queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String name = String.join(" ", NameIndex.tokenize(items.get(random.nextInt(items.size())).getName()));
+            if (mode.equals("words")) {
+                List<String> words = NameIndex.tokenize(name);
+                String last = words.get(words.size() - 1);
+                queries[i] = words.get(0).substring(0, Math.min(4, words.get(0).length())) + " "
+                        + last.substring(0, Math.min(4, last.length()));
+            } else {
+                int at = random.nextInt(Math.max(1, name.length() - 3));
+                queries[i] = name.substring(at, Math.min(at + 4, name.length()));
+            }
+        }
+        int[] next = {0};
+        switch (mode) {
+            case "words": {
+                NameIndex index = new NameIndex(items, false);
+                return () -> index.searchWords(queries[next[0]++ & (queries.length - 1)]);
+            }
+            case "trigram":
+            case "suffixarray": {
+                NameIndex index = new NameIndex(items, mode.equals("suffixarray"));
+                return () -> index.searchSubstring(queries[next[0]++ & (queries.length - 1)]);
+            }
+            case "scan": {
+                String[] names = new String[items.size()];
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = String.join(" ", NameIndex.tokenize(items.get(i).getName()));
+                }
+                return () -> {
+                    String query = queries[next[0]++ & (queries.length - 1)];
+                    List<FoodItem> matches = new ArrayList<>();
+                    for (int i = 0; i < names.length; i++) {
+                        if (names[i].contains(query)) {
+                            matches.add(items.get(i));
+                        }
+                    }
+                    return matches;
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown search mode: " + mode);
+        }
+    }
+
+    /**
+     * Builds an AutoComplete index for a menu of size items.
+     * @param size Number of items on the menu.
+     * @return The operation.
+     */
+    public static Supplier<Object> autoCompleteAdd(int size) {
+        Menu menu = menu(size, 4);
+        return () -> {
+            AutoComplete autoComplete = new AutoComplete();
+            autoComplete.addMenuItems(menu);
+            autoComplete.clear();
+            return autoComplete;
+        };
+    }
+
+    /**
+     * Builds the autocomplete index for a menu of size items, and releases it again.
+     * @param size Number of items on the menu.
+     * @param mode "bulk" (AutoComplete.addMenuItems: dedupe, sort, build in one pass), "insert" (a hash set to dedupe,
+     *             then one insert per name) or "legacy" (the former addMenuItems: List.contains to dedupe, then one
+     *             insert per name).
+     * @return The operation.
+     */
+    public static Supplier<Object> autoCompleteBuild(int size, String mode) {
+        Menu menu = menu(size, 4);
+        switch (mode) {
+            case "bulk":
+                return autoCompleteAdd(size);
+            case "insert":
+            case "legacy": {
+                boolean legacy = mode.equals("legacy");
+                return () -> {
+                    Trie trie = new Trie();
+                    List<String> seenList = new ArrayList<>();
+                    Set<String> seenSet = new HashSet<>();
+                    for (String meal : menu.getMenue().keySet()) {
+                        for (FoodItem item : menu.getMenuForMeal(meal)) {
+                            String name = item.getName().toLowerCase();
+                            boolean added = legacy ? !seenList.contains(name) && seenList.add(name) : seenSet.add(name);
+                            if (added) {
+                                trie.insert(name, item);
+                            }
+                        }
+                    }
+                    trie.clear();
+                    return trie;
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown build mode: " + mode);
+        }
+    }
+
+    /**
+     * Shows size items in the menu list, lays the window out and paints one frame of it, as after a filter change.
+     * @param size Number of items shown.
+     * @param mode "table" (MenuTable: the rows are swapped, only the visible ones are painted) or "panels" (the former
+     *             MainApp.displayFoodItems: a panel with two buttons, two labels and four fonts per item, rebuilt each
+     *             time).
+     * @return The operation.
+     */
+    public static Supplier<Object> menuLayout(int size, String mode) {
+        System.setProperty("java.awt.headless", "true");
+        List<FoodItem> items = items(size, 8);
+        BufferedImage frame = new BufferedImage(1000, 800, BufferedImage.TYPE_INT_RGB);
+        switch (mode) {
+            case "table": {
+                MenuTable table = new MenuTable((item, delta) -> item.addVotes(delta));
+                JScrollPane scrollPane = new JScrollPane(table);
+                return () -> {
+                    table.showItems("Vegan", items);
+                    return paintFrame(scrollPane, frame);
+                };
+            }
+            case "panels": {
+                JPanel menuPanel = new JPanel();
+                menuPanel.setLayout(new BoxLayout(menuPanel, BoxLayout.Y_AXIS));
+                JScrollPane scrollPane = new JScrollPane(menuPanel);
+                return () -> {
+                    menuPanel.removeAll();
+                    legacyDisplayFoodItems(items, menuPanel, "Vegan");
+                    return paintFrame(scrollPane, frame);
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown layout mode: " + mode);
+        }
+    }
+
+    /**
+     * Gets the splash page on screen, or its pictures ready.
+     * @param mode "firstFrame" (GuiHomePage with placeholders, laid out and painted once), "legacyFirstFrame" (the
+     *             same plus the former getScaledIcon of both pictures, which ran before the first frame), "cold" (the
+     *             pipeline decoding and scaling both pictures) or "cached" (the pipeline reading both from its cache).
+     * @return The operation.
+     */
+    public static Supplier<Object> splash(String mode) {
+        System.setProperty("java.awt.headless", "true");
+        Path[] pictures = {Path.of("res/JosephRegretting.png"), Path.of("res/JosephHappy.png")};
+        BufferedImage frame = new BufferedImage(1200, 900, BufferedImage.TYPE_INT_RGB);
+        ImagePipeline never = new ImagePipeline(null, task -> { }); // the pictures stay placeholders
+        switch (mode) {
+            case "firstFrame":
+                return () -> paintPage(new GuiHomePage(e -> { }, never), frame);
+            case "legacyFirstFrame": {
+                byte[][] bytes = new byte[pictures.length][];
+                for (int i = 0; i < pictures.length; i++) {
+                    bytes[i] = readAll(pictures[i]);
+                }
+                return () -> {
+                    GuiHomePage page = new GuiHomePage(e -> { }, never);
+                    for (byte[] picture : bytes) {
+                        // a fresh Toolkit image each time, as on a first launch (Toolkit.getImage caches by path)
+                        ImageIcon icon = new ImageIcon(Toolkit.getDefaultToolkit().createImage(picture));
+                        new ImageIcon(icon.getImage().getScaledInstance(500, 700, Image.SCALE_SMOOTH));
+                    }
+                    return paintPage(page, frame);
+                };
+            }
+            case "cold":
+            case "cached": {
+                Path cache = null;
+                if (mode.equals("cached")) {
+                    try {
+                        cache = Files.createTempDirectory("splash-cache");
+                        cache.toFile().deleteOnExit();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                ImagePipeline pipeline = new ImagePipeline(cache, Runnable::run);
+                if (cache != null) {
+                    for (Path picture : pictures) {
+                        pipeline.load(picture, 500, 700).join(); // fill the cache, as a previous launch would have
+                    }
+                    try (var entries = Files.list(cache)) {
+                        entries.forEach(entry -> entry.toFile().deleteOnExit()); // runs before the directory's
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return () -> {
+                    try {
+                        BufferedImage last = null;
+                        for (Path picture : pictures) {
+                            last = pipeline.loadNow(picture, 500, 700);
+                        }
+                        return last;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+            }
+            default:
+                throw new IllegalArgumentException("Unknown splash mode: " + mode);
+        }
+    }
+
+    private static Object paintPage(JPanel page, BufferedImage frame) {
+        page.setSize(frame.getWidth(), frame.getHeight());
+        layOut(page);
+        Graphics2D graphics = frame.createGraphics();
+        try {
+            page.paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        return frame;
+    }
+
+    private static byte[] readAll(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Lays a component tree out at the window's size and paints it, the way the EDT would for the next frame.
+     * Without a native window validate() does nothing, so every container is laid out directly, outside in.
+     */
+    private static Object paintFrame(JScrollPane scrollPane, BufferedImage frame) {
+        scrollPane.setSize(frame.getWidth(), frame.getHeight());
+        layOut(scrollPane);
+        Graphics2D graphics = frame.createGraphics();
+        try {
+            scrollPane.paint(graphics);
+        } finally {
+            graphics.dispose();
+        }
+        return frame;
+    }
+
+    private static void layOut(Component component) {
+        if (component instanceof Container container) {
+            container.doLayout();
+            for (Component child : container.getComponents()) {
+                layOut(child);
+            }
+        }
+    }
+
+    /**
+     * MainApp.displayFoodItems as it was before the menu became a MenuTable, kept as the baseline.
+     */
+    private static void legacyDisplayFoodItems(List<FoodItem> items, JPanel panel, String headerText) {
+        JLabel header = new JLabel(headerText.toUpperCase());
+        header.setFont(new Font("Poppins", Font.BOLD, 20));
+        panel.add(header);
+        int count = 1;
+        for (FoodItem item : items) {
+            JPanel itemPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 2));
+            itemPanel.setOpaque(false);
+            JLabel itemLabel = new JLabel(count + ". " + item.getName());
+            itemLabel.setFont(new Font("Poppins", Font.PLAIN, 16));
+            itemLabel.setPreferredSize(new Dimension(320, 22));
+            JLabel scoreLabel = new JLabel("Score: " + item.getRating());
+            scoreLabel.setFont(new Font("Poppins", Font.PLAIN, 15));
+            scoreLabel.setForeground(new Color(0x003865));
+            JButton yesBtn = new JButton("★");
+            yesBtn.setPreferredSize(new Dimension(50, 32));
+            yesBtn.setFont(new Font("SansSerif", Font.BOLD, 16));
+            yesBtn.addActionListener(e -> scoreLabel.setText("Score: " + item.getRating()));
+            JButton noBtn = new JButton("☆");
+            noBtn.setPreferredSize(new Dimension(50, 32));
+            noBtn.setFont(new Font("SansSerif", Font.BOLD, 16));
+            noBtn.addActionListener(e -> scoreLabel.setText("Score: " + item.getRating()));
+            itemPanel.add(itemLabel);
+            itemPanel.add(yesBtn);
+            itemPanel.add(noBtn);
+            itemPanel.add(scoreLabel);
+            panel.add(itemPanel);
+            count++;
+        }
+    }
+
+    /**
+     * Recomputes the top 5 items of a menu after one rating changed.
+     * @param size Number of items on the menu.
+     * @return The operation.
+     */
+    public static Supplier<Object> menuTopK(int size) {
+        Menu menu = menu(size, 5);
+        List<FoodItem> items = menu.getAllFoodItems();
+        Random random = new Random(5);
+        return () -> {
+            items.get(random.nextInt(items.size())).upVote();
+            menu.updateTopKFoodItems(5);
+            return menu.getTopKFoodItems();
+        };
+    }
+
+    /**
+     * Lists the items of one category, without repeated names, sorted by rating.
+     * @param size Number of items on the menu.
+     * @return The operation.
+     */
+    public static Supplier<Object> menuUniqueByCategory(int size) {
+        Menu menu = menu(size, 6);
+        return () -> menu.getUniqueFoodItemsByCategory("Vegan");
+    }
+
+    /**
+     * Sorts size items with FoodComparator.
+     * @param size Number of items.
+     * @return The operation.
+     */
+    public static Supplier<Object> comparatorSort(int size) {
+        List<FoodItem> items = items(size, 7);
+        FoodComparator comparator = new FoodComparator();
+        return () -> {
+            List<FoodItem> copy = new ArrayList<>(items);
+            copy.sort(comparator);
+            return copy;
+        };
+    }
+
+    /**
+     * Parses the recorded menu page.
+     * @param mode "document" to build the whole DOM first, or "stream" to parse one meal section at a time.
+     * @return The operation.
+     */
+    public static Supplier<Object> parseFixture(String mode) {
+        String html = readFixture();
+        if (mode.equals("stream")) {
+            return () -> {
+                try {
+                    return JsoupScraper.parseMenu(new StringReader(html), "https://macalester.cafebonappetit.com/", (meal, items) -> { });
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        }
+        return () -> JsoupScraper.parseMenu(Jsoup.parse(html), (meal, items) -> { });
+    }
+
+    /**
+     * Reads back a snapshot of the recorded menu page, for comparison with parsing it and building the index.
+     * @return The operation.
+     */
+    public static Supplier<Object> readSnapshot() {
+        try {
+            Menu menu = JsoupScraper.parseMenu(Jsoup.parse(readFixture()), (meal, items) -> { });
+            AutoComplete autoComplete = new AutoComplete();
+            autoComplete.addMenuItems(menu);
+            Path file = Files.createTempFile("menu", ".snapshot");
+            file.toFile().deleteOnExit();
+            MenuSnapshot.write(file, menu, autoComplete);
+            return () -> {
+                try {
+                    return MenuSnapshot.read(file);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Searches for the best rated completions of short prefixes, to measure what the JfrEvents search event costs.
+     * @param size Number of items indexed.
+     * @param mode "trie" (the same search on the Trie, without the event), "disabled" (AutoComplete with its event off, as normally)
+     *     or "recording" (AutoComplete while res/cafemac.jfc is recording every search).
+     * @return The operation.
+     */
+    public static Supplier<Object> searchEvents(int size, String mode) {
+        AutoComplete autoComplete = new AutoComplete();
+        autoComplete.addMenuItems(menu(size, 12));
+        List<FoodItem> items = autoComplete.searchByPrefix("");
+        Random random = new Random(12);
+        String[] queries = new String[1024];
+        for (int i = 0; i < queries.length; i++) {
+            String name = items.get(random.nextInt(items.size())).getName().toLowerCase();
+            queries[i] = name.substring(0, Math.min(name.length(), 1 + random.nextInt(3)));
+        }
+        int[] next = {0};
+        if (mode.equals("trie")) {
+            return () -> autoComplete.getTrie().topCompletions(queries[next[0]++ & (queries.length - 1)].toLowerCase(), 10);
+        }
+        if (mode.equals("recording")) {
+            try {
+                Recording recording = new Recording(Configuration.create(Path.of("res/cafemac.jfc")));
+                recording.setToDisk(false);
+                recording.start(); // runs until the benchmark's JVM exits
+            } catch (IOException | ParseException e) {
+                throw new IllegalStateException("Run the benchmarks from the project folder", e);
+            }
+        }
+        return () -> autoComplete.topCompletions(queries[next[0]++ & (queries.length - 1)], 10);
+    }
+
+    private static String readFixture() {
+        try {
+            return Files.readString(FIXTURE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Run the benchmarks from the project folder", e);
+        }
+    }
+
+    /**
+     * Generates items with made-up lowercase names of 2 to 6 syllables, 1 or 2 categories and a rating.
+     */
+    static List<FoodItem> items(int size, long seed) {
+        Random random = new Random(seed);
+        List<FoodItem> items = new ArrayList<>(size);
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            name.setLength(0);
+            int syllables = 2 + random.nextInt(5);
+            for (int s = 0; s < syllables; s++) {
+                name.append(SYLLABLES[random.nextInt(s == 0 ? SYLLABLES.length - 1 : SYLLABLES.length)]);
+            }
+            List<String> categories = new ArrayList<>(2);
+            categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            if (random.nextBoolean()) {
+                categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            }
+            FoodItem item = new FoodItem(name.toString().trim(), categories);
+            item.setRating(random.nextInt(200) - 100);
+            items.add(item);
+        }
+        return items;
+    }
+
+    private static Menu menu(int size, long seed) {
+        Menu menu = new Menu();
+        List<FoodItem> items = items(size, seed);
+        for (int i = 0; i < items.size(); i++) {
+            menu.addFoodItem(MEALS[i % MEALS.length], items.get(i));
+        }
+        return menu;
+    }
+
+    /**
+     * Takes 1024 prefixes (a power of two, so cycling through them is a mask) from random item names.
+     */
+    private static String[] prefixes(List<FoodItem> items, int length) {
+        Random random = new Random(length);
+        String[] prefixes = new String[1024];
+        for (int i = 0; i < prefixes.length; i++) {
+            String name = items.get(random.nextInt(items.size())).getName();
+            prefixes[i] = name.substring(0, Math.min(length, name.length()));
+        }
+        return prefixes;
+    }
+
+    /**
+     * The trie as it was before it used sorted arrays and ranked caches: a HashMap of boxed characters per node,
+     * and a new list for every level of a subtree walk. Kept as the baseline the current Trie is measured against.
+     */
+    static final class LegacyTrie {
+        private final Node root = new Node();
+
+        void insert(String word, FoodItem item) {
+            Node current = root;
+            for (char c : word.toCharArray()) {
+                current.children.putIfAbsent(c, new Node());
+                current = current.children.get(c);
+            }
+            current.items.add(item);
+        }
+
+        List<FoodItem> searchByPrefix(String prefix) {
+            Node current = root;
+            for (char c : prefix.toCharArray()) {
+                current = current.children.get(c);
+                if (current == null) {
+                    return new ArrayList<>();
+                }
+            }
+            return collect(current);
+        }
+
+        private List<FoodItem> collect(Node node) {
+            List<FoodItem> result = new ArrayList<>(node.items);
+            for (Node child : node.children.values()) {
+                result.addAll(collect(child));
+            }
+            return result;
+        }
+
+        private static final class Node {
+            final Map<Character, Node> children = new HashMap<>();
+            final List<FoodItem> items = new ArrayList<>();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Building the autocomplete index for a menu: the bulk build against one insert per name, with the former
+ * List.contains dedupe and with a hash set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AutoCompleteBuildBenchmark {
+    @Param({"1000", "10000", "100000"})
+    int size;
+
+    @Param({"bulk", "insert", "legacy"})
+    String mode;
+
+    private Supplier<Object> build;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        build = Workloads.get("autoCompleteBuild", size, mode);
+    }
+
+    @Benchmark
+    public Object build() {
+        return build.get();
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Typo-tolerant search (up to 2 edits) by walking the trie with pruning, against computing the edit distance to
+ * every name.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FuzzySearchBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"trie", "bruteforce"})
+    String search;
+
+    private Supplier<Object> fuzzySearch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fuzzySearch = Workloads.get("fuzzySearch", size, search.equals("bruteforce"));
+    }
+
+    @Benchmark
+    public Object fuzzySearch() {
+        return fuzzySearch.get();
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of the flight recorder search event: a top-k search straight on the Trie, through AutoComplete with the
+ * event disabled, and through AutoComplete while a recording takes every event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JfrEventsBenchmark {
+    @Param({"10000"})
+    int size;
+
+    @Param({"trie", "disabled", "recording"})
+    String mode;
+
+    private Supplier<Object> search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        search = Workloads.get("searchEvents", size, mode);
+    }
+
+    @Benchmark
+    public Object topCompletions() {
+        return search.get();
+    }
+}
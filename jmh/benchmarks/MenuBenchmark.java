@@ -0,0 +1,64 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Menu ranking and category queries, FoodComparator sorting and building the autocomplete index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MenuBenchmark {
+    @Param({"100", "1000", "10000"})
+    int size;
+
+    private Supplier<Object> updateTopK;
+    private Supplier<Object> uniqueByCategory;
+    private Supplier<Object> comparatorSort;
+    private Supplier<Object> addMenuItems;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        updateTopK = Workloads.get("menuTopK", size);
+        uniqueByCategory = Workloads.get("menuUniqueByCategory", size);
+        comparatorSort = Workloads.get("comparatorSort", size);
+        addMenuItems = Workloads.get("autoCompleteAdd", size);
+    }
+
+    @Benchmark
+    public Object updateTopKFoodItems() {
+        return updateTopK.get();
+    }
+
+    @Benchmark
+    public Object getUniqueFoodItemsByCategory() {
+        return uniqueByCategory.get();
+    }
+
+    @Benchmark
+    public Object foodComparatorSort() {
+        return comparatorSort.get();
+    }
+
+    @Benchmark
+    public Object autoCompleteAddMenuItems() {
+        return addMenuItems.get();
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Build time and query latency of the word and infix name index. Queries are compared with scanning every name
+ * (which builds nothing).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NameIndexBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"words", "trigram", "suffixarray", "scan"})
+    String mode;
+
+    private Supplier<Object> build;
+    private Supplier<Object> search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (!mode.equals("scan")) { // "words" and "trigram" search the same index
+            build = Workloads.get("nameIndexBuild", size, mode.equals("suffixarray"));
+        }
+        search = Workloads.get("nameIndexSearch", size, mode);
+    }
+
+    @Benchmark
+    public Object build() {
+        return build == null ? null : build.get();
+    }
+
+    @Benchmark
+    public Object search() {
+        return search.get();
+    }
+}
@@ -0,0 +1,47 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Typing a query one keystroke at a time and reading the first results after each: a PrefixCursor that steps
+ * one node and streams the results, against searchByPrefix walking from the root and copying the whole subtree.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrefixCursorBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    @Param({"cursor", "searchbyprefix"})
+    String lookup;
+
+    private Supplier<Object> typing;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        typing = Workloads.get("prefixTyping", size, lookup.equals("cursor"));
+    }
+
+    @Benchmark
+    public Object typeQuery() {
+        return typing.get();
+    }
+}
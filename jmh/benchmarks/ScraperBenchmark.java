@@ -0,0 +1,54 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing the recorded menu page (test/fixtures) as a whole document and as a stream, and reading the same menu
+ * back from a snapshot instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScraperBenchmark {
+    private Supplier<Object> parseDocument;
+    private Supplier<Object> parseStream;
+    private Supplier<Object> readSnapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parseDocument = Workloads.get("parseFixture", "document");
+        parseStream = Workloads.get("parseFixture", "stream");
+        readSnapshot = Workloads.get("readSnapshot");
+    }
+
+    @Benchmark
+    public Object parseDocument() {
+        return parseDocument.get();
+    }
+
+    @Benchmark
+    public Object parseStream() {
+        return parseStream.get();
+    }
+
+    @Benchmark
+    public Object readSnapshot() {
+        return readSnapshot.get();
+    }
+}
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Trie insert, prefix search and ranked completions from 1k to 1M items, for the current trie and the original
+ * HashMap-based one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrieBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    int size;
+
+    @Param({"array", "hashmap"})
+    String trie;
+
+    private Supplier<Object> insert;
+    private Supplier<Object> searchByPrefix;
+    private Supplier<Object> topCompletions;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean legacy = trie.equals("hashmap");
+        insert = Workloads.get("trieInsert", size, legacy);
+        searchByPrefix = Workloads.get("trieSearch", size, legacy);
+        topCompletions = Workloads.get("trieTopCompletions", size, legacy);
+    }
+
+    @Benchmark
+    public Object insert() {
+        return insert.get();
+    }
+
+    @Benchmark
+    public Object searchByPrefix() {
+        return searchByPrefix.get();
+    }
+
+    @Benchmark
+    public Object topCompletions() {
+        return topCompletions.get();
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.function.Supplier;
+
+/**
+ * Looks up the workloads defined by BenchmarkWorkloads, which is in the default package and so cannot be named here.
+ */
+final class Workloads {
+    private Workloads() {
+    }
+
+    /**
+     * Calls the BenchmarkWorkloads factory method with the given name and arguments.
+     *
+     * @param name the factory method
+     * @param args its arguments
+     * @return the operation to measure
+     */
+    @SuppressWarnings("unchecked")
+    static Supplier<Object> get(String name, Object... args) {
+        try {
+            for (Method method : Class.forName("BenchmarkWorkloads").getMethods()) {
+                if (method.getName().equals(name) && method.getParameterCount() == args.length) {
+                    return (Supplier<Object>) method.invoke(null, args);
+                }
+            }
+        } catch (ClassNotFoundException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+        throw new IllegalArgumentException("No workload " + name + " with " + args.length + " arguments");
+    }
+}
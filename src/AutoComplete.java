@@ -1,42 +1,95 @@
 import java.awt.Color;
 import java.awt.Font;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
 /**
  * Provides autocomplete functionality for food items using a Trie data structure.
+ *
+ * The index is kept as generations: a Trie that is built in bulk and never inserted into once published, plus the
+ * word index and typing cursor that belong to it. addMenuItems builds the next generation on the calling thread and
+ * swaps it in atomically, so a search running at the same time sees either the old items or the new ones, never a
+ * half-built trie. The replaced generation stops tracking ratings, so it is garbage collected once no search uses it.
  */
 public class AutoComplete {
-    private Trie trie;
+    private final AtomicReference<Generation> current;
 
     /**
      * Initializes the autocomplete structure with an empty Trie.
      */
     public AutoComplete() {
-        trie = new Trie();
+        current = new AtomicReference<>(new Generation(new Trie(), 0));
     }
 
     /**
-     * Adds all unique food items from the menu into the trie.
+     * Wraps a Trie that has already been filled, such as one read back from a MenuSnapshot.
+     * @param trie The index to search.
+     */
+    AutoComplete(Trie trie) {
+        current = new AtomicReference<>(new Generation(trie, 0));
+    }
+
+    /**
+     * Returns the underlying index, for writing it to a MenuSnapshot.
+     * @return The Trie.
+     */
+    Trie getTrie() {
+        return current.get().trie;
+    }
+
+    /**
+     * Returns the number of the current generation, which goes up each time the items change.
+     * @return The generation number, 0 for the first one.
+     */
+    public long getGeneration() {
+        return current.get().number;
+    }
+
+    /**
+     * Adds all unique food items from the menu into the trie. The items already indexed are kept, and a name that is
+     * already indexed keeps its first item.
      * @param menu The menu to extract items from.
      */
-    public void addMenuItems(Menu menu) {
+    public synchronized void addMenuItems(Menu menu) {
         if (menu == null) return;
-        List<String> seen = new ArrayList<>();
-        for (String meal : menu.getMenue().keySet()) {
-            for (FoodItem item : menu.getMenuForMeal(meal)) {
+        JfrEvents.IndexBuild event = new JfrEvents.IndexBuild();
+        event.begin();
+        Generation previous = current.get();
+        Map<String, FoodItem> byName = new LinkedHashMap<>();
+        for (FoodItem item : previous.trie.searchByPrefix("")) {
+            byName.putIfAbsent(item.getName().toLowerCase(), item);
+        }
+        int menuItems = 0;
+        for (List<FoodItem> meal : menu.getMenue().values()) {
+            menuItems += meal.size();
+            for (FoodItem item : meal) {
                 if (item != null && item.getName() != null) {
-                    String name = item.getName().toLowerCase();
-                    if (!seen.contains(name)) {
-                        seen.add(name);
-                        trie.insert(name, item);
-                    }
+                    byName.putIfAbsent(item.getName().toLowerCase(), item);
                 }
             }
         }
+        List<String> names = new ArrayList<>(byName.keySet());
+        names.sort(null);
+        List<FoodItem> items = new ArrayList<>(names.size());
+        for (String name : names) {
+            items.add(byName.get(name));
+        }
+        Trie trie = new Trie(previous.trie.getRankingSize());
+        trie.bulkLoad(names, items);
+        publish(previous, new Generation(trie, previous.number + 1));
+        event.end();
+        if (event.shouldCommit()) {
+            event.menuItems = menuItems;
+            event.itemCount = items.size();
+            event.generation = previous.number + 1;
+            event.commit();
+        }
     }
 
     /**
@@ -48,7 +101,141 @@ public class AutoComplete {
         if (query == null) {
             return new ArrayList<>();
         }
-        return trie.searchByPrefix(query.toLowerCase());
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<FoodItem> results = current.get().trie.searchByPrefix(query.toLowerCase());
+        JfrEvents.commitSearch(event, "prefix", query, results.size());
+        return results;
+    }
+
+    /**
+     * Like searchByPrefix, for a query that is being typed: a cursor stays at the previous query, so a query that
+     * extends or shortens it only walks the characters that changed.
+     * @param query The prefix to search.
+     * @return List of matching food items.
+     */
+    public List<FoodItem> searchAsTyped(String query) {
+        if (query == null) {
+            return new ArrayList<>();
+        }
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<FoodItem> results;
+        PrefixCursor cursor = current.get().typingCursor;
+        synchronized (cursor) {
+            cursor.moveTo(query.toLowerCase());
+            results = cursor.results();
+        }
+        JfrEvents.commitSearch(event, "typed", query, results.size());
+        return results;
+    }
+
+    /**
+     * Retrieves the best rated food items that match the given prefix.
+     * @param query The prefix to search.
+     * @param n Maximum number of items to return.
+     * @return Matching food items ordered by FoodComparator.
+     */
+    public List<FoodItem> topCompletions(String query, int n) {
+        if (query == null) {
+            return new ArrayList<>();
+        }
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<FoodItem> results = current.get().trie.topCompletions(query.toLowerCase(), n);
+        JfrEvents.commitSearch(event, "top", query, results.size());
+        return results;
+    }
+
+    /**
+     * Retrieves food items whose name starts with something close to the query, for queries with typos
+     * (like "piza" or "shawrma").
+     * @param query The text typed.
+     * @param maxDistance The number of typos tolerated: changed, missing, extra or swapped letters.
+     * @param n Maximum number of items to return.
+     * @return Matching food items, closest first and then best rated.
+     */
+    public List<FoodItem> fuzzySearch(String query, int maxDistance, int n) {
+        if (query == null) {
+            return new ArrayList<>();
+        }
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<FoodItem> results = current.get().trie.fuzzySearch(query.toLowerCase(), maxDistance, n);
+        JfrEvents.commitSearch(event, "fuzzy", query, results.size());
+        return results;
+    }
+
+    /**
+     * Retrieves food items with a word starting with each word of the query, anywhere in the name
+     * (so "chicken" finds "Grilled Chicken Thighs").
+     * @param query One or more words.
+     * @return Matching food items.
+     */
+    public List<FoodItem> searchWords(String query) {
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<FoodItem> results = current.get().nameIndex().searchWords(query);
+        JfrEvents.commitSearch(event, "words", query, results.size());
+        return results;
+    }
+
+    /**
+     * Retrieves food items whose name contains the query anywhere (so "eese" finds "Mac and Cheese").
+     * @param query The text to look for.
+     * @return Matching food items.
+     */
+    public List<FoodItem> searchSubstring(String query) {
+        JfrEvents.Search event = new JfrEvents.Search();
+        event.begin();
+        List<FoodItem> results = current.get().nameIndex().searchSubstring(query);
+        JfrEvents.commitSearch(event, "substring", query, results.size());
+        return results;
+    }
+
+    /**
+     * Removes every item from the index and stops tracking their ratings, so a replaced index can be garbage collected.
+     */
+    public synchronized void clear() {
+        Generation previous = current.get();
+        publish(previous, new Generation(new Trie(previous.trie.getRankingSize()), previous.number + 1));
+    }
+
+    /**
+     * Makes a new generation current and retires the one it replaces. The old trie only stops following ratings, so a
+     * search or typing cursor still on the old generation finishes on its nodes, which are never changed.
+     * Updates are serialized; searches never wait for them.
+     * @param previous The generation the new one was built from.
+     * @param next The new generation.
+     */
+    private void publish(Generation previous, Generation next) {
+        current.set(next);
+        previous.trie.detach();
+    }
+
+    /**
+     * One published state of the index. The word index is built on first use.
+     */
+    private static final class Generation {
+        final Trie trie;
+        final long number;
+        final PrefixCursor typingCursor;
+        private volatile NameIndex nameIndex;
+
+        Generation(Trie trie, long number) {
+            this.trie = trie;
+            this.number = number;
+            this.typingCursor = trie.cursor();
+        }
+
+        NameIndex nameIndex() {
+            NameIndex index = nameIndex;
+            if (index == null) {
+                index = new NameIndex(trie.searchByPrefix(""), false);
+                nameIndex = index;
+            }
+            return index;
+        }
     }
 
     /**
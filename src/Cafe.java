@@ -0,0 +1,24 @@
+import java.time.LocalDate;
+
+/**
+ * A Bon Appétit cafe whose menu can be scraped. Menus for a given day live under the cafe's menu address,
+ * followed by the date, like https://macalester.cafebonappetit.com/cafe/cafe-mac/2025-04-14/.
+ *
+ * @param name the cafe's display name, used as its key in a MenuCalendar
+ * @param menuUrl the cafe's menu address, ending in a slash
+ */
+public record Cafe(String name, String menuUrl) {
+
+    /** Macalester's Cafe Mac. */
+    public static final Cafe CAFE_MAC = new Cafe("Cafe Mac", "https://macalester.cafebonappetit.com/cafe/cafe-mac/");
+
+    /**
+     * Returns the address of this cafe's menu for a day.
+     *
+     * @param date the day
+     * @return the menu page address
+     */
+    public String urlFor(LocalDate date) {
+        return menuUrl + date + "/";
+    }
+}
@@ -0,0 +1,141 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shared dictionary that interns dietary category tags (like "Vegan" or "Gluten-Free") as small integer ids.
+ * Tags are normalized once (trimmed, spaces and dashes removed, lowercased), so " gluten free" and "Gluten-Free"
+ * get the same id. Each FoodItem keeps its categories as a bitmask of a long: the first 63 categories get a bit of
+ * their own, and any later ones share the last bit, which only says "check the item's tags" (see bitOf).
+ */
+public final class CategoryDictionary {
+    /** Number of bits in a category mask, and of the per-bit tables built from masks. */
+    public static final int MASK_BITS = Long.SIZE;
+    /** The bit shared by every category whose id is this or higher. */
+    public static final int OVERFLOW_BIT = MASK_BITS - 1;
+
+    private static final Map<String, Integer> idsByNormalizedTag = new ConcurrentHashMap<>();
+    private static final Map<String, Integer> idsByRawTag = new ConcurrentHashMap<>();
+    private static final List<String> namesById = new ArrayList<>();
+
+    private CategoryDictionary() {
+    }
+
+    /**
+     * Returns the id of a tag, adding it to the dictionary if it has not been seen before.
+     * @param tag Raw category tag.
+     * @return The category id, or -1 if the tag is null or blank.
+     */
+    public static int intern(String tag) {
+        if (tag == null) {
+            return -1;
+        }
+        Integer cached = idsByRawTag.get(tag);
+        if (cached != null) {
+            return cached;
+        }
+        String normalized = normalize(tag);
+        if (normalized.isEmpty()) {
+            return -1;
+        }
+        int id;
+        synchronized (namesById) {
+            Integer existing = idsByNormalizedTag.get(normalized);
+            if (existing != null) {
+                id = existing;
+            } else {
+                id = namesById.size();
+                namesById.add(tag.trim());
+                idsByNormalizedTag.put(normalized, id);
+            }
+        }
+        idsByRawTag.put(tag, id);
+        return id;
+    }
+
+    /**
+     * Looks up the id of a tag without adding it. A spelling that was interned (such as a filter button's label) is
+     * found without allocating; any other is normalized on each call and never stored, so lookups of strings sent by
+     * clients cannot grow the dictionary.
+     * @param tag Raw category tag, as typed or as shown on a filter button.
+     * @return The category id, or -1 if the tag is unknown.
+     */
+    public static int lookup(String tag) {
+        if (tag == null) {
+            return -1;
+        }
+        Integer cached = idsByRawTag.get(tag);
+        if (cached != null) {
+            return cached;
+        }
+        Integer id = idsByNormalizedTag.get(normalize(tag));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns how many raw spellings are cached (used by tests).
+     * @return The number of distinct strings given to intern.
+     */
+    static int spellingCount() {
+        return idsByRawTag.size();
+    }
+
+    /**
+     * Returns the display name the category was first interned with.
+     * @param id Category id.
+     * @return The category name.
+     */
+    public static String nameOf(int id) {
+        synchronized (namesById) {
+            return namesById.get(id);
+        }
+    }
+
+    /**
+     * Returns the display names of every category seen so far, in id order.
+     * @return A new list of the names.
+     */
+    public static List<String> names() {
+        synchronized (namesById) {
+            return new ArrayList<>(namesById);
+        }
+    }
+
+    /**
+     * Returns the mask bit of a category. Ids below OVERFLOW_BIT have their own bit; all later ones share
+     * OVERFLOW_BIT, so an item with that bit has to be asked (FoodItem.hasCategory) which of them it has.
+     * @param id Category id.
+     * @return The bit, between 0 and OVERFLOW_BIT.
+     */
+    public static int bitOf(int id) {
+        return Math.min(id, OVERFLOW_BIT);
+    }
+
+    /**
+     * Interns a list of tags and combines their bits into a bitmask.
+     * @param tags Raw category tags (may be null).
+     * @return Bitmask with bitOf(id) set for every category id in the list.
+     */
+    public static long maskOf(List<String> tags) {
+        long mask = 0L;
+        if (tags != null) {
+            for (String tag : tags) {
+                int id = intern(tag);
+                if (id >= 0) {
+                    mask |= 1L << bitOf(id);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Normalizes strings to lowercase, stripped of spaces and dashes.
+     * @param text Input string.
+     * @return Normalized version.
+     */
+    public static String normalize(String text) {
+        return text.trim().replaceAll("[\\s\\-]", "").toLowerCase();
+    }
+}
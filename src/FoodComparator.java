@@ -1,4 +1,8 @@
+import java.util.Arrays;
 import java.util.Comparator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.ToIntFunction;
 
 /**
  * A customized comparator to sort FoodItem objects based on their ratings.
@@ -6,6 +10,12 @@ import java.util.Comparator;
  */
 public class FoodComparator implements Comparator<FoodItem> {
 
+    /** Same order as compare, on the values taken when a sort starts, after a key compared first. */
+    private static final Comparator<Rated> RATED_ORDER = Comparator
+            .comparingInt(Rated::key)
+            .thenComparing((a, b) -> Integer.compare(b.rating(), a.rating()))
+            .thenComparing(Rated::name, Comparator.nullsLast(Comparator.naturalOrder()));
+
 
     /**
      * Compares two FoodItem objects for ordering.
@@ -23,4 +33,42 @@ public class FoodComparator implements Comparator<FoodItem> {
         return a.getName().compareTo(b.getName());
     }
 
+    /**
+     * Sorts items in FoodComparator order, by the ratings they have when the sort starts.
+     * Votes on other threads change ratings without any lock, so comparing live ratings can contradict an earlier
+     * comparison of the same items, and List.sort then throws "Comparison method violates its general contract".
+     * Each rating is read once instead, the way FoodRanking keeps the rating an item was ranked with.
+     *
+     * @param items the items to sort, in place
+     */
+    public static void sortByRating(List<FoodItem> items) {
+        sortByRating(items, item -> 0);
+    }
+
+    /**
+     * Sorts items by a key first (lowest first) and then in FoodComparator order, reading each key and rating once.
+     *
+     * @param items the items to sort, in place
+     * @param key the key compared before the rating, such as a distance; it must not change during the sort
+     */
+    public static void sortByRating(List<FoodItem> items, ToIntFunction<FoodItem> key) {
+        Rated[] rated = new Rated[items.size()];
+        int i = 0;
+        for (FoodItem item : items) {
+            rated[i++] = new Rated(item, key.applyAsInt(item), item.getRating(), item.getName());
+        }
+        Arrays.sort(rated, RATED_ORDER);
+        ListIterator<FoodItem> it = items.listIterator();
+        for (Rated entry : rated) {
+            it.next();
+            it.set(entry.item());
+        }
+    }
+
+    /**
+     * An item with the key, rating and name it had when a sort started.
+     */
+    private record Rated(FoodItem item, int key, int rating, String name) {
+    }
+
 }
\ No newline at end of file
@@ -1,4 +1,9 @@
+import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents a single item of food on the menu. It has attributes: nameand category (or categories if the item is part of multiple categories).
@@ -11,8 +16,14 @@ public class FoodItem {
     /** list of categories this food items belongs to */
     private List<String> category;
 
-    /** rating of this food item */
-    private int rating;
+    /** bitmask of the interned category ids, see CategoryDictionary.bitOf */
+    private long categoryMask;
+
+    /** rating of this food item, striped across cells so concurrent voters do not contend on one counter */
+    private final LongAdder rating = new LongAdder();
+
+    /** structures that want to hear about rating changes */
+    private final List<FoodItemListener> listeners = new CopyOnWriteArrayList<>();
 
 
     /**
@@ -25,6 +36,7 @@ public class FoodItem {
     public FoodItem(String name, List<String> category){
         this.name = name;
         this.category = category;
+        this.categoryMask = CategoryDictionary.maskOf(category);
     }
 
     /**
@@ -47,34 +59,100 @@ public class FoodItem {
 
     /**
      * returns the current rating of the food item.
+     * Rankings take this value once per change and keep it with the item, so an ordering is never
+     * computed from two different readings of the same item.
      *
      * @return the rating
      */
     public int getRating() {
-        return rating;
+        return (int) rating.sum();
     }
 
     /**
      * sets the rating of the food item.
+     * This is meant for initializing or restoring a rating; votes cast at the same moment may be overwritten.
      *
      * @param rate the new rating
      */
     public void setRating(int rate) {
-        this.rating = rate;
+        rating.reset();
+        rating.add(rate);
+        fireRatingChanged();
     }
 
     /**
      * increases the rating of the food item by one.
      */
     public void upVote(){
-        rating++;
+        rating.increment();
+        fireRatingChanged();
     }
 
     /**
      * decreases the rating of the food item by one.
      */
     public void downVote(){
-        rating--;
+        rating.decrement();
+        fireRatingChanged();
+    }
+
+    /**
+     * changes the rating of the food item by the given number of votes (negative for down votes).
+     * Safe to call from any thread; listeners are notified once.
+     *
+     * @param delta the net number of votes to apply
+     */
+    public void addVotes(int delta) {
+        if (delta == 0) {
+            return;
+        }
+        rating.add(delta);
+        fireRatingChanged();
+    }
+
+    /**
+     * applies a batch of votes. Votes for the same item are summed first, so each item is updated
+     * and its listeners (rankings, the Trie) are notified only once per batch.
+     *
+     * @param votes the votes to apply
+     */
+    public static void applyVotes(Collection<Vote> votes) {
+        Map<FoodItem, int[]> totals = new IdentityHashMap<>();
+        for (Vote vote : votes) {
+            if (vote != null && vote.item() != null) {
+                totals.computeIfAbsent(vote.item(), item -> new int[1])[0] += vote.delta();
+            }
+        }
+        for (Map.Entry<FoodItem, int[]> total : totals.entrySet()) {
+            total.getKey().addVotes(total.getValue()[0]);
+        }
+    }
+
+    /**
+     * registers a listener that is notified whenever the rating of this food item changes.
+     *
+     * @param listener the listener to add
+     */
+    public void addListener(FoodItemListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * unregisters a listener previously added with addListener.
+     *
+     * @param listener the listener to remove
+     */
+    public void removeListener(FoodItemListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * notifies every registered listener that the rating changed.
+     */
+    private void fireRatingChanged() {
+        for (FoodItemListener listener : listeners) {
+            listener.ratingChanged(this);
+        }
     }
 
     /**
@@ -93,6 +171,43 @@ public class FoodItem {
      */
     public void setCategory(List<String> category) {
         this.category = category;
+        this.categoryMask = CategoryDictionary.maskOf(category);
+        for (FoodItemListener listener : listeners) {
+            listener.categoryChanged(this);
+        }
+    }
+
+    /**
+     * returns the categories of this food item as a bitmask of CategoryDictionary ids.
+     *
+     * @return the category bitmask
+     */
+    public long getCategoryMask() {
+        return categoryMask;
+    }
+
+    /**
+     * tells whether this food item has a category. Categories past the mask's own bits are checked against the tags.
+     *
+     * @param id a CategoryDictionary id
+     * @return true if one of the item's tags has that id
+     */
+    public boolean hasCategory(int id) {
+        if (id < 0 || (categoryMask & 1L << CategoryDictionary.bitOf(id)) == 0) {
+            return false;
+        }
+        if (id < CategoryDictionary.OVERFLOW_BIT) {
+            return true;
+        }
+        List<String> tags = category;
+        if (tags != null) {
+            for (String tag : tags) {
+                if (CategoryDictionary.lookup(tag) == id) {
+                    return true;
+                }
+            }
+        }
+        return false;
     }
 
     /**
@@ -0,0 +1,21 @@
+/**
+ * Callback for structures that index FoodItems by rating (such as the ranked Trie) and need to be told
+ * when a vote or setRating changes an item's rating, or when its categories are replaced.
+ */
+public interface FoodItemListener {
+
+    /**
+     * Called after the rating of the given item has changed.
+     *
+     * @param item the food item whose rating changed
+     */
+    void ratingChanged(FoodItem item);
+
+    /**
+     * Called after the categories of the given item have been replaced.
+     *
+     * @param item the food item whose categories changed
+     */
+    default void categoryChanged(FoodItem item) {
+    }
+}
@@ -0,0 +1,140 @@
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A live ranking of FoodItems in FoodComparator order (highest rating first, then by name).
+ * Each item is stored as an entry that remembers the rating and name it was ranked with, so when a vote
+ * changes the item the old entry can still be found and replaced in O(log n).
+ *
+ * update() only marks the item stale, without locking, so voters never wait for the ranking or each other. Every read
+ * first moves the stale items under the lock, once each however many votes they got.
+ */
+public class FoodRanking {
+
+    /** Ordering of entries: same rule as FoodComparator, then insertion order so equal items can coexist. */
+    private static final Comparator<Entry> ENTRY_ORDER = Comparator
+            .comparingInt((Entry e) -> -e.rating())
+            .thenComparing(Entry::name, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparingLong(Entry::sequence);
+
+    private final TreeSet<Entry> ranked;
+    private final Map<FoodItem, Entry> entries;
+    /** Items voted on since the last read; added to without the lock. */
+    private final Set<FoodItem> staleItems = ConcurrentHashMap.newKeySet();
+    private long nextSequence;
+
+    /**
+     * Creates an empty ranking.
+     */
+    public FoodRanking() {
+        ranked = new TreeSet<>(ENTRY_ORDER);
+        entries = new IdentityHashMap<>();
+    }
+
+    /**
+     * Adds an item to the ranking. Adding an item that is already ranked just re-ranks it.
+     * @param item The item to add.
+     */
+    public synchronized void add(FoodItem item) {
+        Entry old = entries.get(item);
+        long sequence = old != null ? old.sequence() : nextSequence++;
+        if (old != null) {
+            ranked.remove(old);
+        }
+        Entry entry = new Entry(item, item.getRating(), item.getName(), sequence);
+        entries.put(item, entry);
+        ranked.add(entry);
+    }
+
+    /**
+     * Removes an item from the ranking.
+     * @param item The item to remove.
+     * @return true if the item was ranked.
+     */
+    public synchronized boolean remove(FoodItem item) {
+        Entry old = entries.remove(item);
+        if (old == null) {
+            return false;
+        }
+        ranked.remove(old);
+        return true;
+    }
+
+    /**
+     * Moves an item to the position matching its current rating, as seen by the next read. Items that are not ranked
+     * are ignored. Safe to call from any thread, and does not lock.
+     * @param item The item whose rating changed.
+     */
+    public void update(FoodItem item) {
+        if (!staleItems.contains(item)) { // an item that is already stale costs voters one read
+            staleItems.add(item);
+        }
+    }
+
+    /**
+     * Re-ranks every item updated since the last read. Called with the lock held.
+     */
+    private void repairStale() {
+        for (Iterator<FoodItem> it = staleItems.iterator(); it.hasNext(); ) {
+            FoodItem item = it.next();
+            it.remove(); // before re-ranking, so a vote during it marks the item again
+            if (entries.containsKey(item)) {
+                add(item);
+            }
+        }
+    }
+
+    /**
+     * Returns the best k items, best first.
+     * @param k Number of items to return.
+     * @return Up to k items.
+     */
+    public synchronized List<FoodItem> top(int k) {
+        repairStale();
+        List<FoodItem> result = new ArrayList<>(Math.max(0, Math.min(k, ranked.size())));
+        Iterator<Entry> it = ranked.iterator();
+        while (result.size() < k && it.hasNext()) {
+            result.add(it.next().item());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the best item.
+     * @return The highest ranked item, or null if the ranking is empty.
+     */
+    public synchronized FoodItem first() {
+        repairStale();
+        return ranked.isEmpty() ? null : ranked.first().item();
+    }
+
+    /**
+     * Returns the number of ranked items.
+     * @return The size of the ranking.
+     */
+    public synchronized int size() {
+        return ranked.size();
+    }
+
+    /**
+     * Removes every item from the ranking.
+     */
+    public synchronized void clear() {
+        ranked.clear();
+        entries.clear();
+        staleItems.clear();
+    }
+
+    /**
+     * The rating and name an item had when it was last ranked.
+     */
+    private record Entry(FoodItem item, int rating, String name, long sequence) {
+    }
+}
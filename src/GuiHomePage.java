@@ -4,20 +4,39 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
 
 public class GuiHomePage extends JPanel {
 
     private static final Color CornSilkBgColor = new Color(255, 245, 238);
     private static final Color ButtonColor = new Color(255, 155, 0);
     private static final Color ButtonHoovering = new Color(255, 69, 0);
+    private static final Color PlaceholderColor = new Color(245, 228, 215);
+    private static final int ImageWidth = 500;
+    private static final int ImageHeight = 700;
+
+    private final CompletableFuture<Void> imagesReady;
+    private Runnable firstPaintListener;
+    private boolean painted = false;
+
+    /**
+     * Constructs the home page, decoding and scaling its pictures on a background thread without a disk cache.
+     * @param startButtonListener : The ActionListener to handle start button clicks.
+     */
+    public GuiHomePage(ActionListener startButtonListener) {
+        this(startButtonListener, new ImagePipeline(null, task -> Thread.ofVirtual().start(task)));
+    }
 
     /**
      * Constructs the home page panel with a welcome message, images, and a start button.
      * Sets up the layout, styles, and adds the provided action listener to the button.
+     * The pictures are loaded by the pipeline in the background; placeholders of the same size hold their place
+     * until they are ready, so the page can be shown right away and does not move when they appear.
      * @param startButtonListener : The ActionListener to handle start button clicks.
+     * @param images : Loads the pictures.
      */
-
-    public GuiHomePage(ActionListener startButtonListener) {
+    public GuiHomePage(ActionListener startButtonListener, ImagePipeline images) {
         setLayout(new BorderLayout());
         setBackground(CornSilkBgColor);
 
@@ -54,10 +73,11 @@ public class GuiHomePage extends JPanel {
         imagePanel.setOpaque(false);
 
 
-        ImageIcon leftIcon = getScaledIcon("res/JosephRegretting.png", 500, 700);
-        ImageIcon rightIcon = getScaledIcon("res/JosephHappy.png", 500, 700);
-        JLabel leftPic = new JLabel(leftIcon);
-        JLabel rightPic = new JLabel(rightIcon);
+        JLabel leftPic = new JLabel(placeholder());
+        JLabel rightPic = new JLabel(placeholder());
+        imagesReady = CompletableFuture.allOf(
+                showWhenLoaded(images.load(Path.of("res/JosephRegretting.png"), ImageWidth, ImageHeight), leftPic),
+                showWhenLoaded(images.load(Path.of("res/JosephHappy.png"), ImageWidth, ImageHeight), rightPic));
 
        
         JLabel arrow = new JLabel("➔");
@@ -89,25 +109,64 @@ public class GuiHomePage extends JPanel {
     }
 
     /**
-     * Loads and scales an image from the specified file path to the given dimensions.
-     * @param path : path The file path to the image.
-     * @param width : width The desired image width in pixels.
-     * @param height : The desired image height in pixels.
-     * @return ImageIcon The scaled image icon.
+     * Tells when both pictures are on screen (or have failed to load and stay placeholders).
+     * @return A future completed on the EDT once the pictures have been shown.
      */
+    public CompletableFuture<Void> getImagesReady() {
+        return imagesReady;
+    }
 
+    /**
+     * Sets a listener to run once, on the EDT, right after the page is painted for the first time.
+     * @param listener : The listener, such as one that records the time to the first frame.
+     */
+    public void setFirstPaintListener(Runnable listener) {
+        firstPaintListener = listener;
+    }
 
-    private ImageIcon getScaledIcon(String path, int width, int height) {
-        ImageIcon icon = new ImageIcon(path);
-        if (icon.getIconWidth() > 0 && icon.getIconHeight() > 0) {
-            Image img = icon.getImage().getScaledInstance(width, height, Image.SCALE_SMOOTH);
-            return new ImageIcon(img);
-        } else {
-            BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-            return new ImageIcon(img);
+    @Override
+    public void paint(Graphics g) {
+        super.paint(g);
+        if (!painted) {
+            painted = true;
+            if (firstPaintListener != null) {
+                firstPaintListener.run();
+            }
         }
     }
 
+    /**
+     * Creates a plain icon the size of a picture, shown until the picture is ready.
+     * @return ImageIcon The placeholder.
+     */
+    private static ImageIcon placeholder() {
+        BufferedImage img = new BufferedImage(ImageWidth, ImageHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = img.createGraphics();
+        g.setColor(PlaceholderColor);
+        g.fillRect(0, 0, ImageWidth, ImageHeight);
+        g.dispose();
+        return new ImageIcon(img);
+    }
+
+    /**
+     * Puts a picture into its label once it is loaded. If it cannot be loaded the placeholder stays.
+     * @param image : The picture being loaded.
+     * @param label : The label holding its placeholder.
+     * @return A future completed on the EDT after the label was updated.
+     */
+    private static CompletableFuture<Void> showWhenLoaded(CompletableFuture<BufferedImage> image, JLabel label) {
+        CompletableFuture<Void> shown = new CompletableFuture<>();
+        image.whenComplete((img, error) -> SwingUtilities.invokeLater(() -> {
+            if (img != null) {
+                label.setIcon(new ImageIcon(img));
+            } else {
+                error.printStackTrace();
+            }
+            shown.complete(null);
+        }));
+        return shown;
+    }
+
     /**
      * Creates a modern-styled JButton with custom colors, font, and hover effects.
      * The button is styled for a consistent look and feel throughout the UI.
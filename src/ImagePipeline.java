@@ -0,0 +1,147 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import javax.imageio.ImageIO;
+
+/**
+ * Decodes and scales images off the event dispatch thread, keeping the scaled results on disk.
+ *
+ * A scaled image is cached under a name made of the SHA-256 of the source file and the target size, so an edited
+ * picture or a new size never picks up a stale copy, and an unchanged one is read back already scaled instead of
+ * being decoded at full size and scaled again. Cache files are written to a temporary file and moved into place, so a
+ * crash never leaves half an image behind. If the cache cannot be read or written the image is still returned.
+ */
+public class ImagePipeline {
+    private final Path cacheDirectory;
+    private final Executor executor;
+
+    /**
+     * Creates a pipeline.
+     * @param cacheDirectory Where scaled images are kept; created when first needed. Null for no disk cache.
+     * @param executor Runs the decoding and scaling.
+     */
+    public ImagePipeline(Path cacheDirectory, Executor executor) {
+        this.cacheDirectory = cacheDirectory;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts loading an image scaled to the given size.
+     * @param source The image file.
+     * @param width The width to scale to, in pixels.
+     * @param height The height to scale to, in pixels.
+     * @return The scaled image once it is ready; completes exceptionally if the source cannot be read or decoded.
+     */
+    public CompletableFuture<BufferedImage> load(Path source, int width, int height) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return loadNow(source, width, height);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Loads an image scaled to the given size on the calling thread: from the cache if it is there, otherwise by
+     * decoding and scaling the source and then caching the result.
+     * @param source The image file.
+     * @param width The width to scale to, in pixels.
+     * @param height The height to scale to, in pixels.
+     * @return The scaled image.
+     * @throws IOException If the source cannot be read or is not an image.
+     */
+    BufferedImage loadNow(Path source, int width, int height) throws IOException {
+        byte[] bytes = Files.readAllBytes(source);
+        Path cached = cacheDirectory == null ? null : cacheDirectory.resolve(cacheName(bytes, width, height));
+        if (cached != null && Files.exists(cached)) {
+            try {
+                BufferedImage image = ImageIO.read(cached.toFile());
+                if (image != null && image.getWidth() == width && image.getHeight() == height) {
+                    return image;
+                }
+            } catch (IOException e) {
+                // unreadable cache entry: scale again and overwrite it
+            }
+        }
+        BufferedImage original = ImageIO.read(new ByteArrayInputStream(bytes));
+        if (original == null) {
+            throw new IOException("Not an image: " + source);
+        }
+        BufferedImage scaled = scale(original, width, height);
+        if (cached != null) {
+            store(scaled, cached);
+        }
+        return scaled;
+    }
+
+    /**
+     * Scales an image in one pass with bicubic interpolation, which is close to SCALE_SMOOTH for factors above one
+     * half and many times faster than its area averaging.
+     * @param image The image to scale.
+     * @param width The new width.
+     * @param height The new height.
+     * @return A new image of the given size.
+     */
+    static BufferedImage scale(BufferedImage image, int width, int height) {
+        int type = image.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage scaled = new BufferedImage(width, height, type);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    /**
+     * Names the cache file of a source scaled to a size.
+     * @param source The bytes of the source file.
+     * @param width The target width.
+     * @param height The target height.
+     * @return A file name such as "3f2a…-500x700.png".
+     */
+    static String cacheName(byte[] source, int width, int height) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(source);
+            return HexFormat.of().formatHex(hash) + "-" + width + "x" + height + ".png";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    private void store(BufferedImage image, Path target) {
+        try {
+            Files.createDirectories(target.getParent());
+            Path temporary = Files.createTempFile(target.getParent(), "scaling", ".tmp");
+            try {
+                ImageIO.write(image, "png", temporary.toFile());
+                try {
+                    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // the image is still shown, just scaled again next time
+        }
+    }
+}
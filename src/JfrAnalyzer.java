@@ -0,0 +1,213 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jdk.jfr.EventType;
+import jdk.jfr.ValueDescriptor;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Reads a flight recording and prints how long each phase of JfrEvents took: how often it ran, its total time and
+ * latency percentiles, and how many items and bytes it handled.
+ *
+ * A phase is one event type, split by what kind of work it was where the event says so (the source of a load or a
+ * parse, the kind of search, the component laid out). Time an event records inside itself, such as the network wait
+ * of a parse, is reported as a row of its own, so a slow load can be told apart into waiting and parsing.
+ * Phases nest (a load includes its fetch and parse), so their totals do not add up to the recording's length.
+ *
+ * Usage: java JfrAnalyzer recording.jfr
+ */
+public class JfrAnalyzer {
+    private static final String PREFIX = "cafemac.";
+    private static final List<String> QUALIFIERS = List.of("source", "kind", "component");
+    private static final String TIMESPAN = "jdk.jfr.Timespan";
+    private static final String DATA_AMOUNT = "jdk.jfr.DataAmount";
+
+    private JfrAnalyzer() {
+    }
+
+    /**
+     * Reads every Cafe Mac event of a recording.
+     * @param recording The .jfr file.
+     * @return The phases, in the order they first appear.
+     * @throws IOException If the file cannot be read or is not a recording.
+     */
+    public static Report analyze(Path recording) throws IOException {
+        Map<String, Phase> phases = new LinkedHashMap<>();
+        try (RecordingFile file = new RecordingFile(recording)) {
+            while (file.hasMoreEvents()) {
+                RecordedEvent event = file.readEvent();
+                EventType type = event.getEventType();
+                if (!type.getName().startsWith(PREFIX)) {
+                    continue;
+                }
+                String name = phaseName(event, type);
+                Phase phase = phases.computeIfAbsent(name, k -> new Phase());
+                phase.add(event.getDuration().toNanos());
+                for (ValueDescriptor field : type.getFields()) {
+                    if (TIMESPAN.equals(field.getContentType()) && !field.getName().equals("duration")) {
+                        Duration inner = event.getDuration(field.getName());
+                        phases.computeIfAbsent(name + ": " + label(field), k -> new Phase()).add(inner.toNanos());
+                    } else if (DATA_AMOUNT.equals(field.getContentType())) {
+                        phase.bytes += event.getLong(field.getName());
+                    } else if (field.getName().equals("itemCount")) {
+                        phase.items += event.getInt(field.getName());
+                    }
+                }
+            }
+        }
+        return new Report(phases);
+    }
+
+    private static String phaseName(RecordedEvent event, EventType type) {
+        String name = type.getLabel() != null ? type.getLabel() : type.getName().substring(PREFIX.length());
+        for (String qualifier : QUALIFIERS) {
+            if (event.hasField(qualifier) && event.getString(qualifier) != null) {
+                return name + " (" + event.getString(qualifier) + ")";
+            }
+        }
+        return name;
+    }
+
+    private static String label(ValueDescriptor field) {
+        return (field.getLabel() != null ? field.getLabel() : field.getName()).toLowerCase();
+    }
+
+    /**
+     * The durations and totals of one phase.
+     */
+    private static final class Phase {
+        long[] nanos = new long[16];
+        int count;
+        long items;
+        long bytes;
+
+        void add(long duration) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = duration;
+        }
+    }
+
+    /**
+     * The per-phase breakdown of a recording.
+     */
+    public static final class Report {
+        private final Map<String, Phase> phases;
+
+        Report(Map<String, Phase> phases) {
+            this.phases = phases;
+            for (Phase phase : phases.values()) {
+                phase.nanos = Arrays.copyOf(phase.nanos, phase.count);
+                Arrays.sort(phase.nanos);
+            }
+        }
+
+        /**
+         * Returns the phases that were recorded, such as "Search (prefix)" or "Parse (network): network wait".
+         * @return The phase names, in the order they first appear.
+         */
+        public List<String> getPhases() {
+            return new ArrayList<>(phases.keySet());
+        }
+
+        /**
+         * Returns how many times a phase ran.
+         * @param phase The phase name.
+         * @return The count, 0 if it was not recorded.
+         */
+        public int getCount(String phase) {
+            Phase recorded = phases.get(phase);
+            return recorded == null ? 0 : recorded.count;
+        }
+
+        /**
+         * Returns the time spent in a phase.
+         * @param phase The phase name.
+         * @return The total in nanoseconds.
+         */
+        public long getTotalNanos(String phase) {
+            Phase recorded = phases.get(phase);
+            return recorded == null ? 0 : Arrays.stream(recorded.nanos).sum();
+        }
+
+        /**
+         * Returns a latency percentile of a phase (exact, from every event).
+         * @param phase The phase name.
+         * @param percent Between 0 and 100.
+         * @return The latency in nanoseconds, or 0 if the phase was not recorded.
+         */
+        public long percentile(String phase, double percent) {
+            Phase recorded = phases.get(phase);
+            if (recorded == null || recorded.count == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100 * recorded.count) - 1;
+            return recorded.nanos[Math.max(0, Math.min(recorded.count - 1, rank))];
+        }
+
+        /**
+         * Returns the items a phase handled: found by searches, parsed from pages, indexed, and so on.
+         * @param phase The phase name.
+         * @return The sum over its events.
+         */
+        public long getItems(String phase) {
+            Phase recorded = phases.get(phase);
+            return recorded == null ? 0 : recorded.items;
+        }
+
+        /**
+         * Returns the bytes a phase handled, such as the size of the pages parsed.
+         * @param phase The phase name.
+         * @return The sum over its events.
+         */
+        public long getBytes(String phase) {
+            Phase recorded = phases.get(phase);
+            return recorded == null ? 0 : recorded.bytes;
+        }
+
+        @Override
+        public String toString() {
+            List<String> names = getPhases();
+            names.sort((a, b) -> Long.compare(getTotalNanos(b), getTotalNanos(a)));
+            int width = 5;
+            for (String name : names) {
+                width = Math.max(width, name.length());
+            }
+            StringBuilder report = new StringBuilder(String.format("%-" + width + "s %7s %10s %9s %9s %9s %9s %10s%n",
+                    "phase", "count", "total ms", "p50 ms", "p99 ms", "max ms", "items", "bytes"));
+            for (String name : names) {
+                report.append(String.format("%-" + width + "s %7d %10.2f %9.3f %9.3f %9.3f %9d %10d%n", name,
+                        getCount(name), getTotalNanos(name) / 1e6, percentile(name, 50) / 1e6,
+                        percentile(name, 99) / 1e6, percentile(name, 100) / 1e6, getItems(name), getBytes(name)));
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * Prints the per-phase breakdown of a recording.
+     * @param args The .jfr file.
+     * @throws IOException If the file cannot be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java JfrAnalyzer recording.jfr");
+            System.exit(2);
+        }
+        Report report = analyze(Paths.get(args[0]));
+        if (report.getPhases().isEmpty()) {
+            System.out.println("No Cafe Mac events; record with -XX:StartFlightRecording:settings=res/cafemac.jfc");
+        } else {
+            System.out.print(report);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for the phases of loading and using a menu: downloading the page, parsing it, building
+ * the search index, searching, ranking and laying out the window. Each carries the phase's duration and what it
+ * worked on (items, bytes), so a recording shows where a slow load spent its time.
+ *
+ * Every event is disabled unless a recording turns it on, as res/cafemac.jfc does:
+ *
+ *     java -XX:StartFlightRecording:settings=res/cafemac.jfc,filename=cafemac.jfr MainApp
+ *     java JfrAnalyzer cafemac.jfr
+ *
+ * While disabled, an event costs a field check: call sites create it, begin() and end() it, and only fill in and
+ * commit it when shouldCommit() says a recording wants it, and the JIT removes the unused object.
+ */
+public final class JfrEvents {
+    private static final String CATEGORY = "Cafe Mac";
+
+    private JfrEvents() {
+    }
+
+    /**
+     * One MenuCache.load: the menu handed to the app, from wherever it came.
+     */
+    @Name("cafemac.MenuLoad")
+    @Label("Menu Load")
+    @Category(CATEGORY)
+    @Description("Getting the menu, from the cache or the website, including parsing it")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class MenuLoad extends Event {
+        @Label("Source")
+        @Description("fresh cache, stale cache (revalidated in the background) or network")
+        String source;
+
+        @Label("Items")
+        int itemCount;
+    }
+
+    /**
+     * One request to the menu website, up to its response headers.
+     */
+    @Name("cafemac.Fetch")
+    @Label("Fetch")
+    @Category(CATEGORY)
+    @Description("Sending a (conditional) request for the menu page and waiting for the response headers")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Fetch extends Event {
+        @Label("URL")
+        String url;
+
+        @Label("Status")
+        int status;
+    }
+
+    /**
+     * One parse of a menu page. A downloaded page is parsed while it streams in, so the time spent waiting for the
+     * network is recorded separately and the rest is Jsoup's.
+     */
+    @Name("cafemac.Parse")
+    @Label("Parse")
+    @Category(CATEGORY)
+    @Description("Parsing a menu page with Jsoup, while it downloads or from the cache file")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Parse extends Event {
+        @Label("Source")
+        String source;
+
+        @Label("Page Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Items")
+        int itemCount;
+
+        @Label("Network Wait")
+        @Description("Time spent blocked reading the response body")
+        @Timespan(Timespan.NANOSECONDS)
+        long networkWait;
+    }
+
+    /**
+     * One AutoComplete.addMenuItems: a new generation of the search index.
+     */
+    @Name("cafemac.IndexBuild")
+    @Label("Index Build")
+    @Category(CATEGORY)
+    @Description("Building the next generation of the search index")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class IndexBuild extends Event {
+        @Label("Menu Items")
+        @Description("Items of the menu that was added")
+        int menuItems;
+
+        @Label("Indexed Items")
+        @Description("Items in the new index, including those already indexed")
+        int itemCount;
+
+        @Label("Generation")
+        long generation;
+    }
+
+    /**
+     * One search of the index.
+     */
+    @Name("cafemac.Search")
+    @Label("Search")
+    @Category(CATEGORY)
+    @Description("Searching the index for a query")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Search extends Event {
+        @Label("Kind")
+        @Description("prefix, typed, top, fuzzy, words or substring")
+        String kind;
+
+        @Label("Query Length")
+        int queryLength;
+
+        @Label("Results")
+        int itemCount;
+    }
+
+    /**
+     * One read of the best rated items.
+     */
+    @Name("cafemac.Rank")
+    @Label("Rank")
+    @Category(CATEGORY)
+    @Description("Taking the top k items of the menu's ranking")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Rank extends Event {
+        @Label("Ranked Items")
+        int rankedItems;
+
+        @Label("K")
+        int k;
+
+        @Label("Results")
+        int itemCount;
+    }
+
+    /**
+     * One layout pass of the window.
+     */
+    @Name("cafemac.Layout")
+    @Label("Layout")
+    @Category(CATEGORY)
+    @Description("Laying out the window's components after they changed")
+    @Enabled(false)
+    @StackTrace(false)
+    static final class Layout extends Event {
+        @Label("Component")
+        String component;
+
+        @Label("Menu Rows")
+        int itemCount;
+    }
+
+    /**
+     * Ends a search event and commits it if a recording is taking search events.
+     * @param event The event begun before the search.
+     * @param kind What kind of search it was.
+     * @param query The query, or null.
+     * @param results The number of items found.
+     */
+    static void commitSearch(Search event, String kind, String query, int results) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.kind = kind;
+            event.queryLength = query == null ? 0 : query.length();
+            event.itemCount = results;
+            event.commit();
+        }
+    }
+}
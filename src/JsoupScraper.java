@@ -1,13 +1,16 @@
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.HashSet;
+import java.io.Reader;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.List;
-import java.util.Set;
 
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
 import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
 
 
 /**
@@ -16,6 +19,15 @@ import org.jsoup.select.Elements;
  */
 public class JsoupScraper {
     private static final String MENU_URL = "https://macalester.cafebonappetit.com/";
+    /** Selectors and the extraction plan are compiled once and shared by every parse. */
+    private static final Evaluator DAYPART = QueryParser.parse("section.panel.s-wrapper.site-panel--daypart");
+    private static final MenuExtractor EXTRACTOR = new MenuExtractor(JsoupScraper::getCategoryFromLabel);
+
+    /** The menu changes a few times a day at most, so a page younger than 15 minutes is used without asking the server,
+     *  and one younger than 6 hours more is shown right away while it is revalidated in the background. */
+    private static final MenuCache CACHE = new MenuCache(MENU_URL,
+            Paths.get(System.getProperty("user.home"), ".cafemac", "http-cache"),
+            Duration.ofMinutes(15), Duration.ofHours(6));
 
 
     /**
@@ -26,65 +38,100 @@ public class JsoupScraper {
     * @return A populated Menu object (or empty if scraping fails).
     */
     public static Menu scrapeMenu() {
-        Menu menu = new Menu();
-        try {
-            Document doc = Jsoup.connect(MENU_URL).get();
-    
-            Elements mealSections = doc.select("section.panel.s-wrapper.site-panel--daypart");
-            if (mealSections.isEmpty()) { // handles the case when meal sections are empty. This happens sometimes, and so we don’t want the program to crash
-                System.err.println("No meal sections found.");
-                return menu;
-            }
-
-            for (Element meal : mealSections) {
-                String mealTime = meal.attr("data-jump-nav-title").toUpperCase(); // This would get the meal time. Uses defensive programming to deal with the case when the user enters letter of different format from what is on the menu
-
-                Element specialsTab = meal.select("button:contains(" + mealTime + " Specials)").first(); // get the "Specials" tab button (Lunch Specials or Dinner Specials). This is the unique food on a given day. All the other food is repetitive
-               
-                if (specialsTab != null) {
-                    String tabContentId = specialsTab.attr("aria-controls");// the special Items tab has a special id, that when you click on it, it views the content of the tab. The content of the tab is a div, and the id is the one we fetched from the button.
-    
-                    Elements specialsContent = meal.select("div#" + tabContentId);// fetch the content under the 'Specials' tab. the content is stored in a div, and the id is the one we fetched from the button.
-    
-                    Elements items = specialsContent.select("div.site-panel__daypart-item");// extract food items in the Specials section
-                 
-                    for (Element item : items) {
-                        Element nameElement = item.selectFirst("button.h4.site-panel__daypart-item-title");
-                        String name = nameElement != null ? nameElement.text().trim() : "Unknown Item";
-                        
-                        List<String> itemLabels = new ArrayList<>();
+        return scrapeMenu((mealType, items) -> { });
+    }
 
-                        Elements labels = item.select("img[alt]");
-                        
-                        Set<String> addedCategories = new HashSet<>();
-                        Set<String> addedFoodItems = new HashSet<>();
-    
-                        for (Element label : labels) {
-                            String labelText = label.attr("alt").toLowerCase();// the dietary categories are found inside the 'alt' text
-                            System.out.println("Label text: " + labelText);
+    /**
+    * scrapes the menu like scrapeMenu(), handing each meal to the listener as soon as its section is parsed.
+    * Stops early (returning what was parsed so far) if the calling thread is interrupted, which is how a running load is cancelled.
+    *
+    * @param listener Receives every meal that contained items, in page order.
+    * @return A populated Menu object (or empty if scraping fails).
+    */
+    public static Menu scrapeMenu(MealListener listener) {
+        try {
+            return CACHE.load(listener);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return new Menu();
+        }
+    }
 
-                            String itemCategory = getCategoryFromLabel(labelText);
+    /**
+    * parses a downloaded menu page into a Menu object, handing each meal to the listener as soon as its section is parsed.
+    *
+    * @param doc The parsed Cafe Mac page.
+    * @param listener Receives every meal that contained items, in page order.
+    * @return A populated Menu object (empty if the page has no meal sections).
+    */
+    public static Menu parseMenu(Document doc, MealListener listener) {
+        Menu menu = new Menu();
+        Elements mealSections = doc.select(DAYPART);
+        if (mealSections.isEmpty()) { // handles the case when meal sections are empty. This happens sometimes, and so we don’t want the program to crash
+            System.err.println("No meal sections found.");
+            return menu;
+        }
 
-                            if (itemCategory != null) {
-                                itemLabels.add(itemCategory);
+        for (Element meal : mealSections) {
+            if (Thread.currentThread().isInterrupted()) {
+                return menu;
+            }
+            parseMeal(meal, menu, listener);
+        }
+        return menu;
+    }
 
-                                if (!addedFoodItems.contains(name)) { // fixed the problem that some items were added twice for each meal
-                                    FoodItem foodItem = new FoodItem(name, itemLabels);
-                                    menu.addFoodItem(mealTime, foodItem);
-                                    addedCategories.add(itemCategory);  // this would mark this category as added
-                                    addedFoodItems.add(name);  // Track that this item has been added
-                                }
-                            }
-                        }
-                    }
+    /**
+    * parses a menu page while it is still being read, instead of building the whole document first.
+    * Each meal section is handed over as soon as its closing tag has been read, and is then removed from the tree,
+    * so memory use is bounded by one meal section rather than the whole page (most of which is unrelated markup).
+    *
+    * @param html The page, as it arrives (from the network or the cache file).
+    * @param baseUri The page address, used to resolve relative links.
+    * @param listener Receives every meal that contained items, in page order.
+    * @return A populated Menu object (empty if the page has no meal sections).
+    * @throws IOException If reading the page fails.
+    */
+    public static Menu parseMenu(Reader html, String baseUri, MealListener listener) throws IOException {
+        Menu menu = new Menu();
+        boolean foundMeal = false;
+        try (StreamParser streamer = new StreamParser(Parser.htmlParser()).parse(html, baseUri)) {
+            Element meal;
+            while ((meal = streamer.selectNext(DAYPART)) != null) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return menu;
                 }
+                foundMeal = true;
+                parseMeal(meal, menu, listener);
+                meal.remove(); // the section is done; drop it so the parsed tree never holds more than one
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+        }
+        if (!foundMeal) {
+            System.err.println("No meal sections found.");
         }
         return menu;
     }
 
+    /**
+    * parses one meal section: finds its "Specials" tab and adds the labelled items in it to the menu.
+    *
+    * @param meal The meal section element.
+    * @param menu The menu to add the items to.
+    * @param listener Receives the meal if it contained items.
+    */
+    private static void parseMeal(Element meal, Menu menu, MealListener listener) {
+        String mealTime = meal.attr("data-jump-nav-title").toUpperCase(); // This would get the meal time. Uses defensive programming to deal with the case when the user enters letter of different format from what is on the menu
+
+        // only items under the "Specials" tab (Lunch Specials or Dinner Specials) are kept. This is the unique food on a given day. All the other food is repetitive
+        for (FoodItem item : EXTRACTOR.extractSpecials(meal, mealTime)) {
+            menu.addFoodItem(mealTime, item);
+        }
+        List<FoodItem> mealItems = menu.getMenuForMeal(mealTime);
+        if (!mealItems.isEmpty()) {
+            listener.mealLoaded(mealTime, mealItems); // already a copy
+        }
+    }
+
     /**
      * Helper method to convert label alt text into category names that would be provided later for each FoodItem object.
      * 
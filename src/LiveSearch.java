@@ -0,0 +1,210 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * Runs search-as-you-type off the Swing event dispatch thread.
+ *
+ * Each change of the query starts a virtual thread that waits out the debounce delay and then searches. A newer
+ * query interrupts the older one: while it is still waiting it never searches, and if it has already searched its
+ * results are dropped, both before and after they are queued for the UI. So only the latest query ever reaches the
+ * listener, which is run on the UI executor (the EDT in the app).
+ *
+ * The time from the last keystroke to the results being painted is recorded for every search that is shown. It is
+ * measured by a task queued on the UI executor once the listener has run, behind the repaint the listener requested.
+ */
+public class LiveSearch {
+
+    /**
+     * Receives the results of the latest query on the UI thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called with the results of the latest query, once the typing has paused.
+         *
+         * @param query the query that was searched
+         * @param results the items found
+         */
+        void resultsReady(String query, List<FoodItem> results);
+    }
+
+    private final Function<String, List<FoodItem>> search;
+    private final Executor uiExecutor;
+    private final long debounceMillis;
+    private final Listener listener;
+    private final ExecutorService workers;
+    private final Latency latency = new Latency(1024);
+    private Future<?> running;
+    private long generation;
+
+    /**
+     * Creates a live search.
+     *
+     * @param search looks up a query; called on a background thread
+     * @param uiExecutor where the listener is run
+     * @param debounceMillis how long the query must stay unchanged before it is searched
+     * @param listener receives the results
+     */
+    public LiveSearch(Function<String, List<FoodItem>> search, Executor uiExecutor, long debounceMillis,
+            Listener listener) {
+        this.search = search;
+        this.uiExecutor = uiExecutor;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.workers = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Reports that the query changed (called on every keystroke). It is searched once it has not changed for the
+     * debounce delay, unless it changes again first.
+     *
+     * @param query the text typed so far
+     */
+    public synchronized void queryChanged(String query) {
+        start(query, debounceMillis);
+    }
+
+    /**
+     * Searches the query right away, as when the Search button is pressed.
+     *
+     * @param query the text to search
+     */
+    public synchronized void searchNow(String query) {
+        start(query, 0);
+    }
+
+    private void start(String query, long delayMillis) {
+        long typedAt = System.nanoTime();
+        cancel();
+        long searchGeneration = generation;
+        running = workers.submit(() -> {
+            try {
+                if (delayMillis > 0) {
+                    Thread.sleep(delayMillis);
+                }
+            } catch (InterruptedException e) {
+                return; // superseded while waiting
+            }
+            if (!isCurrent(searchGeneration)) {
+                return;
+            }
+            List<FoodItem> results = search.apply(query);
+            publish(searchGeneration, typedAt, query, results);
+        });
+    }
+
+    /**
+     * Stops the pending search, if any; its results are never shown.
+     */
+    public synchronized void cancel() {
+        generation++;
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+    }
+
+    /**
+     * Returns the keystroke-to-paint latencies recorded so far.
+     *
+     * @return the recorder
+     */
+    public Latency getLatency() {
+        return latency;
+    }
+
+    /**
+     * Hands results to the listener unless a newer query came in, then records the latency once the UI has caught up.
+     */
+    private void publish(long searchGeneration, long typedAt, String query, List<FoodItem> results) {
+        if (Thread.currentThread().isInterrupted() || !isCurrent(searchGeneration)) {
+            return;
+        }
+        uiExecutor.execute(() -> {
+            if (!isCurrent(searchGeneration)) {
+                return;
+            }
+            listener.resultsReady(query, results);
+            uiExecutor.execute(() -> latency.record(System.nanoTime() - typedAt));
+        });
+    }
+
+    private synchronized boolean isCurrent(long searchGeneration) {
+        return generation == searchGeneration;
+    }
+
+    /**
+     * Keeps the most recent latency samples and summarizes them.
+     */
+    public static final class Latency {
+        private final long[] samples;
+        private long count;
+        private long max;
+
+        /**
+         * Creates a recorder.
+         *
+         * @param capacity how many of the latest samples the percentiles are computed from
+         */
+        public Latency(int capacity) {
+            samples = new long[capacity];
+        }
+
+        /**
+         * Records one sample.
+         *
+         * @param nanos the latency in nanoseconds
+         */
+        public synchronized void record(long nanos) {
+            samples[(int) (count % samples.length)] = nanos;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        /**
+         * Returns how many samples were recorded in total.
+         *
+         * @return the sample count
+         */
+        public synchronized long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the largest sample ever recorded.
+         *
+         * @return the latency in nanoseconds, or 0 if there are none
+         */
+        public synchronized long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns a percentile of the recent samples.
+         *
+         * @param percent between 0 and 100
+         * @return the latency in nanoseconds, or 0 if there are no samples
+         */
+        public synchronized long percentile(double percent) {
+            int size = (int) Math.min(count, samples.length);
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(samples, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percent / 100 * size) - 1;
+            return sorted[Math.max(0, Math.min(size - 1, rank))];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d searches, p50 %.1f ms, p95 %.1f ms, p99 %.1f ms, max %.1f ms", getCount(),
+                    percentile(50) / 1e6, percentile(95) / 1e6, percentile(99) / 1e6, getMax() / 1e6);
+        }
+    }
+}
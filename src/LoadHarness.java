@@ -0,0 +1,338 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A headless load test: N clients send a WorkloadGenerator stream of votes, searches, filters and top-k looks at a
+ * generated menu, through the same paths the app uses (FoodItem votes that the Menu rankings and the Trie follow,
+ * AutoComplete.topCompletions, Menu.getUniqueFoodItemsByCategory, Menu.getTopFoodItems), and the throughput and latency
+ * percentiles of each kind of operation are reported.
+ *
+ * With --http the same streams go through a MenuServer on a local port instead, each client holding one kept-alive
+ * connection and accepting gzip, so the numbers include the HTTP stack, JSON and compression.
+ *
+ * Each client gets its own stream, seeded from the run's seed and its number, and every stream is generated before
+ * the clock starts, so two runs with the same settings send exactly the same operations.
+ *
+ * By default clients send as fast as they can (closed loop), which measures the highest throughput. With a
+ * duration, each stream is replayed at the pace of its simulated timestamps, with the day compressed into that
+ * duration (open loop), so the meal rushes arrive as bursts; latency is then measured from when an operation was due,
+ * not from when it was sent, so a stall counts against every operation it delays.
+ *
+ * Usage: java LoadHarness [--items N] [--clients N] [--operations N per client] [--seed N] [--seconds N] [--http 1]
+ */
+public class LoadHarness {
+    private final int items;
+    private final int clients;
+    private final int operationsPerClient;
+    private final long seed;
+    private final long pacedMillis;
+    private final boolean http;
+
+    /**
+     * Configures a run.
+     * @param items Size of the generated menu.
+     * @param clients Number of concurrent clients, each on its own thread.
+     * @param operationsPerClient Operations each client sends.
+     * @param seed Seeds the menu and the streams.
+     * @param pacedMillis How long the simulated day is replayed over; 0 to send as fast as possible.
+     * @param http Whether to send the operations to a MenuServer over HTTP rather than calling the menu directly.
+     */
+    public LoadHarness(int items, int clients, int operationsPerClient, long seed, long pacedMillis, boolean http) {
+        if (items < 1 || clients < 1 || operationsPerClient < 1 || pacedMillis < 0) {
+            throw new IllegalArgumentException("Items, clients and operations must be positive");
+        }
+        this.items = items;
+        this.clients = clients;
+        this.operationsPerClient = operationsPerClient;
+        this.seed = seed;
+        this.pacedMillis = pacedMillis;
+        this.http = http;
+    }
+
+    /**
+     * Builds the menu and its index, runs every client to the end and collects the latencies.
+     * @return The results.
+     * @throws InterruptedException If interrupted while waiting for the clients.
+     * @throws IOException If the server cannot be started.
+     */
+    public Report run() throws InterruptedException, IOException {
+        Menu menu = WorkloadGenerator.generateMenu(items, seed);
+        FoodItem.applyVotes(new WorkloadGenerator(menu, seed).votes(items * 10)); // start from realistic ratings
+        AutoComplete autoComplete = new AutoComplete();
+        autoComplete.addMenuItems(menu);
+        MenuServer server = null;
+        if (http) {
+            server = new MenuServer(menu, autoComplete, new InetSocketAddress("localhost", 0), 50);
+            server.start();
+        }
+        URI base = server == null ? null : URI.create("http://localhost:" + server.getPort());
+
+        List<List<WorkloadGenerator.Operation>> streams = new ArrayList<>(clients);
+        long lastMillis = 1;
+        for (int c = 0; c < clients; c++) {
+            WorkloadGenerator generator = new WorkloadGenerator(menu, seed * 31 + c + 1);
+            List<WorkloadGenerator.Operation> stream = generator.next(operationsPerClient);
+            lastMillis = Math.max(lastMillis, stream.get(stream.size() - 1).atMillis());
+            streams.add(stream);
+        }
+        double nanosPerSimulatedMilli =
+                pacedMillis == 0 ? 0 : TimeUnit.MILLISECONDS.toNanos(pacedMillis) / (double) lastMillis;
+
+        long[][][] latencies = new long[clients][][];
+        CountDownLatch ready = new CountDownLatch(clients);
+        CountDownLatch start = new CountDownLatch(1);
+        long[] startedAt = new long[1];
+        List<RuntimeException> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int c = 0; c < clients; c++) {
+            int client = c;
+            Thread thread = new Thread(() -> {
+                ready.countDown();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                Target target = base == null ? localTarget(menu, autoComplete) : httpTarget(base);
+                try {
+                    latencies[client] = runClient(streams.get(client), target, startedAt[0], nanosPerSimulatedMilli);
+                } catch (RuntimeException e) {
+                    failures.add(e);
+                }
+            }, "load-client-" + c);
+            threads.add(thread);
+            thread.start();
+        }
+        ready.await();
+        startedAt[0] = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - startedAt[0];
+        if (server != null) {
+            server.stop();
+        }
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+        return new Report(elapsed, merge(latencies));
+    }
+
+    /**
+     * Carries out operations for one client.
+     */
+    private interface Target {
+        void send(WorkloadGenerator.Operation operation) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Calls the menu and the search index directly.
+     */
+    private static Target localTarget(Menu menu, AutoComplete autoComplete) {
+        return new Target() {
+            private long sink;
+
+            @Override
+            public void send(WorkloadGenerator.Operation operation) {
+                switch (operation.kind()) {
+                    case VOTE -> operation.item().addVotes(operation.delta());
+                    case SEARCH -> sink += autoComplete.topCompletions(operation.text(), 10).size();
+                    case FILTER -> sink += menu.getUniqueFoodItemsByCategory(operation.text()).size();
+                    case TOP -> sink += menu.getTopFoodItems(5).size();
+                }
+            }
+        };
+    }
+
+    /**
+     * Sends each operation as a request to a MenuServer, over one HTTP/1.1 connection that is kept alive.
+     */
+    private static Target httpTarget(URI base) {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        return operation -> {
+            HttpRequest.Builder request = HttpRequest.newBuilder().header("Accept-Encoding", "gzip");
+            switch (operation.kind()) {
+                case VOTE -> request.uri(base.resolve("/vote?name=" + encode(operation.item().getName()) + "&delta="
+                        + operation.delta())).POST(HttpRequest.BodyPublishers.noBody());
+                case SEARCH -> request.uri(base.resolve("/search?q=" + encode(operation.text())));
+                case FILTER -> request.uri(base.resolve("/category?name=" + encode(operation.text())));
+                case TOP -> request.uri(base.resolve("/top?k=5"));
+            }
+            HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                throw new IOException("HTTP " + response.statusCode() + " for " + response.uri());
+            }
+        };
+    }
+
+    private static String encode(String text) {
+        return URLEncoder.encode(text, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Sends one client's stream and returns its latencies in nanoseconds, one array per kind of operation.
+     */
+    private static long[][] runClient(List<WorkloadGenerator.Operation> stream, Target target, long startedAt,
+            double nanosPerSimulatedMilli) {
+        WorkloadGenerator.Kind[] kinds = WorkloadGenerator.Kind.values();
+        long[][] latencies = new long[kinds.length][stream.size()];
+        int[] counts = new int[kinds.length];
+        for (WorkloadGenerator.Operation operation : stream) {
+            long due = System.nanoTime();
+            if (nanosPerSimulatedMilli > 0) {
+                due = startedAt + (long) (operation.atMillis() * nanosPerSimulatedMilli);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+            try {
+                target.send(operation);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while sending", e);
+            }
+            int kind = operation.kind().ordinal();
+            latencies[kind][counts[kind]++] = System.nanoTime() - due;
+        }
+        for (int k = 0; k < kinds.length; k++) {
+            latencies[k] = Arrays.copyOf(latencies[k], counts[k]);
+        }
+        return latencies;
+    }
+
+    private static Map<WorkloadGenerator.Kind, long[]> merge(long[][][] latencies) {
+        Map<WorkloadGenerator.Kind, long[]> merged = new EnumMap<>(WorkloadGenerator.Kind.class);
+        for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) {
+            int size = 0;
+            for (long[][] client : latencies) {
+                size += client[kind.ordinal()].length;
+            }
+            long[] all = new long[size];
+            int at = 0;
+            for (long[][] client : latencies) {
+                long[] samples = client[kind.ordinal()];
+                System.arraycopy(samples, 0, all, at, samples.length);
+                at += samples.length;
+            }
+            Arrays.sort(all);
+            merged.put(kind, all);
+        }
+        return merged;
+    }
+
+    /**
+     * The results of a run: how long it took and every latency, sorted, per kind of operation.
+     */
+    public static final class Report {
+        private final long elapsedNanos;
+        private final Map<WorkloadGenerator.Kind, long[]> latencies;
+
+        Report(long elapsedNanos, Map<WorkloadGenerator.Kind, long[]> latencies) {
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        /**
+         * Returns how many operations of a kind were sent.
+         * @param kind The kind of operation.
+         * @return The count.
+         */
+        public int getCount(WorkloadGenerator.Kind kind) {
+            return latencies.get(kind).length;
+        }
+
+        /**
+         * Returns the operations completed per second, over all kinds.
+         * @return The throughput.
+         */
+        public double getThroughput() {
+            long total = 0;
+            for (long[] samples : latencies.values()) {
+                total += samples.length;
+            }
+            return total / (elapsedNanos / 1e9);
+        }
+
+        /**
+         * Returns a latency percentile of one kind of operation (exact, from every sample).
+         * @param kind The kind of operation.
+         * @param percent Between 0 and 100.
+         * @return The latency in nanoseconds, or 0 if none were sent.
+         */
+        public long percentile(WorkloadGenerator.Kind kind, double percent) {
+            long[] samples = latencies.get(kind);
+            if (samples.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100 * samples.length) - 1;
+            return samples[Math.max(0, Math.min(samples.length - 1, rank))];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder report = new StringBuilder(String.format("%.0f operations/s over %.2f s%n",
+                    getThroughput(), elapsedNanos / 1e9));
+            report.append(String.format("%-7s %9s %10s %10s %10s %10s %10s%n", "", "count", "p50 us", "p90 us",
+                    "p99 us", "p99.9 us", "max us"));
+            for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) {
+                report.append(String.format("%-7s %9d %10.1f %10.1f %10.1f %10.1f %10.1f%n", kind.name().toLowerCase(),
+                        getCount(kind), percentile(kind, 50) / 1e3, percentile(kind, 90) / 1e3,
+                        percentile(kind, 99) / 1e3, percentile(kind, 99.9) / 1e3, percentile(kind, 100) / 1e3));
+            }
+            return report.toString();
+        }
+    }
+
+    /**
+     * Runs a load test and prints the report.
+     * @param args See the class comment.
+     * @throws InterruptedException If interrupted.
+     */
+    public static void main(String[] args) throws InterruptedException, IOException {
+        int items = 1000;
+        int clients = Runtime.getRuntime().availableProcessors();
+        int operations = 100_000;
+        long seed = 1;
+        long seconds = 0;
+        boolean http = false;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            long value = Long.parseLong(args[i + 1]);
+            switch (args[i]) {
+                case "--items" -> items = (int) value;
+                case "--clients" -> clients = (int) value;
+                case "--operations" -> operations = (int) value;
+                case "--seed" -> seed = value;
+                case "--seconds" -> seconds = value;
+                case "--http" -> http = value != 0;
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        if (http && System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true"); // as MenuServer.main runs it
+        }
+        System.out.printf("%d items, %d clients, %d operations each, seed %d, %s%s%n", items, clients, operations, seed,
+                seconds == 0 ? "as fast as possible" : "a day replayed over " + seconds + " s", http ? ", over HTTP" : "");
+        LoadHarness harness = new LoadHarness(items, clients, operations, seed, TimeUnit.SECONDS.toMillis(seconds), http);
+        System.out.print(harness.run());
+    }
+}
@@ -9,9 +9,19 @@ import java.awt.Font;
 import java.awt.GridLayout;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
 import javax.swing.BorderFactory;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -21,7 +31,10 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 
 /**
@@ -35,17 +48,29 @@ public class MainApp {
     private CardLayout cardLayout;
     private Menu menu;
     private JLabel topItemLabel;
-    private JsoupScraper jsoupScraper;
-    private AutoComplete autoComplete;
+    private MenuLoader menuLoader;
+    private volatile AutoComplete autoComplete; // also read by the live search thread
+    private LiveSearch liveSearch;
     private JTextField searchTextField;
     private JButton searchButton;
+    private JButton loadMenuBtn;
     private JButton topFiveButton;
     private JLabel topFiveLabel;
+    private JPanel topFivePanel;
+    private List<FoodItem> shownTopFive = new ArrayList<>();
+    private MenuChangeBus changeBus;
     private static final Color MacOrange = new Color(0xFF8200);
     private static final Color MacBlue = new Color(0x003865);
     private static final Color BackgroundColor = new Color(252, 252, 252);
-    private JPanel menuPanel;
+    private MenuTable menuTable;
     private String currentCategory = null;
+    private VoteLog voteLog;
+    private static final long SearchDebounceMillis = 150;
+    private static final int RefreshFrameMillis = 16;
+    private static final double MaxRefreshShare = 0.25;
+    private static long startedAt = System.nanoTime();
+    private static final boolean PrintStats = Boolean.getBoolean("cafemac.stats"); // -Dcafemac.stats=true
+    private static final Path VoteDirectory = Paths.get(System.getProperty("user.home"), ".cafemac");
 
     /**
      * Constructs the main application window and initializes the user interface components.
@@ -58,10 +83,26 @@ public class MainApp {
         frame.setLocationRelativeTo(null);
 
         cardLayout = new CardLayout();
-        mainPanel = new JPanel(cardLayout);
+        mainPanel = new JPanel(cardLayout) {
+            @Override
+            protected void validateTree() { // lays out every invalid component of the window
+                JfrEvents.Layout event = new JfrEvents.Layout();
+                event.begin();
+                super.validateTree();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.component = "window";
+                    event.itemCount = menuTable == null ? 0 : menuTable.getRowCount();
+                    event.commit();
+                }
+            }
+        };
         suggestionsPanel = new JPanel();
 
-        GuiHomePage homepage = new GuiHomePage(e -> handleStartButtonClick());
+        ImagePipeline images = new ImagePipeline(VoteDirectory.resolve("images"), task -> Thread.ofVirtual().start(task));
+        GuiHomePage homepage = new GuiHomePage(e -> handleStartButtonClick(), images);
+        homepage.setFirstPaintListener(() -> reportStartup("First frame"));
+        homepage.getImagesReady().thenRun(() -> reportStartup("Splash pictures"));
         mainPanel.add(homepage, "Splash");
         mainPanel.add(createMainAppPanel(), "MainApp");
 
@@ -69,6 +110,78 @@ public class MainApp {
         frame.setVisible(true);
 
         autoComplete = new AutoComplete();
+        menuLoader = new MenuLoader(JsoupScraper::scrapeMenu, SwingUtilities::invokeLater, VoteDirectory.resolve("menu.snapshot"));
+        openVoteLog();
+        reportSearchLatencyOnClose();
+        showLastKnownMenu();
+    }
+
+    /**
+     * Prints how long after main() a startup step was on screen, if the app was run with -Dcafemac.stats=true.
+     *
+     * @param step what was shown
+     */
+    private static void reportStartup(String step) {
+        if (!PrintStats) {
+            return;
+        }
+        System.out.printf("%s shown %.0f ms after start%n", step, (System.nanoTime() - startedAt) / 1e6);
+    }
+
+    /**
+     * Prints how long it took from a keystroke to the search results on screen, and how much EDT time vote refreshes
+     * took, when the window closes and the app was run with -Dcafemac.stats=true.
+     */
+    private void reportSearchLatencyOnClose() {
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                liveSearch.cancel();
+                if (!PrintStats) {
+                    return;
+                }
+                if (liveSearch.getLatency().getCount() > 0) {
+                    System.out.println("Search latency (keystroke to paint): " + liveSearch.getLatency());
+                }
+                if (changeBus.getChangeCount() > 0) {
+                    System.out.println("Vote refreshes: " + changeBus);
+                }
+            }
+        });
+    }
+
+    /**
+     * If a menu was saved by an earlier run, shows it right away and refreshes it from the website in the background.
+     * Otherwise nothing is loaded until the user presses Load Menu.
+     */
+    private void showLastKnownMenu() {
+        if (Files.exists(VoteDirectory.resolve("menu.snapshot"))) {
+            loadMenuBtn.setText("Cancel");
+            loadMenu(loadMenuBtn, true);
+        }
+    }
+
+    /**
+     * Opens the vote log so ratings survive restarts, and writes a final snapshot when the window closes.
+     * If the log cannot be opened, votes still work but are not saved.
+     */
+    private void openVoteLog() {
+        try {
+            voteLog = new VoteLog(VoteDirectory);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent evt) {
+                try {
+                    voteLog.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
     }
 
     /**
@@ -127,13 +240,13 @@ public class MainApp {
         title.setBorder(new EmptyBorder(20, 0, 10, 0));
         panel.add(title, BorderLayout.NORTH);
 
-        menuPanel = new JPanel();
-        menuPanel.setBackground(BackgroundColor);
-        menuPanel.setLayout(new BoxLayout(menuPanel, BoxLayout.Y_AXIS));
-        menuPanel.setBorder(new EmptyBorder(20, 30, 20, 30));
+        menuTable = new MenuTable(this::castVote);
+        changeBus = new MenuChangeBus(RefreshFrameMillis, MaxRefreshShare, this::refreshChanged);
 
-        JScrollPane scrollPane = new JScrollPane(menuPanel);
+        JScrollPane scrollPane = new JScrollPane(menuTable);
+        scrollPane.setViewportBorder(new EmptyBorder(20, 30, 20, 30));
         scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+        scrollPane.getViewport().setBackground(BackgroundColor);
         scrollPane.setBorder(BorderFactory.createLineBorder(new Color(200, 200, 200), 1));
         panel.add(scrollPane, BorderLayout.CENTER);
 
@@ -143,7 +256,7 @@ public class MainApp {
         topItemLabel.setBorder(new EmptyBorder(10, 30, 10, 0));
         panel.add(topItemLabel, BorderLayout.SOUTH);
 
-        JButton loadMenuBtn = createModernButton("Load Menu");
+        loadMenuBtn = createModernButton("Load Menu");
         loadMenuBtn.setMaximumSize(new Dimension(180, 40));
         loadMenuBtn.setAlignmentX(Component.LEFT_ALIGNMENT);
 
@@ -163,32 +276,46 @@ public class MainApp {
         searchButton = createModernButton("Search");
         topPanel.add(searchButton);
         
+        liveSearch = new LiveSearch(query -> findMatches(autoComplete, query), SwingUtilities::invokeLater,
+                SearchDebounceMillis, this::showSearchResults);
+
+        searchTextField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent evt) {
+                searchTextChanged();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent evt) {
+                searchTextChanged();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent evt) {
+            }
+        });
+
         searchButton.addActionListener(e -> {
-            suggestionsPanel.removeAll();
-            String query = searchTextField.getText().trim().toLowerCase();
-            
+            String query = currentQuery();
             if (query.isEmpty()) {
-                suggestionsPanel.revalidate();
-                suggestionsPanel.repaint();
+                clearSuggestions();
                 return;
             }
-            
-            List<FoodItem> results = autoComplete.searchByPrefix(query);
-            autoComplete.displaySearchResults(results, suggestionsPanel);
-            filterAndShowSearchResults(results);
+            liveSearch.searchNow(query);
         });
 
         loadMenuBtn.addActionListener(e -> {
-            menuPanel.removeAll();
-            loadMenu();
-            autoComplete.addMenuItems(menu);
-            currentCategory = null;
-            showMenu(menuPanel);
-            panel.revalidate();
-            panel.repaint();
+            if (menuLoader.cancel()) {
+                loadMenuBtn.setText("Load Menu");
+                showMessage("Loading cancelled.");
+                return;
+            }
+            loadMenuBtn.setText("Cancel");
+            showMessage("Loading menu...");
+            loadMenu(loadMenuBtn, false);
         });
 
-        JPanel topFivePanel = new JPanel();
+        topFivePanel = new JPanel();
         topFivePanel.setLayout(new BoxLayout(topFivePanel, BoxLayout.Y_AXIS));
         topFivePanel.setOpaque(false);
         panel.add(topFivePanel, BorderLayout.WEST);
@@ -203,19 +330,8 @@ public class MainApp {
         topFivePanel.add(topFiveButton);
         
         topFiveButton.addActionListener(e -> {
-            if (topFiveLabel.isVisible()) {
-                topFiveLabel.setVisible(false);
-                topFivePanel.removeAll();
-                topFivePanel.add(topFiveButton);
-                topFivePanel.revalidate();
-                topFivePanel.repaint();
-            } else {
-                topFiveLabel.setVisible(true);
-                menu.updateTopKFoodItems(5);
-                menu.displayTopK(topFivePanel);
-                topFivePanel.revalidate();
-                topFivePanel.repaint();
-            }
+            topFiveLabel.setVisible(!topFiveLabel.isVisible());
+            showTopFive(true);
         });
 
         JPanel categoryFilterPanel = new JPanel();
@@ -243,10 +359,7 @@ public class MainApp {
         halalButton.addActionListener(e -> filterAndShowCategory("Halal"));
         showAllButton.addActionListener(e -> {
             currentCategory = null;
-            menuPanel.removeAll();
-            showMenu(menuPanel);
-            panel.revalidate();
-            panel.repaint();
+            showMenu();
         });
 
         JButton clearButton = createModernButton("Clear");
@@ -254,19 +367,81 @@ public class MainApp {
 
         clearButton.addActionListener(e -> {
             searchTextField.setText("");
-            suggestionsPanel.removeAll();
-            suggestionsPanel.revalidate();
-            suggestionsPanel.repaint();
+            clearSuggestions();
             currentCategory = null;
-            menuPanel.removeAll();
-            showMenu(menuPanel);
-            panel.revalidate();
-            panel.repaint();
+            showMenu();
         });
 
         return panel;
     }
 
+    /**
+     * Searches as the user types: the lookup runs in the background once typing pauses. Emptying the field drops any
+     * pending search and clears the suggestions.
+     */
+    private void searchTextChanged() {
+        String query = currentQuery();
+        if (query.isEmpty()) {
+            liveSearch.cancel();
+            clearSuggestions();
+        } else {
+            liveSearch.queryChanged(query);
+        }
+    }
+
+    /**
+     * Returns the search field's text, trimmed and lowercased.
+     *
+     * @return the query
+     */
+    private String currentQuery() {
+        return searchTextField.getText().trim().toLowerCase();
+    }
+
+    /**
+     * Empties the suggestions under the search field.
+     */
+    private void clearSuggestions() {
+        suggestionsPanel.removeAll();
+        suggestionsPanel.revalidate();
+        suggestionsPanel.repaint();
+    }
+
+    /**
+     * Finds the items for a query: names starting with it, then names with a word starting with it, then (for typos)
+     * the closest names. Runs on the live search thread.
+     *
+     * @param index the search index to use
+     * @param query the lowercased query
+     * @return the matching items
+     */
+    private static List<FoodItem> findMatches(AutoComplete index, String query) {
+        List<FoodItem> results = index.searchAsTyped(query);
+        if (results.isEmpty()) { // a word further into the name, like "chicken" in "Grilled Chicken Thighs"
+            results = index.searchWords(query);
+        }
+        if (results.isEmpty()) { // probably a typo: show the closest names instead, allowing a second typo in longer queries
+            results = index.fuzzySearch(query, query.length() >= 5 ? 2 : 1, 10);
+        }
+        return results;
+    }
+
+    /**
+     * Shows the results of the latest search, unless the field has changed since (then newer results are on the way).
+     *
+     * @param query the query that was searched
+     * @param results the items found
+     */
+    private void showSearchResults(String query, List<FoodItem> results) {
+        if (!query.equals(currentQuery())) {
+            return;
+        }
+        autoComplete.displaySearchResults(results, suggestionsPanel);
+        if (menu != null) {
+            filterAndShowSearchResults(results);
+        }
+    }
+
     /**
      * Filters the menu by the specified dietary category and updates the display panl.
      *
@@ -275,9 +450,7 @@ public class MainApp {
     private void filterAndShowCategory(String category) {
         currentCategory = category;
         List<FoodItem> uniqueItems = menu.getUniqueFoodItemsByCategory(category);
-        displayFoodItems(uniqueItems, menuPanel, category, false);
-        menuPanel.getParent().revalidate();
-        menuPanel.getParent().repaint();
+        menuTable.showItems(category, uniqueItems);
         updateTopItem();
     }
 
@@ -288,115 +461,205 @@ public class MainApp {
      */
     private void filterAndShowSearchResults(List<FoodItem> results) {
         currentCategory = null;
-        displayFoodItems(results, menuPanel, "Search Results", false);
-        menuPanel.getParent().revalidate();
-        menuPanel.getParent().repaint();
+        menuTable.showItems("Search Results", results);
         updateTopItem();
     }
 
     /**
-     * Loads menu data from the website using the JsoupScraper class. It also handles cases where scraping fails.
+     * Loads menu data from the website using the JsoupScraper class, in the background. Each meal is shown as soon as
+     * it is parsed; once the whole menu is rated and indexed it replaces the current one. It also handles cases where scraping fails.
+     *
+     * When starting from the snapshot, the last known menu stays on screen until the fresh one is complete,
+     * and stays there if the fresh one cannot be loaded.
+     *
+     * @param loadMenuBtn the button that started the load, reset when the load finishes
+     * @param fromSnapshot whether to show the menu saved by the last run first
      */
-    private void loadMenu() {
-        jsoupScraper = new JsoupScraper();
-        menu = jsoupScraper.scrapeMenu();
-        if (menu.getMenue().isEmpty()) {
-            menuPanel.removeAll();
-            JLabel errorLabel = new JLabel("Failed to load menu!");
-            errorLabel.setFont(new Font("Poppins", Font.ITALIC, 18));
-            menuPanel.add(errorLabel);
-            menuPanel.revalidate();
-            menuPanel.repaint();
+    private void loadMenu(JButton loadMenuBtn, boolean fromSnapshot) {
+        MenuLoader.Listener listener = new MenuLoader.Listener() {
+            private boolean firstMeal = true;
+            private boolean showingSnapshot = false;
+
+            @Override
+            public void snapshotLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+                showingSnapshot = true;
+                useMenu(loadedMenu, loadedAutoComplete);
+                showMenu();
+            }
+
+            @Override
+            public void mealLoaded(String mealType, List<FoodItem> items) {
+                if (showingSnapshot) {
+                    return;
+                }
+                if (firstMeal) {
+                    menuTable.showItems(mealType, items);
+                    firstMeal = false;
+                } else {
+                    menuTable.appendItems(mealType, items);
+                }
+            }
+
+            @Override
+            public void menuLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+                loadMenuBtn.setText("Load Menu");
+                if (showingSnapshot && loadedMenu.getMenue().isEmpty()) {
+                    return;
+                }
+                useMenu(loadedMenu, loadedAutoComplete);
+                if (menu.getMenue().isEmpty()) {
+                    showMessage("Failed to load menu!");
+                } else {
+                    showMenu();
+                }
+            }
+        };
+        if (fromSnapshot) {
+            menuLoader.loadFromSnapshot(this::prepareRatings, listener);
         } else {
-            simulateVotes();
+            menuLoader.load(this::prepareRatings, listener);
         }
     }
 
     /**
-     * Displays the full menu organized by meal type in the specified panel.
+     * Makes a loaded menu and its search index the current ones, releasing the previous index.
      *
-     * @param menuPanel the panel to display the menu in
+     * @param loadedMenu the new menu
+     * @param loadedAutoComplete its search index
      */
-    private void showMenu(JPanel menuPanel) {
-        menuPanel.removeAll();
-        for (String mealType : menu.getMenue().keySet()) {
-            displayFoodItems(menu.getMenuForMeal(mealType), menuPanel, mealType, true);
+    private void useMenu(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+        if (menu != null) {
+            menu.removeChangeListener(changeBus);
         }
-        menuPanel.revalidate();
-        menuPanel.repaint();
-        updateTopItem();
+        changeBus.cancel();
+        menu = loadedMenu;
+        menu.addChangeListener(changeBus);
+        autoComplete.clear();
+        autoComplete = loadedAutoComplete;
+        currentCategory = null;
+    }
+
+    /**
+     * Replaces the contents of the menu list with a single message.
+     *
+     * @param message the text to show
+     */
+    private void showMessage(String message) {
+        menuTable.showMessage(message);
     }
 
     /**
-     * Displays a list of food items in the specified panel with voting buttons and scores.
+     * Gives a freshly scraped menu its ratings: the ones saved in the vote log, or simulated ones if there are none.
+     * Runs on the loading thread, before the menu is shown.
      *
-     * @param items the list of food items to display
-     * @param panel the panel to display the items in
-     * @param headerText the header text for the section
-     * @param append whether to append items or clear the panel first. We made the method this way so we can use its logic for both displaying the main menu and the categorized menu
+     * @param loadedMenu the menu that was just scraped
      */
-    private void displayFoodItems(List<FoodItem> items, JPanel panel, String headerText, boolean append) { 
-        if (!append) {
-            panel.removeAll();
+    private void prepareRatings(Menu loadedMenu) {
+        prepareRatings(loadedMenu, voteLog, MainApp::simulateVotes);
+    }
+
+    /**
+     * Restores a menu's ratings from the vote log, or seeds them when the log has none. Seeded ratings are written to
+     * a snapshot right away: the log only holds vote deltas, so after a crash it would replay later votes onto items
+     * that lost their seed, and the seeding would be skipped because some ratings were restored.
+     *
+     * @param loadedMenu the menu that was just scraped
+     * @param log the vote log, or null if there is none
+     * @param seed gives the items their first ratings
+     */
+    static void prepareRatings(Menu loadedMenu, VoteLog log, Consumer<Menu> seed) {
+        if (loadedMenu.getMenue().isEmpty() || restoreVotes(loadedMenu, log) > 0) {
+            return;
         }
-        
-        if (headerText != null) {
-            JLabel header = new JLabel(headerText.toUpperCase());
-            header.setFont(new Font("Poppins", Font.BOLD, 20));
-            header.setForeground(MacOrange);
-            header.setBorder(new EmptyBorder(15, 15, 8, 8));
-            panel.add(header);
+        seed.accept(loadedMenu);
+        if (log != null) {
+            try {
+                log.compact();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
         }
-        
-        int count = 1;
-        
-        if (items == null || items.isEmpty()) {
-            JLabel noItems = new JLabel("No items available for " + (headerText != null ? headerText : "this category"));
-            noItems.setFont(new Font("Poppins", Font.ITALIC, 18));
-            panel.add(noItems);
+    }
+
+    /**
+     * Gives the freshly scraped items the ratings saved in the vote log.
+     *
+     * @param loadedMenu the menu that was just scraped
+     * @param log the vote log, or null if there is none
+     * @return the number of items whose rating was restored
+     */
+    private static int restoreVotes(Menu loadedMenu, VoteLog log) {
+        if (log == null) {
+            return 0;
+        }
+        try {
+            return log.attach(loadedMenu);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return 0;
+        }
+    }
+
+    /**
+     * Applies a vote to an item, recording it in the vote log when there is one.
+     *
+     * @param item the item voted on
+     * @param delta +1 for an up vote, -1 for a down vote
+     */
+    private void castVote(FoodItem item, int delta) {
+        if (voteLog != null) {
+            voteLog.vote(item, delta);
         } else {
-            for (FoodItem item : items) {
-                JPanel itemPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 12, 2));
-                itemPanel.setOpaque(false);
-                
-                JLabel itemLabel = new JLabel(count + ". " + item.getName());
-                itemLabel.setFont(new Font("Poppins", Font.PLAIN, 16));
-                itemLabel.setPreferredSize(new Dimension(320, 22));
-                
-                JLabel scoreLabel = new JLabel("Score: " + item.getRating());
-                scoreLabel.setFont(new Font("Poppins", Font.PLAIN, 15));
-                scoreLabel.setForeground(MacBlue);
-                
-                JButton yesBtn = createModernButton("★");
-                yesBtn.setPreferredSize(new Dimension(50, 32));
-                yesBtn.setFont(new Font("SansSerif", Font.BOLD, 16));
-                yesBtn.addActionListener(e -> {
-                    item.upVote();
-                    scoreLabel.setText("Score: " + item.getRating());
-                    updateTopItem();
-                });
-                
-                JButton noBtn = createModernButton("☆");
-                noBtn.setPreferredSize(new Dimension(50, 32));
-                noBtn.setFont(new Font("SansSerif", Font.BOLD, 16));
-                noBtn.addActionListener(e -> {
-                    item.downVote();
-                    scoreLabel.setText("Score: " + item.getRating());
-                    updateTopItem();
-                });
-                
-                itemPanel.add(itemLabel);
-                itemPanel.add(yesBtn);
-                itemPanel.add(noBtn);
-                itemPanel.add(scoreLabel);
-                
-                panel.add(itemPanel);
-                count++;
-            }
+            item.addVotes(delta);
         }
-        
-        panel.revalidate();
-        panel.repaint();
+    }
+
+    /**
+     * Displays the full menu organized by meal type in the menu list.
+     */
+    private void showMenu() {
+        menuTable.showMeals(menu.getMenue());
+        updateTopItem();
+    }
+
+    /**
+     * Brings the screen up to date after items changed (votes from the buttons, the vote log or elsewhere).
+     * Called by the change bus on the EDT, at most once per frame, with every item changed since the last call.
+     *
+     * @param changed the items whose rating or categories changed
+     */
+    private void refreshChanged(Set<FoodItem> changed) {
+        if (menu == null) {
+            return;
+        }
+        menuTable.itemsChanged(changed);
+        updateTopItem();
+        showTopFive(false);
+    }
+
+    /**
+     * Shows or hides the Top 5 list, depending on whether its label is visible.
+     *
+     * @param force whether to rebuild the list even if the top five items are still the same ones
+     */
+    private void showTopFive(boolean force) {
+        List<FoodItem> topFive = List.of();
+        if (topFiveLabel.isVisible() && menu != null) {
+            menu.updateTopKFoodItems(5);
+            topFive = menu.getTopKFoodItems();
+        }
+        if (!force && topFive.equals(shownTopFive)) {
+            return;
+        }
+        shownTopFive = topFive;
+        topFivePanel.removeAll();
+        topFivePanel.add(topFiveLabel);
+        topFivePanel.add(topFiveButton);
+        if (!topFive.isEmpty()) {
+            menu.displayTopK(topFivePanel);
+        }
+        topFivePanel.revalidate();
+        topFivePanel.repaint();
     }
 
     /**
@@ -421,22 +684,15 @@ public class MainApp {
     }
 
     /**
-     * Simulates random user votes on menu items to initialize the ratings. 
+     * Simulates user votes on menu items to initialize the ratings: fifty votes per item on average, skewed towards
+     * the popular items, each of which is liked by a different share of voters.
+     * Only used when the vote log has no saved ratings for the loaded menu.
+     *
+     * @param loadedMenu the menu to seed
      */
-    private void simulateVotes() {
-        Random rand = new Random();
-        for (String mealType : menu.getMenue().keySet()) {
-            for (FoodItem item : menu.getMenuForMeal(mealType)) {
-                int votes = rand.nextInt(100);
-                for (int i = 0; i < votes; i++) {
-                    if (rand.nextBoolean()) {
-                        item.upVote();
-                    } else {
-                        item.downVote();
-                    }
-                }
-            }
-        }
+    private static void simulateVotes(Menu loadedMenu) {
+        int items = loadedMenu.getAllFoodItems().size();
+        FoodItem.applyVotes(new WorkloadGenerator(loadedMenu, new Random().nextLong()).votes(items * 50));
     }
 
     /**
@@ -445,6 +701,7 @@ public class MainApp {
      * @param args command-line arguments.
      */
     public static void main(String[] args) {
+        startedAt = System.nanoTime();
         new MainApp();
     }
 }
\ No newline at end of file
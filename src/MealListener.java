@@ -0,0 +1,17 @@
+import java.util.List;
+
+/**
+ * Callback used by the scraper to hand over each meal section as soon as it has been parsed,
+ * so the UI can show breakfast while dinner is still being read.
+ */
+@FunctionalInterface
+public interface MealListener {
+
+    /**
+     * Called once for every meal section that contained items.
+     *
+     * @param mealType the meal name, like "LUNCH"
+     * @param items the items parsed for that meal
+     */
+    void mealLoaded(String mealType, List<FoodItem> items);
+}
@@ -1,47 +1,225 @@
 import java.awt.Font;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 
+/**
+ * The meals of a day and their food items, with indexes by category and live rankings by rating.
+ *
+ * The meals and the category index are published as immutable versions: every change (adding an item, or an item
+ * changing category) builds the next version and publishes it with one volatile write, so readers on any thread
+ * (rendering, search, snapshot writers) never lock and always see one consistent version, even while a writer is
+ * adding items. Item arrays are shared between versions and only ever appended to past the end of the newest
+ * version, which no published version reads, so adding an item costs O(1) amortized instead of a full copy.
+ * Writers are serialized by the Menu's lock.
+ *
+ * Ratings are the exception: votes change the FoodItems in place, and the rankings follow them through listeners.
+ * Each ranking is a small synchronized tree, so reading the top items takes that ranking's lock for O(k), plus
+ * O(log n) for each item voted on since the last read; a vote itself takes no lock.
+ */
 public class Menu {
-    private Map<String, List<FoodItem>> menuItems;
-    private Comparator<FoodItem> foodComparator;
-    private List<FoodItem> topItems;
+    private volatile Version current;
+    private volatile List<FoodItem> topItems;
+    private FoodRanking ranking;
+
+    /** Position of every indexed item; only used by writers. */
+    private Map<FoodItem, Integer> positions;
+    /** Interned normalized names; only used by writers. */
+    private Map<String, Integer> nameIdsByKey;
+    private FoodItemListener itemListener;
+    /** Listeners told about every item change, after the rankings have followed it. */
+    private final List<FoodItemListener> changeListeners = new CopyOnWriteArrayList<>();
 
     /**
      * Initializes the Menu data structure with all the necessary variabl and top item tracker.
      */
     public Menu() {
-        menuItems = new LinkedHashMap<>();
-        foodComparator = new FoodComparator();
+        current = new Version();
         topItems = new ArrayList<>();
+        ranking = new FoodRanking();
+        positions = new IdentityHashMap<>();
+        nameIdsByKey = new HashMap<>();
+        itemListener = new FoodItemListener() {
+            @Override
+            public void ratingChanged(FoodItem item) {
+                rerank(item);
+                for (FoodItemListener listener : changeListeners) {
+                    listener.ratingChanged(item);
+                }
+            }
+
+            @Override
+            public void categoryChanged(FoodItem item) {
+                refile(item);
+                for (FoodItemListener listener : changeListeners) {
+                    listener.categoryChanged(item);
+                }
+            }
+        };
+    }
+
+    /**
+     * Registers a listener for changes to any item on this menu. It is called on the thread that made the change, once
+     * the rankings and category indexes have been told about it, so what it reads from them includes the change.
+     * @param listener The listener to add.
+     */
+    public void addChangeListener(FoodItemListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * Stops notifying a listener registered with addChangeListener.
+     * @param listener The listener to remove.
+     */
+    public void removeChangeListener(FoodItemListener listener) {
+        changeListeners.remove(listener);
     }
 
     /**
      * Adds a food item under a given meal type. Creates list if absent.
+     * The item is also indexed by category and entered into the live overall and per-category rankings.
+     * Readers see the item once the new version is published, together with its category entries.
      * @param mealType Meal category like Breakfast or Dinner.
      * @param foodItem The food item to be added.
      */
-    public void addFoodItem(String mealType, FoodItem foodItem) {
-        menuItems.putIfAbsent(mealType.toUpperCase(), new ArrayList<>());
-        menuItems.get(mealType.toUpperCase()).add(foodItem);
+    public synchronized void addFoodItem(String mealType, FoodItem foodItem) {
+        Version next = current.copy();
+        String meal = mealType.toUpperCase();
+        Map<String, Meal> meals = new LinkedHashMap<>(next.meals);
+        Meal items = meals.get(meal);
+        meals.put(meal, items == null ? new Meal(new FoodItem[4], 0).append(foodItem) : items.append(foodItem));
+        next.setMeals(meals);
+        boolean added = foodItem != null && index(next, foodItem);
+        current = next;
+        if (added) {
+            foodItem.addListener(itemListener);
+        }
+    }
+
+    /**
+     * Gives the item a position, files it under each of its categories and ranks it, in the version being built.
+     * Tags are normalized once here (by FoodItem and CategoryDictionary), not on every query.
+     * @param next The version being built.
+     * @param foodItem The item to index.
+     * @return false if the item was already indexed.
+     */
+    private boolean index(Version next, FoodItem foodItem) {
+        if (positions.containsKey(foodItem)) {
+            return false;
+        }
+        int position = next.itemCount;
+        if (position == next.items.length) {
+            next.items = Arrays.copyOf(next.items, position * 2);
+            next.nameIds = Arrays.copyOf(next.nameIds, position * 2);
+            next.masks = Arrays.copyOf(next.masks, position * 2);
+        }
+        next.items[position] = foodItem;
+        next.itemCount = position + 1;
+        positions.put(foodItem, position);
+
+        String nameKey = foodItem.getName() == null ? "" : CategoryDictionary.normalize(foodItem.getName());
+        Integer nameId = nameIdsByKey.get(nameKey);
+        if (nameId == null) {
+            nameId = nameIdsByKey.size();
+            nameIdsByKey.put(nameKey, nameId);
+        }
+        next.nameIds[position] = nameId;
+        next.nameCount = nameIdsByKey.size();
+
+        ranking.add(foodItem);
+        file(next, foodItem, position, foodItem.getCategoryMask());
+        return true;
+    }
+
+    /**
+     * Sets the item's bit in the bitset of each category in the mask and adds it to those category rankings.
+     * The position is new, so its bit is past the item count of every published version, which ignore such bits.
+     * @param next The version being built.
+     * @param foodItem The item.
+     * @param position The item's position.
+     * @param mask The categories to file it under.
+     */
+    private void file(Version next, FoodItem foodItem, int position, long mask) {
+        next.masks[position] = mask;
+        for (long rest = mask; rest != 0; rest &= rest - 1) {
+            int id = Long.numberOfTrailingZeros(rest);
+            long[] words = next.categoryWords[id];
+            int word = position >>> 6;
+            if (words == null) {
+                words = new long[Math.max(1, next.items.length >>> 6)];
+                next.categoryRankings[id] = new FoodRanking();
+            } else if (word >= words.length) {
+                words = Arrays.copyOf(words, Math.max(words.length * 2, word + 1));
+            }
+            words[word] |= 1L << position;
+            next.categoryWords[id] = words;
+            next.categoryRankings[id].add(foodItem);
+        }
+    }
+
+    /**
+     * Moves an item to the categories it has after setCategory was called on it. This changes bits that published
+     * versions read, so the affected bitsets (and the masks) are copied instead of shared.
+     * @param foodItem The item whose categories changed.
+     */
+    private synchronized void refile(FoodItem foodItem) {
+        Integer position = positions.get(foodItem);
+        if (position == null) {
+            return;
+        }
+        Version next = current.copy();
+        next.masks = next.masks.clone();
+        long oldMask = next.masks[position];
+        long newMask = foodItem.getCategoryMask();
+        for (long rest = oldMask | newMask; rest != 0; rest &= rest - 1) {
+            int id = Long.numberOfTrailingZeros(rest);
+            if (next.categoryWords[id] != null) {
+                next.categoryWords[id] = next.categoryWords[id].clone();
+            }
+        }
+        for (long rest = oldMask; rest != 0; rest &= rest - 1) {
+            int id = Long.numberOfTrailingZeros(rest);
+            next.categoryWords[id][position >>> 6] &= ~(1L << position);
+            next.categoryRankings[id].remove(foodItem);
+        }
+        file(next, foodItem, position, newMask);
+        current = next;
+    }
+
+    /**
+     * Marks an item whose rating changed in every ranking it belongs to, without locking; each ranking moves it on
+     * its next read. The item's own mask names the rankings: one it has just left or not yet joined ignores it.
+     * @param foodItem The item that was voted on.
+     */
+    private void rerank(FoodItem foodItem) {
+        Version version = current;
+        ranking.update(foodItem);
+        for (long rest = foodItem.getCategoryMask(); rest != 0; rest &= rest - 1) {
+            FoodRanking categoryRanking = version.categoryRankings[Long.numberOfTrailingZeros(rest)];
+            if (categoryRanking != null) {
+                categoryRanking.update(foodItem);
+            }
+        }
     }
 
     /**
      * Retrieves the food items associated with a meal type.
      * @param mealType The meal type to query.
-     * @return List of food items.
+     * @return List of food items (a copy, which the caller may change).
      */
     public List<FoodItem> getMenuForMeal(String mealType) {
-        return menuItems.getOrDefault(mealType.toUpperCase(), new ArrayList<>());
+        Meal meal = current.meals.get(mealType.toUpperCase());
+        return meal == null ? new ArrayList<>() : new ArrayList<>(meal.asList());
     }
 
     /**
@@ -50,25 +228,39 @@ public class Menu {
      */
     public List<FoodItem> getAllFoodItems() {
         List<FoodItem> allFoodItems = new ArrayList<>();
-        for (List<FoodItem> items : menuItems.values()) {
-            allFoodItems.addAll(items);
+        for (Meal meal : current.meals.values()) {
+            allFoodItems.addAll(meal.asList());
         }
         return allFoodItems;
     }
 
     /**
      * Updates the list of top K food items based on rating.
+     * Reads the first k entries of the live ranking, which votes keep up to date, instead of re-sorting every item.
      * @param k Number of top items to include.
      */
     public void updateTopKFoodItems(int k) {
-        PriorityQueue<FoodItem> maxHeap = new PriorityQueue<>(foodComparator);
-        for (List<FoodItem> items : menuItems.values()) {
-            maxHeap.addAll(items);
-        }
-        topItems.clear();
-        for (int i = 0; i < k && !maxHeap.isEmpty(); i++) {
-            topItems.add(maxHeap.poll());
+        topItems = getTopFoodItems(k);
+    }
+
+    /**
+     * Returns the current top k food items without making them the ones getTopKFoodItems returns, so callers on
+     * different threads asking for different k do not overwrite each other's result.
+     * @param k Number of top items to include.
+     * @return The k best rated items, best first.
+     */
+    public List<FoodItem> getTopFoodItems(int k) {
+        JfrEvents.Rank event = new JfrEvents.Rank();
+        event.begin();
+        List<FoodItem> top = ranking.top(k);
+        event.end();
+        if (event.shouldCommit()) {
+            event.rankedItems = ranking.size();
+            event.k = k;
+            event.itemCount = top.size();
+            event.commit();
         }
+        return top;
     }
 
     /**
@@ -80,18 +272,25 @@ public class Menu {
     }
 
     /**
-     * Finds the top-rated item within a specific category.
+     * Finds the top-rated item within a specific category, using that category's live ranking.
      * @param category Category to search within.
      * @return Highest-rated item or null.
      */
     public FoodItem getTopItemInCategory(String category) {
-        List<FoodItem> items = getFoodItemsByCategory(category);
-        if (items.isEmpty()) {
+        if (category == null) {
             return null;
         }
-        PriorityQueue<FoodItem> maxHeap = new PriorityQueue<>(foodComparator);
-        maxHeap.addAll(items);
-        return maxHeap.poll();
+        int id = CategoryDictionary.lookup(category);
+        FoodRanking categoryRanking = id < 0 ? null : current.categoryRankings[CategoryDictionary.bitOf(id)];
+        if (categoryRanking == null || id < CategoryDictionary.OVERFLOW_BIT) {
+            return categoryRanking == null ? null : categoryRanking.first();
+        }
+        for (FoodItem item : categoryRanking.top(categoryRanking.size())) { // shared by the rarest categories
+            if (item.hasCategory(id)) {
+                return item;
+            }
+        }
+        return null;
     }
 
     /**
@@ -99,6 +298,7 @@ public class Menu {
      * @param panel Panel to populate with top items.
      */
     public void displayTopK(JPanel panel) {
+        List<FoodItem> topItems = this.topItems;
         for (int i = 0; i < topItems.size(); i++) {
             JLabel label = new JLabel((i + 1) + ". " + topItems.get(i).getName());
             label.setFont(new Font("Poppins", Font.PLAIN, 14));
@@ -111,24 +311,26 @@ public class Menu {
      * @return Top FoodItem or null.
      */
     public FoodItem getTopFoodItem() {
+        List<FoodItem> topItems = this.topItems;
         return topItems.isEmpty() ? null : topItems.get(0);
     }
 
     /**
-     * Gives access to the entire meal-to-items mapping.
-     * @return Menu map.
+     * Gives access to the entire meal-to-items mapping, as of now: items added later do not show up in it, so it can
+     * be iterated while the menu is still being filled.
+     * @return Menu map (unmodifiable).
      */
     public Map<String, List<FoodItem>> getMenue() {
-        return menuItems;
+        return current.view();
     }
 
     /**
      * Prints all menu items to console.
      */
     public void displayMenu() {
-        for (String meal : menuItems.keySet()) {
-            System.out.println("=== " + meal + " ===");
-            for (FoodItem item : menuItems.get(meal)) {
+        for (Map.Entry<String, List<FoodItem>> meal : getMenue().entrySet()) {
+            System.out.println("=== " + meal.getKey() + " ===");
+            for (FoodItem item : meal.getValue()) {
                 System.out.println("• " + item.getName());
             }
             System.out.println();
@@ -141,19 +343,27 @@ public class Menu {
      * @return Filtered list of food items.
      */
     public List<FoodItem> getFoodItemsByCategory(String category) {
-        List<FoodItem> result = new ArrayList<>();
-        if (category == null) return result;
-
-        String normalized = normalize(category);
-        for (FoodItem item : getAllFoodItems()) {
-            for (String tag : item.getCategory()) {
-                if (normalize(tag).equals(normalized)) {
-                    result.add(item);
-                    break;
-                }
-            }
-        }
-        return result;
+        return getFoodItemsInAnyCategory(category);
+    }
+
+    /**
+     * Finds the food items labeled with every one of the given categories.
+     * @param categories Category names.
+     * @return Filtered list of food items, in the order they were added.
+     */
+    public List<FoodItem> getFoodItemsInAllCategories(String... categories) {
+        Version version = current;
+        return itemsAt(version, matching(version, categories, true));
+    }
+
+    /**
+     * Finds the food items labeled with at least one of the given categories.
+     * @param categories Category names.
+     * @return Filtered list of food items, in the order they were added.
+     */
+    public List<FoodItem> getFoodItemsInAnyCategory(String... categories) {
+        Version version = current;
+        return itemsAt(version, matching(version, categories, false));
     }
 
     /**
@@ -162,26 +372,164 @@ public class Menu {
      * @return Unique, sorted list of items.
      */
     public List<FoodItem> getUniqueFoodItemsByCategory(String category) {
-        List<FoodItem> filteredItems = getFoodItemsByCategory(category);
-        Set<String> seenNames = new HashSet<>();
-        List<FoodItem> uniqueItems = new ArrayList<>();
-        for (FoodItem item : filteredItems) {
-            String nameKey = normalize(item.getName()); 
-            if (!seenNames.contains(nameKey)) {
-                seenNames.add(nameKey);
-                uniqueItems.add(item);
+        Version version = current;
+        BitSet matches = matching(version, new String[] {category}, false);
+        BitSet seenNames = new BitSet(version.nameCount);
+        List<FoodItem> uniqueItems = new ArrayList<>(matches.cardinality());
+        for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+            int nameId = version.nameIds[position];
+            if (!seenNames.get(nameId)) {
+                seenNames.set(nameId);
+                uniqueItems.add(version.items[position]);
             }
         }
-        uniqueItems.sort(foodComparator);
+        FoodComparator.sortByRating(uniqueItems); // votes may land while it sorts
         return uniqueItems;
     }
 
     /**
-     * Normalizes strings to lowercase, stripped of spaces and dashes.
-     * @param text Input string.
-     * @return Normalized version.
+     * Combines the position lists of the given categories with AND or OR.
+     * An unknown category matches nothing.
+     * @param version The version to read.
+     * @param categories Category names.
+     * @param matchAll true to intersect the lists, false to union them.
+     * @return Positions of the matching items (a new bitset the caller may modify).
      */
-    private String normalize(String text) {
-        return text.trim().replaceAll("[\\s\\-]", "").toLowerCase();
+    private static BitSet matching(Version version, String[] categories, boolean matchAll) {
+        BitSet result = null;
+        if (categories == null) {
+            return new BitSet();
+        }
+        for (String category : categories) {
+            int id = CategoryDictionary.lookup(category);
+            BitSet items = id < 0 ? null : version.categoryBits(id);
+            if (items == null) {
+                if (matchAll) {
+                    return new BitSet();
+                }
+                continue;
+            }
+            if (result == null) {
+                result = items;
+            } else if (matchAll) {
+                result.and(items);
+            } else {
+                result.or(items);
+            }
+        }
+        return result == null ? new BitSet() : result;
+    }
+
+    /**
+     * Turns a bitset of positions into the list of items at those positions.
+     * @param version The version the positions come from.
+     * @param positions Item positions.
+     * @return The items, in position order.
+     */
+    private static List<FoodItem> itemsAt(Version version, BitSet positions) {
+        List<FoodItem> result = new ArrayList<>(positions.cardinality());
+        for (int position = positions.nextSetBit(0); position >= 0; position = positions.nextSetBit(position + 1)) {
+            result.add(version.items[position]);
+        }
+        return result;
+    }
+
+    /**
+     * The items of one meal: the first size entries of an array that may be shared with later versions.
+     */
+    private static final class Meal {
+        final FoodItem[] items;
+        final int size;
+
+        Meal(FoodItem[] items, int size) {
+            this.items = items;
+            this.size = size;
+        }
+
+        /**
+         * Returns the meal with one more item. The slot after this meal's last item is not read by any published
+         * version, so it is written in place unless the array is full.
+         */
+        Meal append(FoodItem item) {
+            FoodItem[] array = size == items.length ? Arrays.copyOf(items, size * 2) : items;
+            array[size] = item;
+            return new Meal(array, size + 1);
+        }
+
+        List<FoodItem> asList() {
+            return Collections.unmodifiableList(Arrays.asList(items).subList(0, size));
+        }
+    }
+
+    /**
+     * One published state of the meals and the category index. Built by a writer on a copy of the current version
+     * and never changed once published. The arrays are shared with later versions, which may only write past this
+     * version's counts.
+     */
+    private static final class Version {
+        Map<String, Meal> meals = Map.of();
+        /** Every indexed item, by the position it was given when it was added. */
+        FoodItem[] items = new FoodItem[16];
+        int itemCount;
+        /** Interned normalized name of each indexed item, by position, used to drop duplicates. */
+        int[] nameIds = new int[16];
+        int nameCount;
+        /** Category bitmask each indexed item was filed under, by position. */
+        long[] masks = new long[16];
+        /** For each mask bit, the bits of the positions of the items in that category (bits past itemCount are not yet published). */
+        long[][] categoryWords = new long[CategoryDictionary.MASK_BITS][];
+        FoodRanking[] categoryRankings = new FoodRanking[CategoryDictionary.MASK_BITS];
+        private Map<String, List<FoodItem>> view = Map.of();
+
+        /**
+         * Starts the next version: same contents, with its own per-category tables to change.
+         */
+        Version copy() {
+            Version next = new Version();
+            next.meals = meals;
+            next.view = view;
+            next.items = items;
+            next.itemCount = itemCount;
+            next.nameIds = nameIds;
+            next.nameCount = nameCount;
+            next.masks = masks;
+            next.categoryWords = categoryWords.clone();
+            next.categoryRankings = categoryRankings.clone();
+            return next;
+        }
+
+        void setMeals(Map<String, Meal> newMeals) {
+            meals = Collections.unmodifiableMap(newMeals);
+            Map<String, List<FoodItem>> lists = new LinkedHashMap<>();
+            for (Map.Entry<String, Meal> meal : newMeals.entrySet()) {
+                lists.put(meal.getKey(), meal.getValue().asList());
+            }
+            view = Collections.unmodifiableMap(lists);
+        }
+
+        Map<String, List<FoodItem>> view() {
+            return view;
+        }
+
+        /**
+         * Returns the positions of a category's items as a new bitset, or null if nothing was ever filed under its bit.
+         * The items under the shared overflow bit are checked one by one.
+         */
+        BitSet categoryBits(int id) {
+            long[] words = categoryWords[CategoryDictionary.bitOf(id)];
+            if (words == null) {
+                return null;
+            }
+            BitSet bits = BitSet.valueOf(Arrays.copyOf(words, Math.min(words.length, (itemCount + 63) >>> 6)));
+            bits.clear(itemCount, Integer.MAX_VALUE);
+            if (id >= CategoryDictionary.OVERFLOW_BIT) {
+                for (int position = bits.nextSetBit(0); position >= 0; position = bits.nextSetBit(position + 1)) {
+                    if (!items[position].hasCategory(id)) {
+                        bits.clear(position);
+                    }
+                }
+            }
+            return bits;
+        }
     }
 }
\ No newline at end of file
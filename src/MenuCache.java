@@ -0,0 +1,444 @@
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+/**
+ * An HTTP cache for the menu page, kept in memory and on disk.
+ *
+ * The raw HTML is stored together with the ETag and Last-Modified headers the server sent, so the next download
+ * can be a conditional request. If the server answers 304 Not Modified, the menu parsed from the stored page is
+ * reused without downloading or parsing it again. The page itself is never held in memory: a download is parsed
+ * while it streams in and copied to the cache file on the way, and a stored page is parsed straight from disk. A page younger than the time-to-live is used without contacting
+ * the server at all. After that, during the stale-while-revalidate window, the stored menu is still returned right
+ * away while a background request refreshes the cache for the next load.
+ */
+public class MenuCache {
+    private static final String HTML_FILE = "menu.html";
+    private static final String META_FILE = "menu.properties";
+
+    private final String url;
+    private final Path directory;
+    private final Duration timeToLive;
+    private final Duration staleWhileRevalidate;
+    private final Clock clock;
+
+    private Entry entry;
+    private boolean loadedFromDisk;
+    private boolean revalidating;
+    private long bytesDownloaded;
+    private int requestCount;
+    private int notModifiedCount;
+
+    /**
+     * Creates a cache for the given page, storing its files in the given directory.
+     *
+     * @param url The menu page.
+     * @param directory Folder for the cached page and its headers.
+     * @param timeToLive How long a stored page is used without asking the server.
+     * @param staleWhileRevalidate How long after that a stored page is still shown while it is refreshed in the background.
+     */
+    public MenuCache(String url, Path directory, Duration timeToLive, Duration staleWhileRevalidate) {
+        this(url, directory, timeToLive, staleWhileRevalidate, Clock.systemUTC());
+    }
+
+    /**
+     * Creates a cache with a custom clock (used by tests to age the cache).
+     *
+     * @param url The menu page.
+     * @param directory Folder for the cached page and its headers.
+     * @param timeToLive How long a stored page is used without asking the server.
+     * @param staleWhileRevalidate How long after that a stored page is still shown while it is refreshed in the background.
+     * @param clock Source of the current time.
+     */
+    public MenuCache(String url, Path directory, Duration timeToLive, Duration staleWhileRevalidate, Clock clock) {
+        this.url = url;
+        this.directory = directory;
+        this.timeToLive = timeToLive;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the menu, from the cache when it is fresh enough and from the server otherwise.
+     * Each meal is handed to the listener as it is parsed (or replayed from the cached menu).
+     *
+     * @param listener Receives every meal that contained items, in page order.
+     * @return The menu.
+     * @throws IOException If the page is not cached and cannot be downloaded.
+     */
+    public Menu load(MealListener listener) throws IOException {
+        JfrEvents.MenuLoad event = new JfrEvents.MenuLoad();
+        event.begin();
+        Entry cached;
+        boolean usable = false;
+        boolean startRevalidation = false;
+        synchronized (this) {
+            if (!loadedFromDisk) {
+                loadedFromDisk = true;
+                entry = readEntry();
+            }
+            cached = entry;
+            if (cached != null) {
+                Duration age = Duration.between(cached.fetchedAt, clock.instant());
+                if (age.compareTo(timeToLive) < 0) {
+                    usable = true;
+                } else if (age.compareTo(timeToLive.plus(staleWhileRevalidate)) < 0) {
+                    usable = true;
+                    startRevalidation = !revalidating;
+                    revalidating = true;
+                }
+            }
+        }
+        if (startRevalidation) {
+            Thread.ofVirtual().name("menu-cache-revalidate").start(this::revalidateQuietly);
+        }
+        Menu menu = usable ? deliver(cached, listener) : revalidate(listener);
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = !usable ? "network" : startRevalidation ? "stale cache" : "fresh cache";
+            event.itemCount = menu.getAllFoodItems().size();
+            event.commit();
+        }
+        return menu;
+    }
+
+    /**
+     * Returns the number of body bytes downloaded so far (304 answers have none).
+     *
+     * @return Downloaded bytes.
+     */
+    public synchronized long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    /**
+     * Returns the number of requests sent to the server so far.
+     *
+     * @return Request count.
+     */
+    public synchronized int getRequestCount() {
+        return requestCount;
+    }
+
+    /**
+     * Returns how many requests were answered with 304 Not Modified.
+     *
+     * @return Count of 304 answers.
+     */
+    public synchronized int getNotModifiedCount() {
+        return notModifiedCount;
+    }
+
+    /**
+     * Waits until a background revalidation started by load() has finished (used by tests).
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public synchronized void awaitRevalidation() throws InterruptedException {
+        while (revalidating) {
+            wait();
+        }
+    }
+
+    /**
+     * Sends a (conditional, if anything is cached) request and updates the cache with the answer.
+     * A new page is parsed while it downloads, so its meals reach the listener before the download has finished.
+     *
+     * @param listener Receives every meal that contained items, in page order.
+     * @return The up-to-date menu.
+     */
+    private Menu revalidate(MealListener listener) throws IOException {
+        Entry cached;
+        synchronized (this) {
+            cached = entry;
+            requestCount++;
+        }
+        Connection connection = Jsoup.connect(url).ignoreHttpErrors(true);
+        if (cached != null && cached.etag != null) {
+            connection.header("If-None-Match", cached.etag);
+        }
+        if (cached != null && cached.lastModified != null) {
+            connection.header("If-Modified-Since", cached.lastModified);
+        }
+        JfrEvents.Fetch fetch = new JfrEvents.Fetch();
+        fetch.begin();
+        Connection.Response response = connection.execute();
+        fetch.end();
+        if (fetch.shouldCommit()) {
+            fetch.url = url;
+            fetch.status = response.statusCode();
+            fetch.commit();
+        }
+
+        if (response.statusCode() == 304 && cached != null) {
+            synchronized (this) {
+                notModifiedCount++;
+                cached.fetchedAt = clock.instant();
+                entry = cached;
+            }
+            writeMeta(cached);
+            return deliver(cached, listener);
+        }
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " fetching " + url);
+        }
+
+        Charset charset = charsetOf(response);
+        Files.createDirectories(directory);
+        // A file of its own for every download: a background revalidation, a foreground one and a cancelled load still
+        // reading its socket may all be writing a page at once.
+        Path temp = Files.createTempFile(directory, HTML_FILE, ".tmp");
+        Menu menu;
+        long length;
+        JfrEvents.Parse parse = new JfrEvents.Parse();
+        parse.begin();
+        try (InputStream in = response.bodyStream(); OutputStream copy = Files.newOutputStream(temp)) {
+            CopyingInputStream body = new CopyingInputStream(in, copy, parse.isEnabled());
+            menu = JsoupScraper.parseMenu(new InputStreamReader(body, charset), url, listener);
+            parse.end();
+            if (parse.shouldCommit()) {
+                parse.source = "network";
+                parse.bytes = body.getCount();
+                parse.itemCount = menu.getAllFoodItems().size();
+                parse.networkWait = body.getReadNanos();
+                parse.commit();
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                Files.deleteIfExists(temp); // a cancelled load leaves a partial page, which must not replace the stored one
+                return menu;
+            }
+            body.transferTo(OutputStream.nullOutputStream()); // store anything after the last meal section too
+            length = body.getCount();
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, directory.resolve(HTML_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        Entry downloaded = new Entry(charset, response.header("ETag"), response.header("Last-Modified"), clock.instant(), menu);
+        synchronized (this) {
+            bytesDownloaded += length;
+            entry = downloaded;
+        }
+        writeMeta(downloaded);
+        return menu;
+    }
+
+    /**
+     * Background revalidation; failures keep the stale entry.
+     */
+    private void revalidateQuietly() {
+        try {
+            revalidate((mealType, items) -> { });
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        } finally {
+            synchronized (this) {
+                revalidating = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Hands an entry's menu to the listener, parsing the stored page the first time it is needed.
+     */
+    private Menu deliver(Entry cached, MealListener listener) throws IOException {
+        Menu menu;
+        synchronized (cached) {
+            if (cached.menu == null) {
+                JfrEvents.Parse parse = new JfrEvents.Parse();
+                parse.begin();
+                Path page = directory.resolve(HTML_FILE);
+                try (Reader html = Files.newBufferedReader(page, cached.charset)) {
+                    menu = JsoupScraper.parseMenu(html, url, listener);
+                }
+                parse.end();
+                if (parse.shouldCommit()) {
+                    parse.source = "cache file";
+                    parse.bytes = Files.size(page);
+                    parse.itemCount = menu.getAllFoodItems().size();
+                    parse.commit();
+                }
+                if (!Thread.currentThread().isInterrupted()) {
+                    cached.menu = menu;
+                }
+                return menu;
+            }
+            menu = cached.menu;
+        }
+        for (Map.Entry<String, List<FoodItem>> meal : menu.getMenue().entrySet()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            if (!meal.getValue().isEmpty()) {
+                listener.mealLoaded(meal.getKey(), List.copyOf(meal.getValue()));
+            }
+        }
+        return menu;
+    }
+
+    private static Charset charsetOf(Connection.Response response) {
+        String charset = response.charset();
+        try {
+            return charset != null ? Charset.forName(charset) : StandardCharsets.UTF_8;
+        } catch (IllegalArgumentException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+
+    /**
+     * Reads the stored page and headers, if there are any.
+     */
+    private Entry readEntry() {
+        Path html = directory.resolve(HTML_FILE);
+        Path meta = directory.resolve(META_FILE);
+        if (!Files.exists(html) || !Files.exists(meta)) {
+            return null;
+        }
+        try (InputStream in = Files.newInputStream(meta)) {
+            Properties properties = new Properties();
+            properties.load(in);
+            if (!url.equals(properties.getProperty("url"))) {
+                return null;
+            }
+            Instant fetchedAt = Instant.parse(properties.getProperty("fetchedAt"));
+            Charset charset = Charset.forName(properties.getProperty("charset", StandardCharsets.UTF_8.name()));
+            return new Entry(charset, properties.getProperty("etag"),
+                    properties.getProperty("lastModified"), fetchedAt, null);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the headers and fetch time of an entry.
+     */
+    private void writeMeta(Entry cached) {
+        Properties properties = new Properties();
+        properties.setProperty("url", url);
+        properties.setProperty("charset", cached.charset.name());
+        synchronized (this) {
+            properties.setProperty("fetchedAt", cached.fetchedAt.toString());
+        }
+        if (cached.etag != null) {
+            properties.setProperty("etag", cached.etag);
+        }
+        if (cached.lastModified != null) {
+            properties.setProperty("lastModified", cached.lastModified);
+        }
+        try {
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, META_FILE, ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                properties.store(out, "Cafe Mac menu cache");
+            }
+            Files.move(temp, directory.resolve(META_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * A cached page: its charset, validators, when it was last confirmed by the server, and the menu parsed from it.
+     * The page itself lives only in the cache file. fetchedAt is guarded by the MenuCache lock and menu by the entry's own lock.
+     */
+    private static final class Entry {
+        final Charset charset;
+        final String etag;
+        final String lastModified;
+        Instant fetchedAt;
+        Menu menu;
+
+        Entry(Charset charset, String etag, String lastModified, Instant fetchedAt, Menu menu) {
+            this.charset = charset;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+            this.menu = menu;
+        }
+    }
+
+    /**
+     * Passes a response body through to the parser while copying every byte read to the cache file and counting them.
+     * It can also time its reads, which is how long the parser waited for the network. Closing it leaves the body open.
+     */
+    private static final class CopyingInputStream extends FilterInputStream {
+        private final OutputStream copy;
+        private final boolean timed;
+        private long count;
+        private long readNanos;
+
+        CopyingInputStream(InputStream in, OutputStream copy, boolean timed) {
+            super(in);
+            this.copy = copy;
+            this.timed = timed;
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = timed ? System.nanoTime() : 0;
+            int b = super.read();
+            if (timed) {
+                readNanos += System.nanoTime() - start;
+            }
+            if (b >= 0) {
+                copy.write(b);
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            long start = timed ? System.nanoTime() : 0;
+            int n = super.read(buffer, offset, length);
+            if (timed) {
+                readNanos += System.nanoTime() - start;
+            }
+            if (n > 0) {
+                copy.write(buffer, offset, n);
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            return Math.max(read(new byte[(int) Math.min(n, 8192)]), 0); // skipped bytes must still reach the copy
+        }
+
+        @Override
+        public void close() {
+            // the parser closes its reader when the page ends; the body is still drained and closed by revalidate()
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        long getReadNanos() {
+            return readNanos;
+        }
+    }
+}
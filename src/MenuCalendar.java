@@ -0,0 +1,90 @@
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Menus for several cafes over several days, keyed by date and then by cafe name, both kept sorted.
+ * Pages that could not be fetched are recorded as failures instead. Safe to fill from many threads at once.
+ */
+public class MenuCalendar {
+    private final ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<String, Menu>> menusByDate = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, String> failures = new ConcurrentSkipListMap<>();
+
+    /**
+     * Stores the menu of a cafe on a day, replacing any menu stored for the same pair.
+     *
+     * @param date the day
+     * @param cafe the cafe name
+     * @param menu the menu
+     */
+    public void put(LocalDate date, String cafe, Menu menu) {
+        menusByDate.computeIfAbsent(date, day -> new ConcurrentSkipListMap<>()).put(cafe, menu);
+    }
+
+    /**
+     * Returns the menu of a cafe on a day.
+     *
+     * @param date the day
+     * @param cafe the cafe name
+     * @return the menu, or null if none was stored
+     */
+    public Menu get(LocalDate date, String cafe) {
+        NavigableMap<String, Menu> menus = menusByDate.get(date);
+        return menus != null ? menus.get(cafe) : null;
+    }
+
+    /**
+     * Returns every cafe's menu on a day, sorted by cafe name.
+     *
+     * @param date the day
+     * @return read-only view of the menus (empty if none)
+     */
+    public NavigableMap<String, Menu> getMenusOn(LocalDate date) {
+        NavigableMap<String, Menu> menus = menusByDate.get(date);
+        return menus != null ? Collections.unmodifiableNavigableMap(menus) : Collections.emptyNavigableMap();
+    }
+
+    /**
+     * Returns the days that have at least one menu, in order.
+     *
+     * @return read-only view of the days
+     */
+    public NavigableSet<LocalDate> getDates() {
+        return Collections.unmodifiableNavigableSet(menusByDate.navigableKeySet());
+    }
+
+    /**
+     * Returns the number of stored menus.
+     *
+     * @return count of (date, cafe) pairs with a menu
+     */
+    public int size() {
+        int size = 0;
+        for (NavigableMap<String, Menu> menus : menusByDate.values()) {
+            size += menus.size();
+        }
+        return size;
+    }
+
+    /**
+     * Records that the menu of a cafe on a day could not be fetched.
+     *
+     * @param date the day
+     * @param cafe the cafe name
+     * @param reason what went wrong
+     */
+    public void putFailure(LocalDate date, String cafe, String reason) {
+        failures.put(date + " " + cafe, reason);
+    }
+
+    /**
+     * Returns the pages that could not be fetched, keyed by "date cafe".
+     *
+     * @return read-only view of the failures
+     */
+    public NavigableMap<String, String> getFailures() {
+        return Collections.unmodifiableNavigableMap(failures);
+    }
+}
@@ -0,0 +1,174 @@
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.Timer;
+
+/**
+ * Collects item changes from any thread (votes from the UI, the vote log, a server) and hands them to the UI in
+ * batches, at most one per frame, on the event dispatch thread.
+ *
+ * A change only marks its item dirty; the first change after a refresh starts a one-shot Swing Timer, and all the
+ * changes that arrive before it fires are refreshed together, each item once. So a thousand votes a second still cost
+ * one refresh per frame.
+ *
+ * The time spent in refreshes is measured, and the next refresh waits long enough that they take at most the given
+ * share of the EDT's time: if a refresh took 10 ms and the share is a quarter, the next one comes at least 30 ms later.
+ * Changes keep accumulating meanwhile, so nothing is lost, only shown a little later.
+ */
+public class MenuChangeBus implements FoodItemListener {
+
+    /**
+     * Receives the items that changed since the last refresh.
+     */
+    public interface Listener {
+
+        /**
+         * Called on the EDT with every item that changed since the previous call.
+         *
+         * @param changed the changed items, each once
+         */
+        void refresh(Set<FoodItem> changed);
+    }
+
+    private final Listener listener;
+    private final Timer timer;
+    private final long frameNanos;
+    private final double maxEdtShare;
+    private Set<FoodItem> dirty = newDirtySet();
+    private boolean scheduled;
+    private long earliestNext;
+    private long changes;
+    private long refreshes;
+    private long busyNanos;
+    private long maxBusyNanos;
+
+    /**
+     * Creates a bus. Register it with Menu.addChangeListener to hear about a menu's items.
+     *
+     * @param frameMillis the shortest time between two refreshes
+     * @param maxEdtShare the largest share of the EDT's time refreshes may take, between 0 (exclusive) and 1
+     * @param listener refreshes the UI
+     */
+    public MenuChangeBus(int frameMillis, double maxEdtShare, Listener listener) {
+        if (frameMillis < 1 || maxEdtShare <= 0 || maxEdtShare > 1) {
+            throw new IllegalArgumentException("Frame must be at least 1 ms and the EDT share in (0, 1]");
+        }
+        this.listener = listener;
+        this.frameNanos = TimeUnit.MILLISECONDS.toNanos(frameMillis);
+        this.maxEdtShare = maxEdtShare;
+        this.timer = new Timer(frameMillis, e -> refresh());
+        this.timer.setRepeats(false);
+        this.earliestNext = System.nanoTime();
+    }
+
+    @Override
+    public void ratingChanged(FoodItem item) {
+        markDirty(item);
+    }
+
+    @Override
+    public void categoryChanged(FoodItem item) {
+        markDirty(item);
+    }
+
+    /**
+     * Schedules a refresh of an item. Safe to call from any thread.
+     *
+     * @param item the item that changed
+     */
+    public synchronized void markDirty(FoodItem item) {
+        changes++;
+        dirty.add(item);
+        if (!scheduled) {
+            scheduled = true;
+            schedule(Math.max(frameNanos, earliestNext - System.nanoTime()));
+        }
+    }
+
+    /**
+     * Drops the pending changes and stops the timer, as when the menu is replaced.
+     */
+    public synchronized void cancel() {
+        timer.stop();
+        dirty = newDirtySet();
+        scheduled = false;
+    }
+
+    /**
+     * Runs on the EDT when the timer fires: refreshes the dirty items, then works out when the next refresh may run.
+     */
+    private void refresh() {
+        Set<FoodItem> changed;
+        synchronized (this) {
+            if (dirty.isEmpty()) {
+                scheduled = false;
+                return;
+            }
+            changed = dirty;
+            dirty = newDirtySet();
+        }
+        long start = System.nanoTime();
+        try {
+            listener.refresh(Collections.unmodifiableSet(changed));
+        } finally {
+            long end = System.nanoTime();
+            long busy = end - start;
+            long wait = Math.max(frameNanos, (long) (busy * (1 - maxEdtShare) / maxEdtShare));
+            synchronized (this) {
+                refreshes++;
+                busyNanos += busy;
+                maxBusyNanos = Math.max(maxBusyNanos, busy);
+                earliestNext = end + wait;
+                if (dirty.isEmpty()) {
+                    scheduled = false;
+                } else {
+                    schedule(wait);
+                }
+            }
+        }
+    }
+
+    private void schedule(long delayNanos) {
+        timer.setInitialDelay((int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(delayNanos)));
+        timer.restart();
+    }
+
+    private static Set<FoodItem> newDirtySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Returns how many changes were reported.
+     *
+     * @return the number of calls to markDirty
+     */
+    public synchronized long getChangeCount() {
+        return changes;
+    }
+
+    /**
+     * Returns how many refreshes ran.
+     *
+     * @return the number of times the listener was called
+     */
+    public synchronized long getRefreshCount() {
+        return refreshes;
+    }
+
+    /**
+     * Returns the time the listener has spent on the EDT.
+     *
+     * @return the total in nanoseconds
+     */
+    public synchronized long getBusyNanos() {
+        return busyNanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d changes in %d refreshes, %.1f ms on the EDT (max %.1f ms per refresh)", changes,
+                refreshes, busyNanos / 1e6, maxBusyNanos / 1e6);
+    }
+}
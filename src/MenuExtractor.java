@@ -0,0 +1,169 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.NodeFilter;
+
+/**
+ * A compiled plan for pulling the "Specials" items out of one meal section of the Cafe Mac page.
+ *
+ * Instead of running a separate CSS query for the tab button, the tab content and the title and labels of every item
+ * (each of which walks the section again, after building and parsing its selector string), the plan walks the section
+ * once and collects the tab mapping, item titles and label alt texts on the way. Tab panels other than the specials
+ * one are skipped without visiting their children once the specials tab is known.
+ *
+ * A plan holds no per-call state, so one instance can be shared by every parse, on any thread.
+ */
+public class MenuExtractor {
+    private static final String SPECIALS_SUFFIX = " specials";
+    private static final String ITEM_CLASS = "site-panel__daypart-item";
+    private static final String TITLE_CLASS = "site-panel__daypart-item-title";
+    private static final String TAB_PANEL_CLASS = "c-tab__content";
+
+    private final Function<String, String> categoryOfLabel;
+
+    /**
+     * Creates a plan that turns label alt texts into categories with the given function.
+     *
+     * @param categoryOfLabel maps a lowercased label alt text to a category name, or to null if it is not a dietary label
+     */
+    public MenuExtractor(Function<String, String> categoryOfLabel) {
+        this.categoryOfLabel = categoryOfLabel;
+    }
+
+    /**
+     * Returns the items listed under the "Specials" tab of a meal section, in page order.
+     * Items without any recognized label are left out, and each item's labels are deduplicated.
+     *
+     * @param meal the meal section element
+     * @param mealTime the meal name as shown on the tab button (matched case-insensitively, like "LUNCH")
+     * @return the special items of the meal (empty if the section has no specials tab)
+     */
+    public List<FoodItem> extractSpecials(Element meal, String mealTime) {
+        Walk walk = new Walk(mealTime.toLowerCase(Locale.ROOT) + SPECIALS_SUFFIX);
+        meal.filter(walk);
+        if (walk.specialsId == null) {
+            return new ArrayList<>();
+        }
+        List<FoodItem> items = new ArrayList<>();
+        for (ItemRecord record : walk.itemsByPanel.getOrDefault(walk.specialsId, List.of())) {
+            if (!record.labels.isEmpty()) {
+                items.add(new FoodItem(record.name != null ? record.name : "Unknown Item", record.labels));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * An item seen during the walk: its title and the categories of its labels.
+     */
+    private static final class ItemRecord {
+        String name;
+        final List<String> labels = new ArrayList<>();
+    }
+
+    /**
+     * The state of one walk over a meal section.
+     */
+    private final class Walk implements NodeFilter {
+        private final String specialsText;
+        private String specialsId;
+        private final Deque<Element> panels = new ArrayDeque<>();
+        private final Map<String, List<ItemRecord>> itemsByPanel = new HashMap<>();
+        private Element itemElement;
+        private ItemRecord item;
+
+        Walk(String specialsText) {
+            this.specialsText = specialsText;
+        }
+
+        @Override
+        public FilterResult head(Node node, int depth) {
+            if (!(node instanceof Element)) {
+                return FilterResult.CONTINUE;
+            }
+            Element element = (Element) node;
+            switch (element.normalName()) {
+                case "button":
+                    return button(element);
+                case "img":
+                    if (item != null && element.hasAttr("alt")) {
+                        String category = categoryOfLabel.apply(element.attr("alt").toLowerCase());
+                        if (category != null && !item.labels.contains(category)) {
+                            item.labels.add(category);
+                        }
+                    }
+                    return FilterResult.CONTINUE;
+                case "div":
+                    return div(element);
+                default:
+                    return FilterResult.CONTINUE;
+            }
+        }
+
+        @Override
+        public FilterResult tail(Node node, int depth) {
+            if (node == itemElement) {
+                for (Element panel : panels) {
+                    itemsByPanel.computeIfAbsent(panel.id(), id -> new ArrayList<>()).add(item);
+                }
+                itemElement = null;
+                item = null;
+            }
+            if (node == panels.peek()) {
+                panels.pop();
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        /**
+         * An item title gives the current item its name; the first specials tab button gives the specials panel id.
+         * Either way the button's text has been read, so its children need no visit.
+         */
+        private FilterResult button(Element button) {
+            if (item != null && item.name == null && button.hasClass("h4") && button.hasClass(TITLE_CLASS)) {
+                item.name = button.text().trim();
+                return FilterResult.SKIP_CHILDREN;
+            }
+            if (specialsId == null && button.text().toLowerCase().contains(specialsText)) {
+                specialsId = button.attr("aria-controls");
+                return FilterResult.SKIP_CHILDREN;
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        /**
+         * Tracks which panels (divs with an id) the walk is inside, and where items start.
+         */
+        private FilterResult div(Element div) {
+            String id = div.id();
+            if (!id.isEmpty()) {
+                if (specialsId != null && !id.equals(specialsId) && div.hasClass(TAB_PANEL_CLASS) && !inSpecials()) {
+                    return FilterResult.SKIP_ENTIRELY; // another tab's items are never used
+                }
+                panels.push(div);
+            }
+            if (item == null && div.hasClass(ITEM_CLASS)) {
+                itemElement = div;
+                item = new ItemRecord();
+            }
+            return FilterResult.CONTINUE;
+        }
+
+        private boolean inSpecials() {
+            for (Element panel : panels) {
+                if (panel.id().equals(specialsId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Loads the menu off the Swing event dispatch thread so the window never freezes during the network round trip.
+ *
+ * A load runs on a virtual thread as one pipeline: fetch and parse (each meal is published as soon as it is parsed),
+ * prepare the ratings, build a fresh autocomplete index, then publish the finished menu. All results are handed to
+ * the listener on the UI executor (the EDT by default). Starting a new load or calling cancel() interrupts the running
+ * one, and anything it had already queued for the UI is dropped.
+ *
+ * When a snapshot file is given, every successfully loaded menu is saved to it as a MenuSnapshot, and
+ * loadFromSnapshot() shows that last known menu within milliseconds before refreshing it from the network.
+ */
+public class MenuLoader {
+
+    /**
+     * Receives the results of a load on the UI thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called for each meal section as soon as it has been parsed.
+         *
+         * @param mealType the meal name, like "LUNCH"
+         * @param items the items of that meal
+         */
+        void mealLoaded(String mealType, List<FoodItem> items);
+
+        /**
+         * Called once the whole menu has been parsed, rated and indexed, or once the load has failed.
+         *
+         * @param menu the loaded menu (empty if scraping, preparing or indexing failed)
+         * @param autoComplete a search index built from that menu
+         */
+        void menuLoaded(Menu menu, AutoComplete autoComplete);
+
+        /**
+         * Called when the last known menu has been read from the snapshot, before the fresh one starts loading.
+         * More calls (mealLoaded, then menuLoaded) follow once the network load has finished.
+         *
+         * @param menu the menu as it was last saved
+         * @param autoComplete its search index
+         */
+        default void snapshotLoaded(Menu menu, AutoComplete autoComplete) {
+        }
+    }
+
+    private final Function<MealListener, Menu> source;
+    private final Executor uiExecutor;
+    private final ExecutorService workers;
+    private final Path snapshotFile;
+    private Future<?> running;
+    private long generation;
+
+    /**
+     * Creates a loader that scrapes Cafe Mac's website and publishes on the Swing event dispatch thread.
+     */
+    public MenuLoader() {
+        this(JsoupScraper::scrapeMenu, SwingUtilities::invokeLater);
+    }
+
+    /**
+     * Creates a loader with a custom menu source and UI executor.
+     *
+     * @param source produces a menu, reporting each meal to the given MealListener as it is parsed
+     * @param uiExecutor where listener callbacks are run
+     */
+    public MenuLoader(Function<MealListener, Menu> source, Executor uiExecutor) {
+        this(source, uiExecutor, null);
+    }
+
+    /**
+     * Creates a loader that also saves every loaded menu to a snapshot file.
+     *
+     * @param source produces a menu, reporting each meal to the given MealListener as it is parsed
+     * @param uiExecutor where listener callbacks are run
+     * @param snapshotFile where the last loaded menu is kept, or null to keep none
+     */
+    public MenuLoader(Function<MealListener, Menu> source, Executor uiExecutor, Path snapshotFile) {
+        this.source = source;
+        this.uiExecutor = uiExecutor;
+        this.snapshotFile = snapshotFile;
+        this.workers = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    /**
+     * Starts loading the menu, cancelling any load that is still running.
+     *
+     * @param prepare runs on the loading thread once the menu is parsed, before it is indexed (e.g. to restore ratings)
+     * @param listener receives the meals and the finished menu on the UI executor
+     */
+    public synchronized void load(Consumer<Menu> prepare, Listener listener) {
+        start(false, prepare, listener);
+    }
+
+    /**
+     * Like load(), but first hands the listener the menu saved in the snapshot file, if there is a readable one.
+     *
+     * @param prepare runs on the loading thread for the snapshot menu and again for the fresh one, before each is published
+     * @param listener receives the snapshot menu, then the meals and the finished fresh menu, on the UI executor
+     */
+    public synchronized void loadFromSnapshot(Consumer<Menu> prepare, Listener listener) {
+        start(snapshotFile != null, prepare, listener);
+    }
+
+    private void start(boolean fromSnapshot, Consumer<Menu> prepare, Listener listener) {
+        cancel();
+        long loadGeneration = generation;
+        running = workers.submit(() -> {
+            try {
+                if (fromSnapshot) {
+                    showSnapshot(loadGeneration, prepare, listener);
+                }
+                run(loadGeneration, prepare, listener);
+            } catch (RuntimeException e) {
+                // the Future is never read, so the listener must hear about the failure or the UI waits forever
+                e.printStackTrace();
+                publish(loadGeneration, () -> listener.menuLoaded(new Menu(), new AutoComplete()));
+            }
+        });
+    }
+
+    /**
+     * Cancels the running load, if any. Its pending UI updates are dropped.
+     *
+     * @return true if a load was running
+     */
+    public synchronized boolean cancel() {
+        generation++;
+        boolean wasRunning = isLoading();
+        if (running != null) {
+            running.cancel(true);
+            running = null;
+        }
+        return wasRunning;
+    }
+
+    /**
+     * Tells whether a load is in progress.
+     *
+     * @return true if a load has been started and has neither finished nor been cancelled
+     */
+    public synchronized boolean isLoading() {
+        return running != null && !running.isDone();
+    }
+
+    /**
+     * Reads the snapshot and publishes it; a missing or unreadable snapshot is skipped.
+     */
+    private void showSnapshot(long loadGeneration, Consumer<Menu> prepare, Listener listener) {
+        if (!Files.exists(snapshotFile)) {
+            return;
+        }
+        MenuSnapshot snapshot;
+        try {
+            snapshot = MenuSnapshot.read(snapshotFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        prepare.accept(snapshot.getMenu());
+        publish(loadGeneration, () -> listener.snapshotLoaded(snapshot.getMenu(), snapshot.getAutoComplete()));
+    }
+
+    /**
+     * The loading pipeline: fetch and parse, prepare, index, save the snapshot, publish.
+     */
+    private void run(long loadGeneration, Consumer<Menu> prepare, Listener listener) {
+        Menu menu = source.apply((mealType, items) -> publish(loadGeneration, () -> listener.mealLoaded(mealType, items)));
+        if (!isCurrent(loadGeneration)) {
+            return;
+        }
+        prepare.accept(menu);
+        AutoComplete autoComplete = new AutoComplete();
+        autoComplete.addMenuItems(menu);
+        if (snapshotFile != null && !menu.getMenue().isEmpty() && !Thread.currentThread().isInterrupted()) {
+            try {
+                MenuSnapshot.write(snapshotFile, menu, autoComplete); // a failed scrape never replaces the last good menu
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+        publish(loadGeneration, () -> listener.menuLoaded(menu, autoComplete));
+    }
+
+    /**
+     * Runs an update on the UI executor unless its load has been superseded in the meantime.
+     */
+    private void publish(long loadGeneration, Runnable update) {
+        if (Thread.currentThread().isInterrupted() || !isCurrent(loadGeneration)) {
+            return;
+        }
+        uiExecutor.execute(() -> {
+            if (isCurrent(loadGeneration)) {
+                update.run();
+            }
+        });
+    }
+
+    /**
+     * Checks whether the given load is still the latest one and has not been cancelled.
+     */
+    private synchronized boolean isCurrent(long loadGeneration) {
+        return generation == loadGeneration;
+    }
+}
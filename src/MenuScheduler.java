@@ -0,0 +1,139 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+/**
+ * Scrapes menus for many (cafe, date) pairs at once, for planning a week ahead across several cafes.
+ *
+ * Every page is fetched on its own virtual thread and parsed while it downloads, and each finished menu is merged
+ * into a MenuCalendar. All the Bon Appétit sites may share a host, so each host gets a limit on requests in flight
+ * and a token bucket on how often new requests start. The limits belong to the scheduler and so also hold across
+ * overlapping fetch calls.
+ */
+public class MenuScheduler {
+    private final int maxConcurrentPerHost;
+    private final double requestsPerSecond;
+    private final int burst;
+    private final Map<String, HostLimit> hosts = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a scheduler.
+     *
+     * @param maxConcurrentPerHost how many requests to one host may be in flight at a time
+     * @param requestsPerSecond how many requests per second may be started to one host, on average
+     * @param burst how many requests may be started to one host back to back
+     */
+    public MenuScheduler(int maxConcurrentPerHost, double requestsPerSecond, int burst) {
+        if (maxConcurrentPerHost < 1) {
+            throw new IllegalArgumentException("At least one request per host must be allowed");
+        }
+        this.maxConcurrentPerHost = maxConcurrentPerHost;
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Fetches the menu of every cafe on each of the next days, starting from the given one.
+     *
+     * @param cafes the cafes
+     * @param start the first day
+     * @param days how many days
+     * @return the menus, keyed by date and cafe
+     * @throws InterruptedException if interrupted while waiting (pages not fetched yet are abandoned)
+     */
+    public MenuCalendar fetchDays(List<Cafe> cafes, LocalDate start, int days) throws InterruptedException {
+        List<LocalDate> dates = new ArrayList<>();
+        for (int i = 0; i < days; i++) {
+            dates.add(start.plusDays(i));
+        }
+        return fetch(cafes, dates);
+    }
+
+    /**
+     * Fetches the menu of every cafe on every date, and waits until all of them are done.
+     * A page that cannot be fetched or parsed is recorded as a failure in the result and does not stop the others.
+     *
+     * @param cafes the cafes
+     * @param dates the days
+     * @return the menus, keyed by date and cafe
+     * @throws InterruptedException if interrupted while waiting (pages not fetched yet are abandoned)
+     */
+    public MenuCalendar fetch(List<Cafe> cafes, List<LocalDate> dates) throws InterruptedException {
+        MenuCalendar calendar = new MenuCalendar();
+        ExecutorService fetchers = Executors.newVirtualThreadPerTaskExecutor();
+        try {
+            for (LocalDate date : dates) {
+                for (Cafe cafe : cafes) {
+                    fetchers.submit(() -> fetchInto(calendar, cafe, date));
+                }
+            }
+            fetchers.shutdown();
+            while (!fetchers.awaitTermination(1, TimeUnit.MINUTES)) {
+                // keep waiting; each page is bounded by the connection timeout
+            }
+        } finally {
+            fetchers.shutdownNow();
+        }
+        return calendar;
+    }
+
+    /**
+     * Fetches one page within its host's limits and stores the result.
+     */
+    private void fetchInto(MenuCalendar calendar, Cafe cafe, LocalDate date) {
+        String url = cafe.urlFor(date);
+        HostLimit limit = hosts.computeIfAbsent(URI.create(url).getAuthority(), host -> new HostLimit());
+        try {
+            limit.inFlight.acquire();
+            try {
+                // Take the token only once a slot is free: a token taken while queued for a slot would let the whole
+                // queue start together when a batch of slow requests finishes.
+                limit.rate.acquire();
+                calendar.put(date, cafe.name(), download(url));
+            } finally {
+                limit.inFlight.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            calendar.putFailure(date, cafe.name(), e.toString());
+        }
+    }
+
+    /**
+     * Downloads a menu page and parses it as it streams in.
+     */
+    private static Menu download(String url) throws IOException {
+        Connection.Response response = Jsoup.connect(url).ignoreHttpErrors(true).execute();
+        if (response.statusCode() != 200) {
+            throw new IOException("HTTP " + response.statusCode() + " fetching " + url);
+        }
+        Charset charset = response.charset() != null ? Charset.forName(response.charset()) : StandardCharsets.UTF_8;
+        try (InputStream body = response.bodyStream()) {
+            return JsoupScraper.parseMenu(new InputStreamReader(body, charset), url, (mealType, items) -> { });
+        }
+    }
+
+    /**
+     * The limits for one host.
+     */
+    private final class HostLimit {
+        final Semaphore inFlight = new Semaphore(maxConcurrentPerHost, true);
+        final TokenBucket rate = new TokenBucket(requestsPerSecond, burst);
+    }
+}
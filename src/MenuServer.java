@@ -0,0 +1,461 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves a menu over HTTP as JSON, so many clients can share one ranking.
+ *
+ * Endpoints:
+ *   GET  /menu                     every meal and its items
+ *   GET  /search?q=sha&limit=10    the best rated items whose name starts with q (AutoComplete)
+ *   GET  /category?name=Vegan      the items of a category, without repeated names, best first
+ *   GET  /top?k=5                  the k best rated items
+ *   POST /vote?name=Salad&delta=1  an up (1) or down (-1) vote on every item with that name; returns its new rating
+ *
+ * Requests are handled on virtual threads. Responses carry a Content-Length, so the JDK server keeps connections
+ * alive between requests. Bodies over half a kilobyte are gzipped for clients that accept it. A kept-alive connection
+ * stalls on delayed ACKs unless the JVM runs with -Dsun.net.httpserver.nodelay=true, which main() (and `gradle server`)
+ * turns on; an application embedding the server decides that for itself.
+ *
+ * The menu, category and top-k responses are built ahead of time, serialized and compressed once, and served as
+ * bytes. Votes (from this server or anywhere else) mark them out of date through the menu's change listeners; an
+ * out-of-date response is rebuilt by the next request for it, unless it was built less than maxStaleMillis ago, so a
+ * stream of votes cannot make every read rebuild it. Ratings in those responses may therefore lag by that long.
+ */
+public class MenuServer {
+    private static final int GzipThreshold = 512;
+    private static final int MaxCachedResponses = 64;
+    private static final int DefaultSearchLimit = 10;
+    private static final int DefaultTopK = 5;
+    private static final int MaxResults = 1000;
+
+    private final Menu menu;
+    private final AutoComplete autoComplete;
+    private final long maxStaleNanos;
+    private final Map<String, List<FoodItem>> itemsByName = new HashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private final Map<String, Response> hotResponses = new ConcurrentHashMap<>();
+    private final FoodItemListener changeListener;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates a server for a fully loaded menu; call start() to accept requests.
+     * @param menu The menu to serve; items added to it later are not served.
+     * @param autoComplete The search index of the menu.
+     * @param address Where to listen; port 0 picks a free port.
+     * @param maxStaleMillis How long a cached response may be served after a vote changed it.
+     * @throws IOException If the address cannot be bound.
+     */
+    public MenuServer(Menu menu, AutoComplete autoComplete, InetSocketAddress address, long maxStaleMillis)
+            throws IOException {
+        this.menu = menu;
+        this.autoComplete = autoComplete;
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+        for (FoodItem item : menu.getAllFoodItems()) {
+            if (item.getName() == null) {
+                continue; // listed in the menu, but there is no name to vote for it by
+            }
+            itemsByName.computeIfAbsent(item.getName().toLowerCase(), name -> new ArrayList<>(1)).add(item);
+        }
+        changeListener = new FoodItemListener() {
+            @Override
+            public void ratingChanged(FoodItem item) {
+                version.incrementAndGet();
+            }
+
+            @Override
+            public void categoryChanged(FoodItem item) {
+                version.incrementAndGet();
+            }
+        };
+        menu.addChangeListener(changeListener);
+
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        precompute();
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for the ones in progress, and detaches from the menu.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.close();
+        menu.removeChangeListener(changeListener);
+    }
+
+    /**
+     * Returns the port the server listens on, useful when it was created with port 0.
+     * @return The port.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Builds the hot responses before the first request, so no client waits for them. Only the categories this menu
+     * has items in are built, so categories seen elsewhere in the process do not fill the bounded cache.
+     */
+    private void precompute() {
+        hotResponse("/menu", this::menuJson);
+        hotResponse("/top?k=" + DefaultTopK, () -> itemsJson(menu.getTopFoodItems(DefaultTopK)));
+        for (String category : CategoryDictionary.names()) {
+            if (menu.getTopItemInCategory(category) != null) {
+                categoryResponse(category);
+            }
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Response response;
+            try {
+                response = route(exchange);
+            } catch (IllegalArgumentException e) {
+                response = Response.of(400, errorJson(e.getMessage()));
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                response = Response.of(500, errorJson("Internal error"));
+            }
+            send(exchange, response);
+        }
+    }
+
+    private Response route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        String method = exchange.getRequestMethod();
+        if (path.equals("/vote")) {
+            drain(exchange.getRequestBody());
+            return method.equals("POST") ? vote(query) : Response.of(405, errorJson("Use POST to vote"));
+        }
+        if (!method.equals("GET")) {
+            return Response.of(405, errorJson("Use GET for " + path));
+        }
+        switch (path) {
+            case "/menu":
+                return hotResponse("/menu", this::menuJson);
+            case "/search": {
+                String prefix = required(query, "q");
+                int limit = intParameter(query, "limit", DefaultSearchLimit, 1, MaxResults);
+                return Response.of(200, itemsJson(autoComplete.topCompletions(prefix, limit)));
+            }
+            case "/category": {
+                return categoryResponse(required(query, "name"));
+            }
+            case "/top": {
+                int k = intParameter(query, "k", DefaultTopK, 1, MaxResults);
+                return hotResponse("/top?k=" + k, () -> itemsJson(menu.getTopFoodItems(k)));
+            }
+            default:
+                return Response.of(404, errorJson("No such endpoint: " + path));
+        }
+    }
+
+    /**
+     * Serves a category from the cache, keyed by its id so that "vegan" and "Vegan" share one response.
+     */
+    private Response categoryResponse(String category) {
+        int id = CategoryDictionary.lookup(category);
+        if (id < 0) {
+            return Response.of(200, "[]");
+        }
+        return hotResponse("/category?id=" + id, () -> itemsJson(menu.getUniqueFoodItemsByCategory(category)));
+    }
+
+    private Response vote(Map<String, String> query) {
+        String name = required(query, "name");
+        int delta = intParameter(query, "delta", 1, -1, 1);
+        if (delta == 0) {
+            throw new IllegalArgumentException("delta must be 1 or -1");
+        }
+        List<FoodItem> items = itemsByName.get(name.toLowerCase());
+        if (items == null) {
+            return Response.of(404, errorJson("No item named " + name));
+        }
+        for (FoodItem item : items) {
+            item.addVotes(delta);
+        }
+        StringBuilder json = new StringBuilder();
+        json.append("{\"name\":");
+        Json.string(json, items.get(0).getName());
+        json.append(",\"rating\":").append(items.get(0).getRating()).append('}');
+        return Response.of(200, json.toString());
+    }
+
+    /**
+     * Returns a cached response, rebuilding it if a vote changed it more than maxStaleMillis ago.
+     * Only a bounded number of distinct responses are kept; beyond that they are built for each request.
+     */
+    private Response hotResponse(String key, Supplier<String> build) {
+        long now = System.nanoTime();
+        Response cached = hotResponses.get(key);
+        if (cached != null && (cached.version == version.get() || now - cached.builtAt < maxStaleNanos)) {
+            return cached;
+        }
+        long builtFrom = version.get(); // read before building: a vote during the build leaves it out of date
+        Response response = Response.of(200, build.get()).cacheable(builtFrom, now);
+        if (cached != null || hotResponses.size() < MaxCachedResponses) {
+            hotResponses.put(key, response);
+        }
+        return response;
+    }
+
+    private void send(HttpExchange exchange, Response response) throws IOException {
+        String accepted = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        boolean gzip = response.gzipped != null && accepted != null && accepted.contains("gzip");
+        byte[] body = gzip ? response.gzipped : response.body;
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (gzip) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private String menuJson() {
+        StringBuilder json = new StringBuilder("{");
+        boolean first = true;
+        for (Map.Entry<String, List<FoodItem>> meal : menu.getMenue().entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            Json.string(json, meal.getKey());
+            json.append(':');
+            Json.items(json, meal.getValue());
+        }
+        return json.append('}').toString();
+    }
+
+    private static String itemsJson(List<FoodItem> items) {
+        StringBuilder json = new StringBuilder();
+        Json.items(json, items);
+        return json.toString();
+    }
+
+    private static String errorJson(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        Json.string(json, message);
+        return json.append('}').toString();
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static String required(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing parameter " + name);
+        }
+        return value.trim();
+    }
+
+    private static int intParameter(Map<String, String> query, String name, int defaultValue, int min, int max) {
+        String value = query.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        int parsed;
+        try {
+            parsed = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number");
+        }
+        if (parsed < min || parsed > max) {
+            throw new IllegalArgumentException(name + " must be between " + min + " and " + max);
+        }
+        return parsed;
+    }
+
+    private static void drain(InputStream body) throws IOException {
+        body.transferTo(OutputStream.nullOutputStream()); // the connection is only reused once the body is read
+    }
+
+    /**
+     * A response ready to send: its status and body, also gzipped if it is large enough to be worth it.
+     */
+    private static final class Response {
+        final int status;
+        final byte[] body;
+        final byte[] gzipped;
+        final long version;
+        final long builtAt;
+
+        private Response(int status, byte[] body, byte[] gzipped, long version, long builtAt) {
+            this.status = status;
+            this.body = body;
+            this.gzipped = gzipped;
+            this.version = version;
+            this.builtAt = builtAt;
+        }
+
+        static Response of(int status, String json) {
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            return new Response(status, body, body.length >= GzipThreshold ? gzip(body) : null, -1, 0);
+        }
+
+        Response cacheable(long version, long builtAt) {
+            return new Response(status, body, gzipped, version, builtAt);
+        }
+
+        private static byte[] gzip(byte[] body) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(body);
+            } catch (IOException e) {
+                throw new IllegalStateException("Writing to memory cannot fail", e);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    /**
+     * The little JSON the server writes: strings and lists of items.
+     */
+    static final class Json {
+        private Json() {
+        }
+
+        static void items(StringBuilder json, List<FoodItem> items) {
+            json.append('[');
+            for (int i = 0; i < items.size(); i++) {
+                FoodItem item = items.get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"name\":");
+                string(json, item.getName());
+                json.append(",\"rating\":").append(item.getRating()).append(",\"categories\":[");
+                List<String> categories = item.getCategory();
+                for (int c = 0; categories != null && c < categories.size(); c++) {
+                    if (c > 0) {
+                        json.append(',');
+                    }
+                    string(json, categories.get(c));
+                }
+                json.append("]}");
+            }
+            json.append(']');
+        }
+
+        static void string(StringBuilder json, String value) {
+            if (value == null) {
+                json.append("null");
+                return;
+            }
+            json.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> json.append("\\\"");
+                    case '\\' -> json.append("\\\\");
+                    case '\n' -> json.append("\\n");
+                    case '\r' -> json.append("\\r");
+                    case '\t' -> json.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            json.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            json.append(c);
+                        }
+                    }
+                }
+            }
+            json.append('"');
+        }
+    }
+
+    /**
+     * Serves a menu: the one saved by the app's last run if there is one, otherwise today's scraped menu, or with
+     * --generated N a made-up menu of N items (for load tests).
+     * Options: [--port 8080] [--generated N] [--max-stale-ms 50]
+     * @param args See above.
+     * @throws IOException If the port cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int generated = 0;
+        long maxStaleMillis = 50;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--port" -> port = Integer.parseInt(args[i + 1]);
+                case "--generated" -> generated = Integer.parseInt(args[i + 1]);
+                case "--max-stale-ms" -> maxStaleMillis = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        // The JDK server writes a response's headers and body separately; with Nagle's algorithm on, the body then
+        // waits for the client's delayed ACK, adding about 40 ms to every kept-alive request. The property is read
+        // when the first HttpServer is created, so it is set before that.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        Menu menu;
+        AutoComplete autoComplete;
+        Path snapshot = Paths.get(System.getProperty("user.home"), ".cafemac", "menu.snapshot");
+        if (generated > 0) {
+            menu = WorkloadGenerator.generateMenu(generated, 1);
+            FoodItem.applyVotes(new WorkloadGenerator(menu, 1).votes(generated * 50));
+            autoComplete = new AutoComplete();
+            autoComplete.addMenuItems(menu);
+        } else if (Files.exists(snapshot)) {
+            MenuSnapshot saved = MenuSnapshot.read(snapshot);
+            menu = saved.getMenu();
+            autoComplete = saved.getAutoComplete();
+        } else {
+            menu = JsoupScraper.scrapeMenu();
+            autoComplete = new AutoComplete();
+            autoComplete.addMenuItems(menu);
+        }
+        MenuServer server = new MenuServer(menu, autoComplete, new InetSocketAddress(port), maxStaleMillis);
+        server.start();
+        System.out.printf("Serving %d items on http://localhost:%d/menu%n", menu.getAllFoodItems().size(),
+                server.getPort());
+    }
+}
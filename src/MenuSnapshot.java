@@ -0,0 +1,341 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A compact binary copy of a Menu and its built autocomplete index, so the last known menu can be shown at startup
+ * before the network scrape, parse and index build have finished.
+ *
+ * Layout (all counts and ids are unsigned LEB128 varints, ratings are zigzag varints):
+ * magic, version, save time, the string table (every distinct meal, item and category name once), the items
+ * (name, categories and rating), the meals (name and item ids), the trie nodes in preorder (edge keys, items and
+ * ranked cache as item ids, then the children), and finally a CRC32 of all of it. The file is read through a
+ * memory mapping, and the trie is rebuilt node by node with its ranked caches as stored, so nothing is re-sorted.
+ */
+public final class MenuSnapshot {
+    private static final int MAGIC = 0x434D534E;
+    /** Format version; a file with any other version is rejected. */
+    public static final int VERSION = 1;
+
+    private final Menu menu;
+    private final AutoComplete autoComplete;
+    private final Instant savedAt;
+
+    private MenuSnapshot(Menu menu, AutoComplete autoComplete, Instant savedAt) {
+        this.menu = menu;
+        this.autoComplete = autoComplete;
+        this.savedAt = savedAt;
+    }
+
+    /**
+     * Returns the menu read from the snapshot.
+     * @return The menu, with its ratings as they were when it was saved.
+     */
+    public Menu getMenu() {
+        return menu;
+    }
+
+    /**
+     * Returns the autocomplete index read from the snapshot. It refers to the items of getMenu().
+     * @return The index.
+     */
+    public AutoComplete getAutoComplete() {
+        return autoComplete;
+    }
+
+    /**
+     * Returns when the snapshot was written.
+     * @return The save time.
+     */
+    public Instant getSavedAt() {
+        return savedAt;
+    }
+
+    /**
+     * Writes a menu and its index to a file (through a temporary file renamed into place, so a reader never sees
+     * half a snapshot). The menu is read as one version, so items added meanwhile are simply not included.
+     * @param file The snapshot file.
+     * @param menu The menu.
+     * @param autoComplete An index built from the menu.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, Menu menu, AutoComplete autoComplete) throws IOException {
+        Trie trie = autoComplete.getTrie();
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        Map<FoodItem, Integer> itemIds = new IdentityHashMap<>();
+        List<FoodItem> items = new ArrayList<>();
+        Map<String, List<FoodItem>> meals = menu.getMenue();
+        for (Map.Entry<String, List<FoodItem>> meal : meals.entrySet()) {
+            intern(meal.getKey(), stringIds, strings);
+            for (FoodItem item : meal.getValue()) {
+                number(item, itemIds, items, stringIds, strings);
+            }
+        }
+        // Encode under the index's lock, so rankings and ratings are read at the same moment, but write the file
+        // after releasing it, so votes never wait on the disk.
+        Output out = new Output();
+        synchronized (trie) {
+            trie.repairStale();
+            numberTrieItems(trie.getRoot(), itemIds, items, stringIds, strings);
+
+            out.putInt(MAGIC);
+            out.putVarint(VERSION);
+            out.putLong(System.currentTimeMillis());
+            out.putVarint(strings.size());
+            for (String string : strings) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                out.putVarint(bytes.length);
+                out.put(bytes);
+            }
+            out.putVarint(items.size());
+            for (FoodItem item : items) {
+                out.putVarint(item.getName() == null ? 0 : stringIds.get(item.getName()) + 1);
+                List<String> categories = item.getCategory();
+                out.putVarint(categories == null ? 0 : categories.size());
+                if (categories != null) {
+                    for (String category : categories) {
+                        out.putVarint(stringIds.get(category));
+                    }
+                }
+                out.putZigzag(item.getRating());
+            }
+            out.putVarint(meals.size());
+            for (Map.Entry<String, List<FoodItem>> meal : meals.entrySet()) {
+                out.putVarint(stringIds.get(meal.getKey()));
+                out.putVarint(meal.getValue().size());
+                for (FoodItem item : meal.getValue()) {
+                    out.putVarint(item == null ? 0 : itemIds.get(item) + 1);
+                }
+            }
+            out.putVarint(trie.getRankingSize());
+            writeNode(trie.getRoot(), itemIds, out);
+
+            CRC32 crc = new CRC32();
+            crc.update(out.bytes, 0, out.size);
+            out.putLong(crc.getValue());
+        }
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(temp, Arrays.copyOf(out.bytes, out.size));
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a snapshot written by write().
+     * @param file The snapshot file.
+     * @return The menu and index it holds.
+     * @throws IOException If the file is missing, from another version, or damaged.
+     */
+    public static MenuSnapshot read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 || size > Integer.MAX_VALUE) {
+                throw new IOException("Unrecognized menu snapshot: " + file);
+            }
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(in.duplicate().limit((int) size - 8));
+            if (in.getLong((int) size - 8) != crc.getValue()) {
+                throw new IOException("Corrupt menu snapshot: " + file);
+            }
+            if (in.getInt() != MAGIC || readVarint(in) != VERSION) {
+                throw new IOException("Unrecognized menu snapshot: " + file);
+            }
+            Instant savedAt = Instant.ofEpochMilli(in.getLong());
+
+            String[] strings = new String[readVarint(in)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarint(in)];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            FoodItem[] items = new FoodItem[readVarint(in)];
+            for (int i = 0; i < items.length; i++) {
+                int name = readVarint(in);
+                List<String> categories = new ArrayList<>();
+                for (int count = readVarint(in); count > 0; count--) {
+                    categories.add(strings[readVarint(in)]);
+                }
+                items[i] = new FoodItem(name == 0 ? null : strings[name - 1], categories);
+                items[i].setRating(readZigzag(in));
+            }
+            Menu menu = new Menu();
+            for (int meals = readVarint(in); meals > 0; meals--) {
+                String meal = strings[readVarint(in)];
+                for (int count = readVarint(in); count > 0; count--) {
+                    int item = readVarint(in);
+                    menu.addFoodItem(meal, item == 0 ? null : items[item - 1]);
+                }
+            }
+            Trie trie = new Trie(readVarint(in));
+            trie.restore(readNode(in, items));
+            return new MenuSnapshot(menu, new AutoComplete(trie), savedAt);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt menu snapshot: " + file, e);
+        }
+    }
+
+    private static void intern(String string, Map<String, Integer> stringIds, List<String> strings) {
+        if (string != null && !stringIds.containsKey(string)) {
+            stringIds.put(string, strings.size());
+            strings.add(string);
+        }
+    }
+
+    private static void number(FoodItem item, Map<FoodItem, Integer> itemIds, List<FoodItem> items,
+            Map<String, Integer> stringIds, List<String> strings) {
+        if (item == null || itemIds.containsKey(item)) {
+            return;
+        }
+        itemIds.put(item, items.size());
+        items.add(item);
+        intern(item.getName(), stringIds, strings);
+        if (item.getCategory() != null) {
+            for (String category : item.getCategory()) {
+                intern(category, stringIds, strings);
+            }
+        }
+    }
+
+    /**
+     * Numbers any indexed item that is not on the menu (normally there are none).
+     */
+    private static void numberTrieItems(TrieNode node, Map<FoodItem, Integer> itemIds, List<FoodItem> items,
+            Map<String, Integer> stringIds, List<String> strings) {
+        for (int i = 0; i < node.getItemCount(); i++) {
+            number(node.getItemAt(i), itemIds, items, stringIds, strings);
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            numberTrieItems(node.getChildAt(i), itemIds, items, stringIds, strings);
+        }
+    }
+
+    private static void writeNode(TrieNode node, Map<FoodItem, Integer> itemIds, Output out) {
+        out.putVarint(node.getChildCount());
+        for (int i = 0; i < node.getChildCount(); i++) {
+            out.putVarint(node.getKeyAt(i));
+        }
+        out.putVarint(node.getItemCount());
+        for (int i = 0; i < node.getItemCount(); i++) {
+            out.putVarint(itemIds.get(node.getItemAt(i)));
+        }
+        FoodItem[] top = node.getTopItems();
+        out.putVarint(top.length);
+        for (FoodItem item : top) {
+            out.putVarint(itemIds.get(item));
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            writeNode(node.getChildAt(i), itemIds, out);
+        }
+    }
+
+    private static TrieNode readNode(ByteBuffer in, FoodItem[] items) {
+        char[] keys = new char[readVarint(in)];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (char) readVarint(in);
+        }
+        FoodItem[] nodeItems = readItems(in, items);
+        FoodItem[] top = readItems(in, items);
+        TrieNode[] children = new TrieNode[keys.length];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = readNode(in, items);
+        }
+        return new TrieNode(keys, children, nodeItems, top);
+    }
+
+    private static FoodItem[] readItems(ByteBuffer in, FoodItem[] items) {
+        FoodItem[] result = new FoodItem[readVarint(in)];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = items[readVarint(in)];
+        }
+        return result;
+    }
+
+    private static int readVarint(ByteBuffer in) {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    private static int readZigzag(ByteBuffer in) {
+        long value = readVarLong(in);
+        return (int) ((value >>> 1) ^ -(value & 1));
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * A growable byte array with the encodings used by the format.
+     */
+    private static final class Output {
+        byte[] bytes = new byte[4096];
+        int size;
+
+        void put(byte[] data) {
+            ensure(data.length);
+            System.arraycopy(data, 0, bytes, size, data.length);
+            size += data.length;
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                bytes[size++] = (byte) (value >>> shift);
+            }
+        }
+
+        void putVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void putZigzag(int value) {
+            putVarint(((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
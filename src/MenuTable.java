@@ -0,0 +1,399 @@
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.AbstractCellEditor;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JTable;
+import javax.swing.border.Border;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableCellEditor;
+import javax.swing.table.TableCellRenderer;
+import javax.swing.table.TableColumn;
+
+/**
+ * Shows menu items as a list of rows (number and name, an up vote and a down vote button, the score) under
+ * section headers such as the meal or the category.
+ *
+ * Only the rows inside the scroll pane's viewport are painted, each with one shared label or button that is set up
+ * for the row and stamped, so a menu of any size costs the same few components. Showing other items (a filter, a
+ * search, another meal) swaps the list of rows and repaints; no component is created or laid out again.
+ * The vote buttons become real buttons only while one is being clicked, through the table's cell editor.
+ */
+public class MenuTable extends JTable {
+    private static final Color MacOrange = new Color(0xFF8200);
+    private static final Color MacBlue = new Color(0x003865);
+    private static final Color BackgroundColor = new Color(252, 252, 252);
+    private static final Font HeaderFont = new Font("Poppins", Font.BOLD, 20);
+    private static final Font NameFont = new Font("Poppins", Font.PLAIN, 16);
+    private static final Font ScoreFont = new Font("Poppins", Font.PLAIN, 15);
+    private static final Font MessageFont = new Font("Poppins", Font.ITALIC, 18);
+    private static final Font VoteFont = new Font("SansSerif", Font.BOLD, 16);
+    private static final Border HeaderBorder = new EmptyBorder(8, 15, 0, 8);
+    private static final Border NameBorder = new EmptyBorder(0, 12, 0, 12);
+    private static final Border VoteBorder = BorderFactory.createLineBorder(new Color(180, 220, 255), 2, true);
+    private static final int RowHeight = 36;
+
+    static final int NameColumn = 0;
+    static final int UpVoteColumn = 1;
+    static final int DownVoteColumn = 2;
+    static final int ScoreColumn = 3;
+
+    /**
+     * Receives the votes cast with the row buttons.
+     */
+    public interface VoteListener {
+
+        /**
+         * Called on the EDT when a vote button is clicked.
+         * @param item The item voted on.
+         * @param delta +1 for an up vote, -1 for a down vote.
+         */
+        void voted(FoodItem item, int delta);
+    }
+
+    private final Rows rows = new Rows();
+
+    /**
+     * Creates an empty menu table.
+     * @param listener Receives the votes.
+     */
+    public MenuTable(VoteListener listener) {
+        setModel(rows);
+        setTableHeader(null);
+        setRowHeight(RowHeight);
+        setShowGrid(false);
+        setIntercellSpacing(new Dimension(0, 0));
+        setBackground(BackgroundColor);
+        setFillsViewportHeight(true);
+        setRowSelectionAllowed(false);
+        setFocusable(false);
+        setAutoResizeMode(AUTO_RESIZE_OFF);
+
+        TextRenderer textRenderer = new TextRenderer();
+        VoteRenderer voteRenderer = new VoteRenderer();
+        VoteEditor voteEditor = new VoteEditor(listener);
+        int[] widths = {360, 60, 60, 140};
+        for (int column = 0; column < widths.length; column++) {
+            TableColumn tableColumn = getColumnModel().getColumn(column);
+            tableColumn.setPreferredWidth(widths[column]);
+            boolean vote = column == UpVoteColumn || column == DownVoteColumn;
+            tableColumn.setCellRenderer(vote ? voteRenderer : textRenderer);
+            if (vote) {
+                tableColumn.setCellEditor(voteEditor);
+            }
+        }
+    }
+
+    /**
+     * Shows every meal of a menu, each under its name.
+     * @param meals The items of each meal, in the order to show them.
+     */
+    public void showMeals(Map<String, List<FoodItem>> meals) {
+        List<Row> next = new ArrayList<>();
+        for (Map.Entry<String, List<FoodItem>> meal : meals.entrySet()) {
+            addSection(next, meal.getKey(), meal.getValue());
+        }
+        rows.swap(next);
+    }
+
+    /**
+     * Shows only the given items under one header, as for a category filter or a search.
+     * @param header The section title, or null for none.
+     * @param items The items to show.
+     */
+    public void showItems(String header, List<FoodItem> items) {
+        List<Row> next = new ArrayList<>();
+        addSection(next, header, items);
+        rows.swap(next);
+    }
+
+    /**
+     * Adds a section below the ones already shown, as when a meal is loaded.
+     * @param header The section title, or null for none.
+     * @param items The items to show.
+     */
+    public void appendItems(String header, List<FoodItem> items) {
+        List<Row> section = new ArrayList<>();
+        addSection(section, header, items);
+        rows.append(section);
+    }
+
+    /**
+     * Replaces the rows with a single message.
+     * @param message The text to show.
+     */
+    public void showMessage(String message) {
+        rows.swap(List.of(new Row(Row.Message, message, null)));
+    }
+
+    /**
+     * Repaints the score of an item, such as after a vote.
+     * @param item The item whose score changed.
+     */
+    public void itemChanged(FoodItem item) {
+        itemsChanged(Set.of(item));
+    }
+
+    /**
+     * Repaints the scores of items that changed. Only the rows in view are looked at: the others read the new score
+     * when they are scrolled into view, so the cost does not depend on the length of the menu.
+     * @param items The items whose score changed.
+     * @return The number of cells repainted.
+     */
+    public int itemsChanged(Set<FoodItem> items) {
+        Rectangle visible = getVisibleRect();
+        int first = rowAtPoint(visible.getLocation());
+        if (visible.isEmpty() || first < 0) {
+            return 0;
+        }
+        int last = rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (last < 0) {
+            last = getRowCount() - 1;
+        }
+        List<Row> current = rows.list;
+        int repainted = 0;
+        for (int row = first; row <= last; row++) {
+            FoodItem item = current.get(row).item;
+            if (item != null && items.contains(item)) {
+                repaint(getCellRect(row, ScoreColumn, true));
+                repainted++;
+            }
+        }
+        return repainted;
+    }
+
+    /**
+     * Returns the item shown in a row.
+     * @param row The row index.
+     * @return The item, or null for a header or message row.
+     */
+    FoodItem getItemAt(int row) {
+        return rows.list.get(row).item;
+    }
+
+    /**
+     * Clicks a vote button of a row, as the user would.
+     * @param row The row index.
+     * @param column UpVoteColumn or DownVoteColumn.
+     */
+    void clickVote(int row, int column) {
+        if (editCellAt(row, column)) {
+            ((VoteEditor) getCellEditor()).click();
+        }
+    }
+
+    private static void addSection(List<Row> rows, String header, List<FoodItem> items) {
+        if (header != null) {
+            rows.add(new Row(Row.Header, header.toUpperCase(), null));
+        }
+        if (items == null || items.isEmpty()) {
+            rows.add(new Row(Row.Message, "No items available for " + (header != null ? header : "this category"), null));
+            return;
+        }
+        int count = 1;
+        for (FoodItem item : items) {
+            rows.add(new Row(Row.Item, count + ". " + item.getName(), item));
+            count++;
+        }
+    }
+
+    /**
+     * One line of the table: a section header, a message, or an item with its number.
+     */
+    private static final class Row {
+        static final int Header = 0;
+        static final int Message = 1;
+        static final int Item = 2;
+
+        final int kind;
+        final String text;
+        final FoodItem item;
+
+        Row(int kind, String text, FoodItem item) {
+            this.kind = kind;
+            this.text = text;
+            this.item = item;
+        }
+    }
+
+    /**
+     * The table model: an immutable list of rows that is replaced as a whole, or extended when a section is appended.
+     * The cells are the row itself, so renderers see the kind of row as well as the item.
+     */
+    private static final class Rows extends AbstractTableModel {
+        private List<Row> list = List.of();
+
+        void swap(List<Row> next) {
+            list = Collections.unmodifiableList(next);
+            fireTableDataChanged();
+        }
+
+        void append(List<Row> section) {
+            if (section.isEmpty()) {
+                return;
+            }
+            int first = list.size();
+            List<Row> next = new ArrayList<>(first + section.size());
+            next.addAll(list);
+            next.addAll(section);
+            list = Collections.unmodifiableList(next);
+            fireTableRowsInserted(first, next.size() - 1);
+        }
+
+        @Override
+        public int getRowCount() {
+            return list.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return 4;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return list.get(row);
+        }
+
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return (column == UpVoteColumn || column == DownVoteColumn) && list.get(row).kind == Row.Item;
+        }
+
+        @Override
+        public void setValueAt(Object value, int row, int column) {
+            // votes are applied by the editor; the row itself never changes
+        }
+    }
+
+    /**
+     * Paints the name, header, message and score cells with one label.
+     */
+    private static final class TextRenderer implements TableCellRenderer {
+        private final JLabel label = new JLabel();
+
+        TextRenderer() {
+            label.setOpaque(false);
+        }
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                int row, int column) {
+            Row r = (Row) value;
+            label.setText("");
+            label.setBorder(NameBorder);
+            if (column == NameColumn) {
+                label.setText(r.text);
+                switch (r.kind) {
+                    case Row.Header -> {
+                        label.setFont(HeaderFont);
+                        label.setForeground(MacOrange);
+                        label.setBorder(HeaderBorder);
+                    }
+                    case Row.Message -> {
+                        label.setFont(MessageFont);
+                        label.setForeground(Color.BLACK);
+                    }
+                    default -> {
+                        label.setFont(NameFont);
+                        label.setForeground(Color.BLACK);
+                    }
+                }
+            } else if (r.kind == Row.Item) {
+                label.setText("Score: " + r.item.getRating());
+                label.setFont(ScoreFont);
+                label.setForeground(MacBlue);
+            }
+            return label;
+        }
+    }
+
+    /**
+     * Styles a vote button like the app's other buttons.
+     */
+    private static JButton voteButton() {
+        JButton button = new JButton();
+        button.setFocusPainted(false);
+        button.setBackground(MacOrange);
+        button.setForeground(Color.WHITE);
+        button.setFont(VoteFont);
+        button.setContentAreaFilled(false);
+        button.setOpaque(true);
+        button.setBorder(VoteBorder);
+        button.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        return button;
+    }
+
+    /**
+     * Paints the vote cells with one button; header and message rows get an empty cell.
+     */
+    private static final class VoteRenderer implements TableCellRenderer {
+        private final JButton button = voteButton();
+        private final JLabel empty = new JLabel();
+
+        @Override
+        public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+                int row, int column) {
+            if (((Row) value).kind != Row.Item) {
+                return empty;
+            }
+            button.setText(column == UpVoteColumn ? "★" : "☆");
+            return button;
+        }
+    }
+
+    /**
+     * Turns a vote cell into a live button for the click that starts editing it, casts the vote and stops editing
+     * right away, so the row goes back to being painted by the renderer.
+     */
+    private final class VoteEditor extends AbstractCellEditor implements TableCellEditor {
+        private final JButton button = voteButton();
+        private FoodItem item;
+        private int delta;
+
+        VoteEditor(VoteListener listener) {
+            button.addActionListener(e -> {
+                FoodItem voted = item;
+                int votedDelta = delta;
+                stopCellEditing();
+                listener.voted(voted, votedDelta);
+                itemChanged(voted);
+            });
+        }
+
+        @Override
+        public Component getTableCellEditorComponent(JTable table, Object value, boolean isSelected, int row,
+                int column) {
+            item = ((Row) value).item;
+            delta = column == UpVoteColumn ? 1 : -1;
+            button.setText(column == UpVoteColumn ? "★" : "☆");
+            button.setBackground(new Color(255, 110, 0));
+            return button;
+        }
+
+        @Override
+        public Object getCellEditorValue() {
+            return null;
+        }
+
+        /**
+         * Clicks a vote cell's button, as a mouse click on it would.
+         */
+        void click() {
+            button.doClick(0);
+        }
+    }
+}
@@ -0,0 +1,409 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Word-level and infix search over food names, next to the Trie (which only matches from the start of a name).
+ *
+ * Every name is tokenized once into lowercase words, and each item gets an int id. Two inverted indexes map
+ * words and character trigrams to sorted int arrays of item ids (postings). A query with several words is answered
+ * by intersecting the postings of each word (the last word may be unfinished, so every word of the query matches
+ * words it is a prefix of); an infix query intersects the postings of its trigrams and then checks the few
+ * candidates left. Optionally a suffix array over all names answers infix queries of any length by binary search.
+ *
+ * The index is built in one go and never changes afterwards, so it needs no locking.
+ */
+public class NameIndex {
+    private static final int[] NO_IDS = new int[0];
+    private static final char NAME_END = '\u0000';
+
+    private final FoodItem[] items;
+    private final String[] normalizedNames;
+    private final String[] words;
+    private final int[][] wordPostings;
+    private final Map<String, int[]> trigramPostings;
+    private final char[] text;
+    private final int[] nameStarts;
+    private final int[] suffixArray;
+
+    /**
+     * Builds the index.
+     *
+     * @param foodItems the items to index (items without a name are skipped)
+     * @param withSuffixArray whether to also build a suffix array for infix queries (more memory, any query length)
+     */
+    public NameIndex(Collection<FoodItem> foodItems, boolean withSuffixArray) {
+        List<FoodItem> named = new ArrayList<>(foodItems.size());
+        for (FoodItem item : foodItems) {
+            if (item != null && item.getName() != null) {
+                named.add(item);
+            }
+        }
+        items = named.toArray(new FoodItem[0]);
+        normalizedNames = new String[items.length];
+
+        TreeMap<String, IdList> wordIds = new TreeMap<>();
+        Map<String, IdList> trigramIds = new HashMap<>();
+        for (int id = 0; id < items.length; id++) {
+            List<String> tokens = tokenize(items[id].getName());
+            String normalized = String.join(" ", tokens);
+            normalizedNames[id] = normalized;
+            for (String token : tokens) {
+                wordIds.computeIfAbsent(token, key -> new IdList()).add(id);
+            }
+            for (int i = 0; i + 3 <= normalized.length(); i++) {
+                trigramIds.computeIfAbsent(normalized.substring(i, i + 3), key -> new IdList()).add(id);
+            }
+        }
+        words = wordIds.keySet().toArray(new String[0]);
+        wordPostings = new int[words.length][];
+        int w = 0;
+        for (IdList ids : wordIds.values()) {
+            wordPostings[w++] = ids.toArray();
+        }
+        trigramPostings = new HashMap<>(trigramIds.size() * 2);
+        for (Map.Entry<String, IdList> trigram : trigramIds.entrySet()) {
+            trigramPostings.put(trigram.getKey(), trigram.getValue().toArray());
+        }
+
+        if (withSuffixArray) {
+            StringBuilder all = new StringBuilder();
+            nameStarts = new int[items.length];
+            for (int id = 0; id < items.length; id++) {
+                nameStarts[id] = all.length();
+                all.append(normalizedNames[id]).append(NAME_END);
+            }
+            text = all.toString().toCharArray();
+            suffixArray = buildSuffixArray(text);
+        } else {
+            text = null;
+            nameStarts = null;
+            suffixArray = null;
+        }
+    }
+
+    /**
+     * Returns the number of indexed items.
+     *
+     * @return the item count
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Tells whether the index has a suffix array.
+     *
+     * @return true if it was built with one
+     */
+    public boolean hasSuffixArray() {
+        return suffixArray != null;
+    }
+
+    /**
+     * Finds items that have a word starting with each word of the query, in any order.
+     * "chicken" finds "Grilled Chicken Thighs", and "chick thi" finds it too.
+     *
+     * @param query one or more words
+     * @return the matching items, in the order they were indexed (empty for a blank query)
+     */
+    public List<FoodItem> searchWords(String query) {
+        List<String> terms = tokenize(query);
+        if (terms.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int[] ids = null;
+        for (String term : terms) {
+            int[] postings = wordPrefixPostings(term);
+            ids = ids == null ? postings : intersect(ids, postings);
+            if (ids.length == 0) {
+                break;
+            }
+        }
+        return itemsOf(ids);
+    }
+
+    /**
+     * Finds items whose name contains the query anywhere, ignoring case and punctuation ("eese" finds "Mac and Cheese").
+     * Uses the suffix array if there is one, and otherwise the trigram index (names are scanned for queries shorter
+     * than three characters).
+     *
+     * @param query the text to look for
+     * @return the matching items, in the order they were indexed (empty for a blank query)
+     */
+    public List<FoodItem> searchSubstring(String query) {
+        String normalized = String.join(" ", tokenize(query));
+        if (normalized.isEmpty()) {
+            return new ArrayList<>();
+        }
+        if (suffixArray != null) {
+            return itemsOf(suffixArrayIds(normalized));
+        }
+        if (normalized.length() < 3) {
+            return scan(normalized);
+        }
+        int[] candidates = null;
+        for (int i = 0; i + 3 <= normalized.length(); i++) {
+            int[] postings = trigramPostings.getOrDefault(normalized.substring(i, i + 3), NO_IDS);
+            candidates = candidates == null ? postings : intersect(candidates, postings);
+            if (candidates.length == 0) {
+                return new ArrayList<>();
+            }
+        }
+        List<FoodItem> result = new ArrayList<>();
+        for (int id : candidates) {
+            if (normalizedNames[id].contains(normalized)) { // the trigrams can all be present without being in a row
+                result.add(items[id]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Splits text into lowercase words of letters and digits.
+     *
+     * @param text the text (may be null)
+     * @return the words, in order
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase());
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Intersects two sorted id arrays. When one is much shorter, its ids are looked up in the other by galloping
+     * (doubling steps, then a binary search) instead of walking both.
+     *
+     * @param a sorted ids
+     * @param b sorted ids
+     * @return the ids in both, sorted
+     */
+    static int[] intersect(int[] a, int[] b) {
+        if (a.length > b.length) {
+            int[] swap = a;
+            a = b;
+            b = swap;
+        }
+        int[] result = new int[a.length];
+        int count = 0;
+        if (b.length > 8 * a.length) {
+            int low = 0;
+            for (int id : a) {
+                int step = 1;
+                int high = low;
+                while (high < b.length && b[high] < id) {
+                    low = high + 1;
+                    high += step;
+                    step <<= 1;
+                }
+                int found = Arrays.binarySearch(b, low, Math.min(high + 1, b.length), id);
+                if (found >= 0) {
+                    result[count++] = id;
+                    low = found + 1;
+                } else {
+                    low = -(found + 1);
+                }
+            }
+        } else {
+            for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[count++] = a[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Merges the postings of every indexed word that starts with the term (the words are sorted, so they are a range).
+     */
+    private int[] wordPrefixPostings(String term) {
+        int from = Arrays.binarySearch(words, term);
+        if (from < 0) {
+            from = -(from + 1);
+        }
+        int to = from;
+        while (to < words.length && words[to].startsWith(term)) {
+            to++;
+        }
+        if (to - from == 1) {
+            return wordPostings[from];
+        }
+        BitSet ids = new BitSet(items.length);
+        for (int w = from; w < to; w++) {
+            for (int id : wordPostings[w]) {
+                ids.set(id);
+            }
+        }
+        return ids.stream().toArray();
+    }
+
+    /**
+     * Finds the ids of the names that contain the query, from the range of suffixes that start with it.
+     */
+    private int[] suffixArrayIds(String query) {
+        int low = 0;
+        int high = suffixArray.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compareSuffix(suffixArray[mid], query) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        BitSet ids = new BitSet(items.length);
+        for (int i = low; i < suffixArray.length && compareSuffix(suffixArray[i], query) == 0; i++) {
+            int id = Arrays.binarySearch(nameStarts, suffixArray[i]);
+            ids.set(id >= 0 ? id : -(id + 1) - 1);
+        }
+        return ids.stream().toArray();
+    }
+
+    /**
+     * Compares the suffix at a position with the query, looking only at as many characters as the query has.
+     * Returns 0 when the suffix starts with the query.
+     */
+    private int compareSuffix(int position, String query) {
+        for (int i = 0; i < query.length(); i++) {
+            if (position + i >= text.length) {
+                return -1;
+            }
+            int difference = text[position + i] - query.charAt(i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return 0;
+    }
+
+    private List<FoodItem> scan(String normalized) {
+        List<FoodItem> result = new ArrayList<>();
+        for (int id = 0; id < items.length; id++) {
+            if (normalizedNames[id].contains(normalized)) {
+                result.add(items[id]);
+            }
+        }
+        return result;
+    }
+
+    private List<FoodItem> itemsOf(int[] ids) {
+        List<FoodItem> result = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            result.add(items[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Sorts all suffixes of the text by prefix doubling: after each round the suffixes are ordered by their first 2k
+     * characters, using the ranks of the previous round as the sort keys (two counting sort passes per round).
+     *
+     * @param s the text
+     * @return the start positions of the suffixes, in sorted order
+     */
+    static int[] buildSuffixArray(char[] s) {
+        int n = s.length;
+        int[] sa = new int[n];
+        int[] rank = new int[n];
+        int[] next = new int[n];
+        int[] bySecondKey = new int[n];
+        int[] count = new int[Math.max(Character.MAX_VALUE + 1, n) + 1];
+        if (n == 0) {
+            return sa;
+        }
+        for (int i = 0; i < n; i++) {
+            rank[i] = s[i];
+            count[s[i] + 1]++;
+        }
+        for (int i = 1; i < count.length; i++) {
+            count[i] += count[i - 1];
+        }
+        for (int i = 0; i < n; i++) {
+            sa[count[s[i]]++] = i;
+        }
+        for (int k = 1; k < n; k <<= 1) {
+            int p = 0;
+            for (int i = n - k; i < n; i++) {
+                bySecondKey[p++] = i; // no second half: sorts before everything else
+            }
+            for (int i = 0; i < n; i++) {
+                if (sa[i] >= k) {
+                    bySecondKey[p++] = sa[i] - k;
+                }
+            }
+            Arrays.fill(count, 0);
+            for (int i = 0; i < n; i++) {
+                count[rank[i] + 1]++;
+            }
+            for (int i = 1; i < count.length; i++) {
+                count[i] += count[i - 1];
+            }
+            for (int i = 0; i < n; i++) {
+                int position = bySecondKey[i];
+                sa[count[rank[position]]++] = position;
+            }
+            next[sa[0]] = 0;
+            for (int i = 1; i < n; i++) {
+                int a = sa[i - 1];
+                int b = sa[i];
+                boolean same = rank[a] == rank[b]
+                        && (a + k < n ? rank[a + k] : -1) == (b + k < n ? rank[b + k] : -1);
+                next[b] = next[a] + (same ? 0 : 1);
+            }
+            int[] swap = rank;
+            rank = next;
+            next = swap;
+            if (rank[sa[n - 1]] == n - 1) {
+                break;
+            }
+        }
+        return sa;
+    }
+
+    /**
+     * A growable list of ids, added in increasing order; an id added twice in a row is kept once.
+     */
+    private static final class IdList {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] == id) {
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A position in a Trie that follows a query as it is typed, so each keystroke costs one step instead of a walk from
+ * the root.
+ *
+ * The cursor keeps the node of every prefix of its query, so advance() looks up one child and retreat() drops the
+ * last node. Results are read from the current node: top() from its ranked cache, and iterator() lazily, one item at
+ * a time, without copying the subtree.
+ *
+ * If the Trie is cleared or restored (a new menu was loaded), the nodes the cursor holds are no longer part of it.
+ * Every operation first checks the Trie's version and, if it changed, walks the query again from the new root.
+ * An iterator that is running when that happens throws ConcurrentModificationException instead.
+ * Inserts keep the nodes already found, but may add the ones a query without matches was missing, so such a query
+ * is retried from its last node.
+ * All operations lock the Trie, so a cursor can be shared between threads.
+ */
+public class PrefixCursor implements Iterable<FoodItem> {
+    private final Trie trie;
+    private final StringBuilder prefix = new StringBuilder();
+    private TrieNode[] path = new TrieNode[16];
+    private long version;
+
+    /**
+     * Opens a cursor at the empty prefix (use Trie.cursor()).
+     * @param trie The Trie to follow.
+     */
+    PrefixCursor(Trie trie) {
+        this.trie = trie;
+        synchronized (trie) {
+            version = trie.getVersion();
+            path[0] = trie.getRoot();
+        }
+    }
+
+    /**
+     * Extends the query by one character.
+     * @param c The character typed.
+     */
+    public void advance(char c) {
+        synchronized (trie) {
+            revalidate();
+            step(c);
+        }
+    }
+
+    /**
+     * Removes the last character of the query.
+     * @throws IllegalStateException If the query is empty.
+     */
+    public void retreat() {
+        synchronized (trie) {
+            if (prefix.length() == 0) {
+                throw new IllegalStateException("The cursor is already at the empty prefix");
+            }
+            revalidate();
+            path[prefix.length()] = null;
+            prefix.setLength(prefix.length() - 1);
+        }
+    }
+
+    /**
+     * Moves the cursor to another query, keeping the part it shares with the current one: only the characters after
+     * the common prefix are retreated over and advanced through.
+     * @param query The new query.
+     */
+    public void moveTo(String query) {
+        synchronized (trie) {
+            revalidate();
+            int common = 0;
+            int limit = Math.min(query.length(), prefix.length());
+            while (common < limit && query.charAt(common) == prefix.charAt(common)) {
+                common++;
+            }
+            while (prefix.length() > common) {
+                path[prefix.length()] = null;
+                prefix.setLength(prefix.length() - 1);
+            }
+            for (int i = common; i < query.length(); i++) {
+                step(query.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Returns the current query.
+     * @return The characters advanced through so far.
+     */
+    public String getPrefix() {
+        synchronized (trie) {
+            return prefix.toString();
+        }
+    }
+
+    /**
+     * Tells whether any item's word starts with the current query.
+     * @return true if there is at least one result.
+     */
+    public boolean hasMatches() {
+        synchronized (trie) {
+            revalidate();
+            TrieNode node = path[prefix.length()];
+            return node != null && (node.getItemCount() > 0 || node.getChildCount() > 0);
+        }
+    }
+
+    /**
+     * Returns the best n items under the current query, like Trie.topCompletions().
+     * @param n Maximum number of items to return.
+     * @return Ranked list of at most n food items.
+     */
+    public List<FoodItem> top(int n) {
+        synchronized (trie) {
+            revalidate();
+            return trie.topCompletions(path[prefix.length()], n);
+        }
+    }
+
+    /**
+     * Returns every item under the current query, in the order of Trie.searchByPrefix().
+     * @return A new list of the items.
+     */
+    public List<FoodItem> results() {
+        List<FoodItem> result = new ArrayList<>();
+        for (FoodItem item : this) {
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * Streams the items under the current query, in the order of Trie.searchByPrefix(). Only the nodes needed for
+     * each next item are visited. Moving the cursor afterwards does not affect the iterator.
+     * @return An iterator over the items.
+     * @throws ConcurrentModificationException From next() or hasNext(), if the Trie is cleared or restored meanwhile.
+     */
+    @Override
+    public Iterator<FoodItem> iterator() {
+        synchronized (trie) {
+            revalidate();
+            return new SubtreeIterator(path[prefix.length()], version);
+        }
+    }
+
+    /**
+     * Adds a character to the query and finds its node (null once no word has the query as a prefix).
+     */
+    private void step(char c) {
+        TrieNode node = path[prefix.length()];
+        prefix.append(c);
+        if (prefix.length() == path.length) {
+            path = Arrays.copyOf(path, path.length * 2);
+        }
+        path[prefix.length()] = node == null ? null : node.getChild(c);
+    }
+
+    /**
+     * Walks the query again from the root if the Trie was cleared or restored since the nodes were found. Otherwise,
+     * if the query had no node, retries from the last node it had, since an insert may have added the missing ones.
+     */
+    private void revalidate() {
+        long current = trie.getVersion();
+        int from;
+        if (current != version) {
+            version = current;
+            path[0] = trie.getRoot();
+            from = 0;
+        } else {
+            from = prefix.length();
+            while (path[from] == null) {
+                from--;
+            }
+        }
+        for (int i = from; i < prefix.length(); i++) {
+            path[i + 1] = path[i] == null ? null : path[i].getChild(prefix.charAt(i));
+        }
+    }
+
+    /**
+     * A depth-first walk of a subtree that stops after each item: a node's own items, then its children in key order.
+     */
+    private final class SubtreeIterator implements Iterator<FoodItem> {
+        private final long expectedVersion;
+        private TrieNode[] nodes = new TrieNode[16];
+        private int[] nextChild = new int[16];
+        private int depth = -1;
+        private TrieNode itemNode;
+        private int nextItem;
+
+        SubtreeIterator(TrieNode start, long expectedVersion) {
+            this.expectedVersion = expectedVersion;
+            if (start != null) {
+                push(start);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (trie) {
+                checkVersion();
+                return advanceToItem();
+            }
+        }
+
+        @Override
+        public FoodItem next() {
+            synchronized (trie) {
+                checkVersion();
+                if (!advanceToItem()) {
+                    throw new NoSuchElementException();
+                }
+                return itemNode.getItemAt(nextItem++);
+            }
+        }
+
+        /**
+         * Moves on until itemNode has an unread item; returns false when the subtree is exhausted.
+         */
+        private boolean advanceToItem() {
+            while (itemNode == null || nextItem >= itemNode.getItemCount()) {
+                if (depth < 0) {
+                    return false;
+                }
+                TrieNode node = nodes[depth];
+                if (nextChild[depth] < node.getChildCount()) {
+                    push(node.getChildAt(nextChild[depth]++));
+                } else {
+                    nodes[depth--] = null;
+                    itemNode = null;
+                }
+            }
+            return true;
+        }
+
+        private void push(TrieNode node) {
+            depth++;
+            if (depth == nodes.length) {
+                nodes = Arrays.copyOf(nodes, depth * 2);
+                nextChild = Arrays.copyOf(nextChild, depth * 2);
+            }
+            nodes[depth] = node;
+            nextChild[depth] = 0;
+            itemNode = node;
+            nextItem = 0;
+        }
+
+        private void checkVersion() {
+            if (trie.getVersion() != expectedVersion) {
+                throw new ConcurrentModificationException("The trie was cleared or restored");
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A token-bucket rate limiter. Tokens are added at a steady rate up to a burst size, and every request takes one.
+ *
+ * A request that finds the bucket empty reserves the next token anyway and sleeps until it would have been added,
+ * so waiting requests are served in the order they arrived and none of them spins.
+ */
+public class TokenBucket {
+    private final double tokensPerNano;
+    private final double burst;
+    private double tokens;
+    private long refilledAt;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param tokensPerSecond the sustained request rate
+     * @param burst how many requests may go out back to back after a quiet period
+     */
+    public TokenBucket(double tokensPerSecond, int burst) {
+        if (tokensPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Takes a token, waiting until one is available.
+     *
+     * @throws InterruptedException if interrupted while waiting (the reserved token is not given back)
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            tokens -= 1;
+            if (tokens >= 0) {
+                return;
+            }
+            waitNanos = (long) Math.ceil(-tokens / tokensPerNano);
+        }
+        TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
@@ -1,18 +1,62 @@
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Trie structure for fast prefix-based retrieval of FoodItems.
  * Each path through the Trie can store multiple food items at the end node.
+ * Every node also caches the best few items of its subtree (by FoodComparator order), so ranked
+ * completions only need to walk the prefix. The caches are repaired whenever an item's rating changes.
+ *
+ * A vote does not repair them itself: it only marks the item stale, without locking, and the next operation that
+ * reads the caches repairs every stale item first, under the Trie's lock. Concurrent voters therefore never wait for
+ * the Trie or for each other, and many votes on one item between two reads cost one repair.
  */
 public class Trie {
+    /** Number of ranked items cached per node when no size is given. */
+    public static final int DEFAULT_RANKING_SIZE = 10;
+
+    private static final FoodItem[] NO_ITEMS = new FoodItem[0];
+
     private TrieNode root;
+    private final int rankingSize;
+    private final Comparator<FoodItem> foodComparator;
+    private final Map<FoodItem, List<String>> wordsByItem;
+    private final FoodItemListener ratingListener;
+    /** Items voted on since the caches were last repaired; added to without the lock. */
+    private final Set<FoodItem> staleItems = ConcurrentHashMap.newKeySet();
+    private long version;
 
     /**
      * Initializes the Trie with a root node.
      */
     public Trie() {
+        this(DEFAULT_RANKING_SIZE);
+    }
+
+    /**
+     * Initializes the Trie with a root node and a custom number of ranked items cached per node.
+     * @param rankingSize How many items topCompletions can answer without walking the subtree.
+     */
+    public Trie(int rankingSize) {
+        if (rankingSize < 1) {
+            throw new IllegalArgumentException("rankingSize must be positive");
+        }
+        this.rankingSize = rankingSize;
         root = new TrieNode();
+        foodComparator = new FoodComparator();
+        wordsByItem = new IdentityHashMap<>();
+        ratingListener = item -> {
+            if (!staleItems.contains(item)) { // an item that is already stale costs voters one read
+                staleItems.add(item);
+            }
+        };
     }
 
     /**
@@ -20,14 +64,99 @@ public class Trie {
      * @param word The word to insert.
      * @param item The food item associated with the word.
      */
-    public void insert(String word, FoodItem item) {
+    public synchronized void insert(String word, FoodItem item) {
         if (word == null || item == null) return;
+        repairStale();
+        TrieNode[] path = new TrieNode[word.length() + 1];
         TrieNode current = root;
-        for (char c : word.toCharArray()) {
-            current.getChildren().putIfAbsent(c, new TrieNode());
-            current = current.getChildren().get(c);
+        path[0] = current;
+        for (int i = 0; i < word.length(); i++) {
+            current = current.getOrCreateChild(word.charAt(i));
+            path[i + 1] = current;
+        }
+        current.addItem(item);
+        for (int i = path.length - 1; i >= 0; i--) {
+            offerRanked(path[i], item);
+        }
+
+        track(word, item);
+    }
+
+    /**
+     * Records that an item is stored under a word, and starts listening to the item's rating the first time.
+     * @param word The word.
+     * @param item The item.
+     */
+    private void track(String word, FoodItem item) {
+        List<String> words = wordsByItem.get(item);
+        if (words == null) {
+            words = new ArrayList<>(1);
+            wordsByItem.put(item, words);
+            item.addListener(ratingListener);
+        }
+        words.add(word);
+    }
+
+    /**
+     * Replaces the contents of the Trie with the given words, built in one pass instead of one insert per word: every
+     * node is created once with arrays of exactly the right size, and its ranked cache is computed once, from its own
+     * items and its finished children's caches.
+     * @param words The words, in String order; a word may repeat, once per item.
+     * @param items The item of each word.
+     */
+    public synchronized void bulkLoad(List<String> words, List<FoodItem> items) {
+        if (words.size() != items.size()) {
+            throw new IllegalArgumentException("Every word needs exactly one item");
+        }
+        for (int i = 1; i < words.size(); i++) {
+            if (words.get(i - 1).compareTo(words.get(i)) > 0) {
+                throw new IllegalArgumentException("Words must be sorted: " + words.get(i - 1) + " > " + words.get(i));
+            }
+        }
+        TrieNode built = buildNode(words, items, 0, words.size(), 0);
+        clear();
+        root = built;
+        for (int i = 0; i < words.size(); i++) {
+            track(words.get(i), items.get(i));
         }
-        current.getItems().add(item);
+    }
+
+    /**
+     * Builds the node for the sorted words in [from, to), which all share their first depth characters. The words that
+     * end here come first, then one group of words per next character.
+     * @return The finished node, with its ranked cache.
+     */
+    private TrieNode buildNode(List<String> words, List<FoodItem> items, int from, int to, int depth) {
+        int own = from;
+        while (own < to && words.get(own).length() == depth) {
+            own++;
+        }
+        int childCount = 0;
+        for (int i = own; i < to; i++) {
+            if (i == own || words.get(i).charAt(depth) != words.get(i - 1).charAt(depth)) {
+                childCount++;
+            }
+        }
+        char[] keys = new char[childCount];
+        TrieNode[] children = new TrieNode[childCount];
+        int child = 0;
+        for (int start = own; start < to; child++) {
+            char key = words.get(start).charAt(depth);
+            int end = start + 1;
+            while (end < to && words.get(end).charAt(depth) == key) {
+                end++;
+            }
+            keys[child] = key;
+            children[child] = buildNode(words, items, start, end, depth + 1);
+            start = end;
+        }
+        TrieNode node = new TrieNode(keys, children, items.subList(from, own).toArray(NO_ITEMS), NO_ITEMS);
+        if (own == from && childCount == 1) {
+            node.setTopItems(children[0].getTopItems()); // a node on a chain ranks exactly like its only child
+        } else {
+            rebuildRanked(node);
+        }
+        return node;
     }
 
     /**
@@ -36,36 +165,381 @@ public class Trie {
      * @return List of all food items under that prefix.
      */
     public List<FoodItem> searchByPrefix(String prefix) {
-        TrieNode current = root;
-        for (char c : prefix.toCharArray()) {
-            current = current.getChildren().get(c);
-            if (current == null) {
-                return new ArrayList<>();
+        TrieNode current = findNode(prefix);
+        if (current == null) {
+            return new ArrayList<>();
+        }
+        List<FoodItem> result = new ArrayList<>();
+        collectItems(current, result);
+        return result;
+    }
+
+    /**
+     * Returns the best n food items under the given prefix, ordered by FoodComparator.
+     * When n is at most the ranking size this only walks the prefix and copies the node's cache.
+     * @param prefix The input prefix.
+     * @param n Maximum number of items to return.
+     * @return Ranked list of at most n food items.
+     */
+    public synchronized List<FoodItem> topCompletions(String prefix, int n) {
+        return topCompletions(findNode(prefix), n);
+    }
+
+    /**
+     * Returns the best n food items under a node, ordered by FoodComparator.
+     * @param current The subtree root, or null for none.
+     * @param n Maximum number of items to return.
+     * @return Ranked list of at most n food items.
+     */
+    synchronized List<FoodItem> topCompletions(TrieNode current, int n) {
+        if (current == null || n <= 0) {
+            return new ArrayList<>();
+        }
+        repairStale();
+        if (n > rankingSize) {
+            List<FoodItem> all = new ArrayList<>();
+            collectItems(current, all);
+            FoodComparator.sortByRating(all);
+            return new ArrayList<>(all.subList(0, Math.min(n, all.size())));
+        }
+        FoodItem[] top = current.getTopItems();
+        return new ArrayList<>(Arrays.asList(top).subList(0, Math.min(n, top.length)));
+    }
+
+    /**
+     * Typo-tolerant completion: returns items whose name starts with something within maxDistance edits of the query,
+     * where an edit is inserting, deleting or changing one character, or swapping two neighbouring ones.
+     * The Trie is walked in step with the edit distance table (one row per character), and a subtree is left as soon
+     * as every entry of its row is over maxDistance, since no longer name can get closer. Once a prefix has matched,
+     * the rest of its subtree is answered from the node's ranked cache instead of being walked. The bound is raised
+     * one edit at a time, and the search stops at the first bound that already yields n items: everything further away
+     * would rank after them, and the walk for a larger bound visits many more nodes.
+     * @param query The typed text.
+     * @param maxDistance The largest number of edits allowed (1 or 2 is typical).
+     * @param n Maximum number of items to return.
+     * @return Matching items, closest first and then ordered by FoodComparator.
+     */
+    public synchronized List<FoodItem> fuzzySearch(String query, int maxDistance, int n) {
+        if (maxDistance < 0) {
+            throw new IllegalArgumentException("maxDistance must not be negative");
+        }
+        if (query == null || n <= 0) {
+            return new ArrayList<>();
+        }
+        repairStale();
+        for (int bound = 0; ; bound++) {
+            FuzzyWalk walk = new FuzzyWalk(query, bound, n);
+            walk.visit(root, 0, (char) 0, Integer.MAX_VALUE);
+            if (bound == maxDistance || walk.distances.size() >= n) {
+                return walk.results();
+            }
+        }
+    }
+
+    /**
+     * One fuzzy search: the query, the rows of the edit distance table along the current path, and the matches so far.
+     */
+    private final class FuzzyWalk {
+        private final String query;
+        private final int maxDistance;
+        private final int n;
+        private final int[][] rows;
+        private final Map<FoodItem, Integer> distances = new IdentityHashMap<>();
+
+        FuzzyWalk(String query, int maxDistance, int n) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.n = n;
+            // past depth length + maxDistance every entry of a row is over maxDistance, so no deeper row is needed
+            rows = new int[query.length() + maxDistance + 2][query.length() + 1];
+            for (int j = 0; j <= query.length(); j++) {
+                rows[0][j] = j;
+            }
+        }
+
+        /**
+         * Visits a node whose row is rows[depth].
+         * @param node The node.
+         * @param depth Its depth (the row filled in for it).
+         * @param edge The character on the edge into it (unused at the root).
+         * @param best The smallest distance between the query and a prefix on the path so far.
+         */
+        void visit(TrieNode node, int depth, char edge, int best) {
+            int[] row = rows[depth];
+            int m = query.length();
+            best = Math.min(best, row[m]);
+            int rowMin = Integer.MAX_VALUE;
+            for (int value : row) {
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                if (best <= maxDistance) {
+                    addSubtree(node, best);
+                }
+                return;
+            }
+            if (best <= maxDistance) {
+                for (int i = 0; i < node.getItemCount(); i++) {
+                    offer(node.getItemAt(i), best);
+                }
+            }
+            for (int c = 0; c < node.getChildCount(); c++) {
+                char key = node.getKeyAt(c);
+                int[] next = rows[depth + 1];
+                next[0] = depth + 1;
+                for (int j = 1; j <= m; j++) {
+                    char q = query.charAt(j - 1);
+                    int value = Math.min(row[j] + 1, next[j - 1] + 1);
+                    value = Math.min(value, row[j - 1] + (q == key ? 0 : 1));
+                    if (depth > 0 && j > 1 && key == query.charAt(j - 2) && edge == q) {
+                        value = Math.min(value, rows[depth - 1][j - 2] + 1);
+                    }
+                    next[j] = value;
+                }
+                visit(node.getChildAt(c), depth + 1, key, best);
             }
         }
-        return getAllItemsFromNode(current);
+
+        /**
+         * Adds the best items under a node, all at the same distance.
+         */
+        private void addSubtree(TrieNode node, int distance) {
+            if (n <= rankingSize) {
+                for (FoodItem item : node.getTopItems()) {
+                    offer(item, distance);
+                }
+            } else {
+                List<FoodItem> all = new ArrayList<>();
+                collectItems(node, all);
+                for (FoodItem item : all) {
+                    offer(item, distance);
+                }
+            }
+        }
+
+        private void offer(FoodItem item, int distance) {
+            Integer known = distances.get(item);
+            if (known == null || distance < known) {
+                distances.put(item, distance);
+            }
+        }
+
+        List<FoodItem> results() {
+            List<FoodItem> items = new ArrayList<>(distances.keySet());
+            FoodComparator.sortByRating(items, distances::get);
+            return new ArrayList<>(items.subList(0, Math.min(n, items.size())));
+        }
+    }
+
+    /**
+     * Walks down the Trie along the given prefix.
+     * @param prefix The input prefix.
+     * @return The node reached, or null if the prefix is not in the Trie.
+     */
+    private TrieNode findNode(String prefix) {
+        TrieNode current = root;
+        for (int i = 0; i < prefix.length() && current != null; i++) {
+            current = current.getChild(prefix.charAt(i));
+        }
+        return current;
     }
 
     /**
-     * Traverses all children nodes to collect items under a subtree.
+     * Traverses all children nodes to collect items under a subtree into a single result list.
      * @param node The subtree root.
-     * @return All items in that subtree.
+     * @param result The list that receives every item in that subtree.
      */
-    private List<FoodItem> getAllItemsFromNode(TrieNode node) {
-        List<FoodItem> result = new ArrayList<>();
-        if (node != null) {
-            result.addAll(node.getItems());
-            for (TrieNode child : node.getChildren().values()) {
-                result.addAll(getAllItemsFromNode(child));
+    private void collectItems(TrieNode node, List<FoodItem> result) {
+        for (int i = 0; i < node.getItemCount(); i++) {
+            result.add(node.getItemAt(i));
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            collectItems(node.getChildAt(i), result);
+        }
+    }
+
+    /**
+     * Inserts a newly added item into a node's ranked cache if it belongs there.
+     * @param node Node whose subtree now contains the item.
+     * @param item The new item.
+     */
+    private void offerRanked(TrieNode node, FoodItem item) {
+        FoodItem[] top = node.getTopItems();
+        int position = 0;
+        while (position < top.length && foodComparator.compare(top[position], item) <= 0) {
+            if (top[position] == item) {
+                return;
             }
+            position++;
+        }
+        if (position >= rankingSize) {
+            return;
+        }
+        int newLength = Math.min(rankingSize, top.length + 1);
+        FoodItem[] updated = new FoodItem[newLength];
+        System.arraycopy(top, 0, updated, 0, position);
+        updated[position] = item;
+        System.arraycopy(top, position, updated, position + 1, newLength - position - 1);
+        node.setTopItems(updated);
+    }
+
+    /**
+     * Repairs the ranked caches of every item voted on since the last repair. Called with the lock held by everything
+     * that reads the caches, and by MenuSnapshot before it writes them.
+     */
+    synchronized void repairStale() {
+        for (Iterator<FoodItem> it = staleItems.iterator(); it.hasNext(); ) {
+            FoodItem item = it.next();
+            it.remove(); // before the repair, so a vote during it marks the item again
+            repairRanking(item);
+        }
+    }
+
+    /**
+     * Rebuilds the ranked caches along every path that leads to the given item, deepest node first,
+     * so each parent can be merged from its already repaired children.
+     * @param item The item whose rating changed.
+     */
+    private void repairRanking(FoodItem item) {
+        List<String> words = wordsByItem.get(item);
+        if (words == null) {
+            return;
+        }
+        for (String word : words) {
+            TrieNode[] path = new TrieNode[word.length() + 1];
+            TrieNode current = root;
+            path[0] = current;
+            for (int i = 0; i < word.length(); i++) {
+                current = current.getChild(word.charAt(i));
+                path[i + 1] = current;
+            }
+            for (int i = path.length - 1; i >= 0; i--) {
+                rebuildRanked(path[i]);
+            }
+        }
+    }
+
+    /**
+     * Recomputes a node's ranked cache from its own items and its children's caches.
+     * @param node The node to recompute.
+     */
+    private void rebuildRanked(TrieNode node) {
+        List<FoodItem> candidates = new ArrayList<>();
+        for (int i = 0; i < node.getItemCount(); i++) {
+            candidates.add(node.getItemAt(i));
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            for (FoodItem item : node.getChildAt(i).getTopItems()) {
+                candidates.add(item);
+            }
+        }
+        FoodComparator.sortByRating(candidates);
+        List<FoodItem> top = new ArrayList<>(Math.min(rankingSize, candidates.size()));
+        for (FoodItem candidate : candidates) {
+            if (top.size() == rankingSize) {
+                break;
+            }
+            if (!containsSame(top, candidate)) {
+                top.add(candidate);
+            }
+        }
+        node.setTopItems(top.isEmpty() ? NO_ITEMS : top.toArray(NO_ITEMS));
+    }
+
+    /**
+     * Checks whether a list already holds this exact item (identity, not name).
+     * @param items The list to look in.
+     * @param item The item to look for.
+     * @return true if the same object is present.
+     */
+    private static boolean containsSame(List<FoodItem> items, FoodItem item) {
+        for (FoodItem existing : items) {
+            if (existing == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Opens a cursor at the empty prefix, for looking up a query one keystroke at a time.
+     * @return A new cursor on this Trie.
+     */
+    public PrefixCursor cursor() {
+        return new PrefixCursor(this);
+    }
+
+    /**
+     * Returns how many times the Trie has been cleared or restored. Nodes reached before a change of version are no
+     * longer part of the Trie; inserts keep every existing node, so they do not change it.
+     * @return The version.
+     */
+    synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the number of ranked items cached per node.
+     * @return The ranking size.
+     */
+    public int getRankingSize() {
+        return rankingSize;
+    }
+
+    /**
+     * Returns the root node, for writing the Trie to a MenuSnapshot. The nodes must not be modified.
+     * @return The root node.
+     */
+    TrieNode getRoot() {
+        return root;
+    }
+
+    /**
+     * Replaces the contents of the Trie with nodes read back from a MenuSnapshot, whose ranked caches are
+     * already filled in. Rating changes of the restored items are tracked from then on, as if they had been inserted.
+     * @param restoredRoot The root of the restored nodes.
+     */
+    synchronized void restore(TrieNode restoredRoot) {
+        clear();
+        root = restoredRoot;
+        trackWords(restoredRoot, new StringBuilder());
+    }
+
+    /**
+     * Records the word of every item under a node and starts listening to the item's rating.
+     * @param node The subtree root.
+     * @param word The characters on the path to the node.
+     */
+    private void trackWords(TrieNode node, StringBuilder word) {
+        for (int i = 0; i < node.getItemCount(); i++) {
+            track(word.toString(), node.getItemAt(i));
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            word.append(node.getKeyAt(i));
+            trackWords(node.getChildAt(i), word);
+            word.setLength(word.length() - 1);
         }
-        return result;
     }
 
     /**
      * Clears the Trie and resets the root node.
      */
-    public void clear() {
+    public synchronized void clear() {
+        detach();
         root = new TrieNode();
+        version++;
+    }
+
+    /**
+     * Stops following the items' ratings, for a Trie that is being replaced. Its nodes, ranked caches and version are
+     * left as they are, so a search or cursor still using it answers from the items it had; it is garbage collected
+     * once nothing uses it.
+     */
+    public synchronized void detach() {
+        for (FoodItem item : wordsByItem.keySet()) {
+            item.removeListener(ratingListener);
+        }
+        wordsByItem.clear();
+        staleItems.clear();
     }
-}
\ No newline at end of file
+}
@@ -1,38 +1,197 @@
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 
 /**
  * A class that represents a single node in a Trie(prefix tree).
+ * Children are kept in two parallel arrays sorted by character so lookups are a binary search over
+ * primitive chars (no boxing), and the item array is only allocated for nodes that end a word.
  */
 public class TrieNode {
-    private Map<Character, TrieNode> children;
-    private List<FoodItem> items;
+    private static final char[] NO_KEYS = new char[0];
+    private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+    private static final FoodItem[] NO_ITEMS = new FoodItem[0];
+
+    private char[] keys;
+    private TrieNode[] children;
+    private int childCount;
+    private FoodItem[] items;
+    private int itemCount;
+    private FoodItem[] topItems;
 
     /**
      * Constructs an empty TrieNode.
      */
     public TrieNode() {
-        children = new HashMap<>();
-        items = new ArrayList<>();
+        keys = NO_KEYS;
+        children = NO_CHILDREN;
+        items = NO_ITEMS;
+        topItems = NO_ITEMS;
+    }
+
+    /**
+     * Constructs a node from arrays that are already complete, as read back from a MenuSnapshot or built in bulk.
+     * The node takes ownership of the arrays; keys must be sorted and match children one to one.
+     *
+     * @param keys The edge characters, sorted.
+     * @param children The child nodes, in key order.
+     * @param items The FoodItems that end at this node.
+     * @param topItems The cached best items of this node's subtree, best first.
+     */
+    TrieNode(char[] keys, TrieNode[] children, FoodItem[] items, FoodItem[] topItems) {
+        this.keys = keys;
+        this.children = children;
+        this.childCount = children.length;
+        this.items = items;
+        this.itemCount = items.length;
+        this.topItems = topItems;
+    }
+
+    /**
+     * Returns the child reached by the given character.
+     *
+     * @param c The edge character.
+     * @return The child node, or null if there is none.
+     */
+    public TrieNode getChild(char c) {
+        int index = indexOf(c);
+        return index >= 0 ? children[index] : null;
     }
 
     /**
-     * Returns the children of the node.
-     * 
-     * @return A map of characters to their corresponding child TrieNode.
+     * Returns the child reached by the given character, creating it if it does not exist yet.
+     *
+     * @param c The edge character.
+     * @return The existing or newly created child node.
      */
-    public Map<Character, TrieNode> getChildren() {
-        return children;
+    public TrieNode getOrCreateChild(char c) {
+        int index = indexOf(c);
+        if (index >= 0) {
+            return children[index];
+        }
+        int insertAt = -(index + 1);
+        if (childCount == keys.length) {
+            int capacity = Math.max(2, childCount * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            children = Arrays.copyOf(children, capacity);
+        }
+        System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+        System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+        TrieNode child = new TrieNode();
+        keys[insertAt] = c;
+        children[insertAt] = child;
+        childCount++;
+        return child;
+    }
+
+    /**
+     * Returns the number of children of the node.
+     *
+     * @return The child count.
+     */
+    public int getChildCount() {
+        return childCount;
+    }
+
+    /**
+     * Returns the edge character of the child at the given position (children are sorted by character).
+     *
+     * @param index Position between 0 and getChildCount() - 1.
+     * @return The edge character.
+     */
+    public char getKeyAt(int index) {
+        return keys[index];
+    }
+
+    /**
+     * Returns the child at the given position (children are sorted by character).
+     *
+     * @param index Position between 0 and getChildCount() - 1.
+     * @return The child node.
+     */
+    public TrieNode getChildAt(int index) {
+        return children[index];
+    }
+
+    /**
+     * Adds a FoodItem that ends at this node.
+     *
+     * @param item The food item to store.
+     */
+    public void addItem(FoodItem item) {
+        if (itemCount == items.length) {
+            items = Arrays.copyOf(items, Math.max(1, itemCount * 2));
+        }
+        items[itemCount++] = item;
+    }
+
+    /**
+     * Returns the number of FoodItems stored at this node.
+     *
+     * @return The item count.
+     */
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    /**
+     * Returns the FoodItem at the given position.
+     *
+     * @param index Position between 0 and getItemCount() - 1.
+     * @return The food item.
+     */
+    public FoodItem getItemAt(int index) {
+        return items[index];
     }
 
     /**
      * Returns the list of FoodItems associated with this node.
-     * 
-     * @return List of FoodItem objects.
+     *
+     * @return Read-only list of FoodItem objects.
      */
     public List<FoodItem> getItems() {
-        return items;
+        return itemCount == 0 ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(items).subList(0, itemCount));
+    }
+
+    /**
+     * Returns the cached best items of this node's subtree, ordered by FoodComparator.
+     * The array is owned by the Trie and must not be modified.
+     *
+     * @return The ranked items (may be shorter than the Trie's ranking size).
+     */
+    public FoodItem[] getTopItems() {
+        return topItems;
+    }
+
+    /**
+     * Replaces the cached best items of this node's subtree.
+     *
+     * @param topItems The ranked items, best first.
+     */
+    public void setTopItems(FoodItem[] topItems) {
+        this.topItems = topItems;
+    }
+
+    /**
+     * Binary search for a child key.
+     *
+     * @param c The character to look for.
+     * @return The index of the key, or (-(insertion point) - 1) if absent.
+     */
+    private int indexOf(char c) {
+        int low = 0;
+        int high = childCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char key = keys[mid];
+            if (key < c) {
+                low = mid + 1;
+            } else if (key > c) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
     }
-}
\ No newline at end of file
+}
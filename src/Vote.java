@@ -0,0 +1,9 @@
+/**
+ * A vote (or several votes) on a food item: +1 for an up vote, -1 for a down vote,
+ * or any net number when votes are collected in bulk.
+ *
+ * @param item the food item voted on
+ * @param delta the net change to its rating
+ */
+public record Vote(FoodItem item, int delta) {
+}
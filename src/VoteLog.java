@@ -0,0 +1,497 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Durable storage for votes, so ratings survive restarts.
+ *
+ * Every vote is appended as a fixed 16-byte record (item key, delta, check value) to a memory-mapped log file.
+ * Appending only copies into the mapping; a background committer thread forces the newly written range to
+ * disk every few milliseconds, so many votes share one disk flush (group commit). Callers that need a vote to
+ * be on disk call sync().
+ *
+ * Once the log grows past a threshold, all ratings are written to a compact snapshot file and the log is
+ * emptied. On startup the snapshot plus whatever is left in the log are replayed into the attached Menu.
+ * The log header carries an epoch number and the snapshot records which epoch it already covers, so a crash
+ * between writing a snapshot and emptying the log never counts a vote twice.
+ */
+public class VoteLog implements Closeable {
+    /** Votes allowed in the log before it is folded into a snapshot. */
+    public static final long DEFAULT_COMPACTION_THRESHOLD = 1_000_000;
+    /** How long the committer waits between disk flushes. */
+    public static final long DEFAULT_COMMIT_INTERVAL_MILLIS = 5;
+
+    private static final String LOG_FILE = "votes.log";
+    private static final String SNAPSHOT_FILE = "votes.snapshot";
+    private static final int RECORD_SIZE = 16;
+    private static final int HEADER_SIZE = 16;
+    private static final long LOG_MAGIC = 0x43414645564F5445L;
+    private static final int SNAPSHOT_MAGIC = 0x43564F54;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int CHECK_SALT = 0x5EEDCAFE;
+    private static final long GROWTH_BYTES = 1L << 20;
+    private static final byte[] ZEROS = new byte[64 * 1024];
+
+    private final Path directory;
+    private final FileChannel channel;
+    private final long compactionThreshold;
+    private final long commitIntervalMillis;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong nextRecord = new AtomicLong();
+    private final Object commitMonitor = new Object();
+    private final Thread committer;
+
+    private MappedByteBuffer buffer;
+    private volatile long epoch;
+    private long committedRecords;
+    private boolean syncRequested;
+    private volatile boolean closed;
+
+    /** Last known rating of every key ever voted on, including dishes that are not on today's menu. */
+    private final Map<Long, Integer> ratings = new HashMap<>();
+    private Map<FoodItem, Long> keysByItem = new IdentityHashMap<>();
+
+    /**
+     * Opens (or creates) the vote log in the given directory with the default threshold and commit interval.
+     * @param directory Folder holding the log and snapshot files.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public VoteLog(Path directory) throws IOException {
+        this(directory, DEFAULT_COMPACTION_THRESHOLD, DEFAULT_COMMIT_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Opens (or creates) the vote log in the given directory and replays its contents.
+     * @param directory Folder holding the log and snapshot files.
+     * @param compactionThreshold Number of logged votes that triggers a snapshot.
+     * @param commitIntervalMillis Longest time a vote waits before it is forced to disk.
+     * @throws IOException If the files cannot be read or created.
+     */
+    public VoteLog(Path directory, long compactionThreshold, long commitIntervalMillis) throws IOException {
+        this.directory = directory;
+        this.compactionThreshold = compactionThreshold;
+        this.commitIntervalMillis = commitIntervalMillis;
+        Files.createDirectories(directory);
+
+        long coveredEpoch = readSnapshot();
+        channel = FileChannel.open(directory.resolve(LOG_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replayLog(coveredEpoch);
+
+        committer = new Thread(this::commitLoop, "vote-log-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Connects a freshly loaded menu to the log: every item gets a stable key (meal and normalized name) and
+     * items with a stored rating get it back. Ratings of a previously attached menu are folded into a snapshot first.
+     * @param menu The menu whose votes should be persisted.
+     * @return The number of items whose rating was restored.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public int attach(Menu menu) throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (!keysByItem.isEmpty()) {
+                compactLocked();
+            }
+            Map<FoodItem, Long> keys = new IdentityHashMap<>();
+            int restored = 0;
+            for (Map.Entry<String, List<FoodItem>> meal : menu.getMenue().entrySet()) {
+                for (FoodItem item : meal.getValue()) {
+                    if (item == null || item.getName() == null) {
+                        continue;
+                    }
+                    long key = keyOf(meal.getKey(), item.getName());
+                    keys.put(item, key);
+                    Integer rating = ratings.get(key);
+                    if (rating != null) {
+                        item.setRating(rating);
+                        restored++;
+                    }
+                }
+            }
+            keysByItem = keys;
+            return restored;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a vote to an item and appends it to the log. The vote reaches the disk with the next group commit;
+     * call sync() to wait for it. Items that are not part of the attached menu are voted on but not logged.
+     * @param item The item voted on.
+     * @param delta +1 for an up vote, -1 for a down vote, or any net number of votes.
+     */
+    public void vote(FoodItem item, int delta) {
+        while (true) {
+            lock.readLock().lock();
+            try {
+                Long key = keysByItem.get(item);
+                if (key == null) {
+                    item.addVotes(delta);
+                    return;
+                }
+                long record = nextRecord.getAndIncrement();
+                long offset = HEADER_SIZE + record * RECORD_SIZE;
+                if (offset + RECORD_SIZE <= buffer.capacity()) {
+                    int position = (int) offset;
+                    buffer.putLong(position, key);
+                    buffer.putInt(position + 8, delta);
+                    buffer.putInt(position + 12, check(key, delta));
+                    item.addVotes(delta);
+                    if (record + 1 >= compactionThreshold) {
+                        requestCommit();
+                    }
+                    return;
+                }
+                nextRecord.decrementAndGet();
+            } finally {
+                lock.readLock().unlock();
+            }
+            grow();
+        }
+    }
+
+    /**
+     * Blocks until every vote appended before this call has been forced to disk.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void sync() throws InterruptedException {
+        long startEpoch = epoch;
+        long target = nextRecord.get();
+        synchronized (commitMonitor) {
+            // a compaction in between moves the votes into the snapshot, which is durable as well
+            while (committedRecords < target && epoch == startEpoch && !closed) {
+                syncRequested = true;
+                commitMonitor.notifyAll();
+                commitMonitor.wait(commitIntervalMillis);
+            }
+        }
+    }
+
+    /**
+     * Writes all ratings to a new snapshot and empties the log.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of votes currently in the log (not yet folded into a snapshot).
+     * @return The log length in records.
+     */
+    public long getLoggedVoteCount() {
+        return nextRecord.get();
+    }
+
+    /**
+     * Returns the last known rating for a dish, whether or not it is on the attached menu.
+     * @param mealType Meal the dish was served at.
+     * @param name Dish name.
+     * @return The stored rating, or null if the dish was never voted on.
+     */
+    public Integer getStoredRating(String mealType, String name) {
+        lock.writeLock().lock();
+        try {
+            foldAttachedRatings();
+            return ratings.get(keyOf(mealType, name));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes a final snapshot and closes the log.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        compact();
+        closed = true;
+        synchronized (commitMonitor) {
+            commitMonitor.notifyAll();
+        }
+        try {
+            committer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    /**
+     * Builds the stable key of a dish: a 64-bit FNV-1a hash of the meal type and the normalized name.
+     * @param mealType Meal the dish is served at.
+     * @param name Dish name.
+     * @return The key stored in log and snapshot records.
+     */
+    static long keyOf(String mealType, String name) {
+        String text = mealType.toUpperCase() + '|' + CategoryDictionary.normalize(name);
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Check value stored with each record; an all-zero (never written) record never matches it.
+     */
+    private static int check(long key, int delta) {
+        return Long.hashCode(key * 0x9E3779B97F4A7C15L + delta) ^ CHECK_SALT;
+    }
+
+    /**
+     * Background loop: forces newly appended records to disk once per interval (or when sync asks),
+     * and compacts once the log passes the threshold.
+     */
+    private void commitLoop() {
+        while (!closed) {
+            synchronized (commitMonitor) {
+                if (!syncRequested && !closed) {
+                    try {
+                        commitMonitor.wait(commitIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                syncRequested = false;
+            }
+            try {
+                flush();
+                if (nextRecord.get() >= compactionThreshold) {
+                    compact();
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forces every record appended so far to disk.
+     */
+    private void flush() {
+        // Taking the write lock for a moment guarantees every reserved record below upTo has been written,
+        // then downgrading to the read lock keeps compaction and remapping out while forcing.
+        lock.writeLock().lock();
+        long upTo = nextRecord.get();
+        long committed;
+        synchronized (commitMonitor) {
+            committed = committedRecords;
+        }
+        lock.readLock().lock();
+        lock.writeLock().unlock();
+        try {
+            if (upTo > committed) {
+                long from = HEADER_SIZE + committed * RECORD_SIZE;
+                buffer.force((int) from, (int) ((upTo - committed) * RECORD_SIZE));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        markCommitted(upTo);
+    }
+
+    /**
+     * Records that everything below the given record is on disk and wakes sync() callers.
+     */
+    private void markCommitted(long records) {
+        synchronized (commitMonitor) {
+            committedRecords = records;
+            commitMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Wakes the committer early.
+     */
+    private void requestCommit() {
+        synchronized (commitMonitor) {
+            syncRequested = true;
+            commitMonitor.notifyAll();
+        }
+    }
+
+    /**
+     * Maps a larger region of the log file when appends reach the end of the current mapping.
+     */
+    private void grow() {
+        lock.writeLock().lock();
+        try {
+            long needed = HEADER_SIZE + (nextRecord.get() + 1) * RECORD_SIZE;
+            if (needed > buffer.capacity()) {
+                map(buffer.capacity() + GROWTH_BYTES);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow vote log", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Maps the first size bytes of the log file (growing the file if needed).
+     */
+    private void map(long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Vote log is larger than 2 GB; lower the compaction threshold");
+        }
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    /**
+     * Reads the log header and replays valid records into the ratings map. Stops at the first record whose
+     * check value does not match (the end of the log, or a record torn by a crash) and clears everything after it,
+     * so stale records behind a gap can never be replayed later.
+     * @param coveredEpoch The log epoch already folded into the snapshot.
+     */
+    private void replayLog(long coveredEpoch) throws IOException {
+        long fileSize = channel.size();
+        map(Math.max(GROWTH_BYTES, fileSize));
+        boolean hasHeader = fileSize >= HEADER_SIZE && buffer.getLong(0) == LOG_MAGIC;
+        long records = 0;
+        if (hasHeader && buffer.getLong(8) > coveredEpoch) {
+            epoch = buffer.getLong(8);
+            long maxRecords = (buffer.capacity() - HEADER_SIZE) / RECORD_SIZE;
+            while (records < maxRecords) {
+                int position = (int) (HEADER_SIZE + records * RECORD_SIZE);
+                long key = buffer.getLong(position);
+                int delta = buffer.getInt(position + 8);
+                if (buffer.getInt(position + 12) != check(key, delta)) {
+                    break;
+                }
+                ratings.merge(key, delta, Integer::sum);
+                records++;
+            }
+            zero(HEADER_SIZE + records * RECORD_SIZE, fileSize);
+        } else {
+            epoch = coveredEpoch + 1;
+            zero(HEADER_SIZE, fileSize);
+            buffer.putLong(0, LOG_MAGIC);
+            buffer.putLong(8, epoch);
+        }
+        buffer.force();
+        nextRecord.set(records);
+        committedRecords = records;
+    }
+
+    /**
+     * Copies the current rating of every attached item into the ratings map.
+     */
+    private void foldAttachedRatings() {
+        for (Map.Entry<FoodItem, Long> entry : keysByItem.entrySet()) {
+            ratings.put(entry.getValue(), entry.getKey().getRating());
+        }
+    }
+
+    /**
+     * Writes the snapshot and empties the log. Must hold the write lock, so no vote can land in between.
+     */
+    private void compactLocked() throws IOException {
+        foldAttachedRatings();
+        writeSnapshot(epoch);
+        long used = HEADER_SIZE + nextRecord.get() * RECORD_SIZE;
+        epoch++;
+        zero(HEADER_SIZE, used);
+        buffer.putLong(8, epoch);
+        buffer.force();
+        nextRecord.set(0);
+        markCommitted(0);
+    }
+
+    /**
+     * Fills part of the mapped log with zeros.
+     */
+    private void zero(long from, long to) {
+        long end = Math.min(to, buffer.capacity());
+        for (long position = from; position < end; position += ZEROS.length) {
+            int length = (int) Math.min(ZEROS.length, end - position);
+            buffer.put((int) position, ZEROS, 0, length);
+        }
+    }
+
+    /**
+     * Writes every known rating to a temporary file, forces it, and atomically renames it over the old snapshot.
+     * Layout: magic, version, covered epoch, count, then count pairs of (key, rating), then a CRC32 of all of it.
+     * @param coveredEpoch The log epoch whose votes are included.
+     */
+    private void writeSnapshot(long coveredEpoch) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(4 + 4 + 8 + 4 + ratings.size() * 12 + 8);
+        out.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(coveredEpoch).putInt(ratings.size());
+        for (Map.Entry<Long, Integer> rating : ratings.entrySet()) {
+            out.putLong(rating.getKey()).putInt(rating.getValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(out.array(), 0, out.position());
+        out.putLong(crc.getValue());
+        out.flip();
+
+        Path temp = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel file = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (out.hasRemaining()) {
+                file.write(out);
+            }
+            file.force(true);
+        }
+        Files.move(temp, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the snapshot, if there is a valid one, into the ratings map.
+     * @return The log epoch the snapshot covers, or 0 if there is no snapshot.
+     */
+    private long readSnapshot() throws IOException {
+        Path file = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (in.remaining() < 28 || in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+            throw new IOException("Unrecognized vote snapshot: " + file);
+        }
+        long coveredEpoch = in.getLong();
+        int count = in.getInt();
+        if (count < 0 || in.remaining() != count * 12L + 8) {
+            throw new IOException("Truncated vote snapshot: " + file);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(in.array(), 0, in.limit() - 8);
+        if (in.getLong(in.limit() - 8) != crc.getValue()) {
+            throw new IOException("Corrupt vote snapshot: " + file);
+        }
+        for (int i = 0; i < count; i++) {
+            ratings.put(in.getLong(), in.getInt());
+        }
+        return coveredEpoch;
+    }
+}
@@ -0,0 +1,260 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible synthetic traffic for a Menu: votes, prefix searches, category filters and looks at the top
+ * items, as many clients would send them over a day. The same seed always gives the same menu and the same stream of
+ * operations, so a load test can be rerun after a change and compared.
+ *
+ * Traffic is shaped like a cafeteria's. Items are not equally popular: the item at popularity rank r is picked with
+ * probability proportional to 1 / r^s (Zipf), so a few dishes get most of the votes and searches. Each item also has
+ * a fixed share of up votes, so ratings drift apart the way real ones do. Operations arrive as a Poisson process
+ * whose rate rises around breakfast, lunch and dinner, so bursts hit the menu the way the meal rush does.
+ */
+public class WorkloadGenerator {
+
+    /** The kinds of operation a client sends. */
+    public enum Kind {
+        /** An up or down vote on an item. */
+        VOTE,
+        /** A prefix search, as typed into the search box. */
+        SEARCH,
+        /** A category filter, as chosen with the filter buttons. */
+        FILTER,
+        /** A look at the best rated items, as with the Top 5 button. */
+        TOP
+    }
+
+    /**
+     * One operation of the stream.
+     *
+     * @param kind what the client does
+     * @param atMillis when it is sent, in milliseconds since midnight of the simulated day
+     * @param item the item voted on, or null
+     * @param delta +1 or -1 for a vote, otherwise 0
+     * @param text the search prefix or the category, or null for a vote or a top-k look
+     */
+    public record Operation(Kind kind, long atMillis, FoodItem item, int delta, String text) {
+    }
+
+    /** Default Zipf exponent: the most popular item is picked about twice as often as the second one. */
+    public static final double DEFAULT_ZIPF_EXPONENT = 1.0;
+
+    private static final String[] SYLLABLES = {
+        "ba", "ce", "di", "fo", "gu", "ha", "ke", "li", "mo", "nu", "pa", "re", "si", "to", "vu", "za"
+    };
+    private static final String[] CATEGORIES = {"Vegetarian", "Vegan", "Gluten-Free", "Halal"};
+    private static final double[] CATEGORY_WEIGHTS = {0.4, 0.25, 0.2, 0.15};
+    private static final String[] MEALS = {"BREAKFAST", "LUNCH", "DINNER"};
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    /** Centers of the meal rushes (8:00, 12:15, 18:00) and their spread, in hours. */
+    private static final double[] RUSH_HOURS = {8.0, 12.25, 18.0};
+    private static final double[] RUSH_HEIGHTS = {0.6, 1.0, 0.8};
+    private static final double RUSH_SPREAD_HOURS = 0.75;
+    /** Traffic outside the rushes, relative to the lunch peak. */
+    private static final double BASE_RATE = 0.05;
+
+    private final Random random;
+    private final FoodItem[] byPopularity;
+    private final double[] popularityCdf;
+    private final double[] upVoteShare;
+    private final double voteShare;
+    private final double searchShare;
+    private final double filterShare;
+    private final double peakOperationsPerMilli;
+    private double clockMillis;
+
+    /**
+     * Creates a generator with the default mix: 70% votes, 20% searches, 5% filters, 5% top-k looks, averaging one
+     * operation a second over the day.
+     * @param menu The menu whose items are voted on and searched.
+     * @param seed Seeds every random choice.
+     */
+    public WorkloadGenerator(Menu menu, long seed) {
+        this(menu, seed, DEFAULT_ZIPF_EXPONENT, 0.7, 0.2, 0.05, 86_400);
+    }
+
+    /**
+     * Creates a generator.
+     * @param menu The menu whose items are voted on and searched.
+     * @param seed Seeds every random choice.
+     * @param zipfExponent How skewed item popularity is: 0 for uniform, higher for a few very popular items.
+     * @param voteShare The share of operations that are votes.
+     * @param searchShare The share of operations that are searches.
+     * @param filterShare The share of operations that are category filters; the rest are top-k looks.
+     * @param operationsPerDay The average number of operations over the simulated day.
+     */
+    public WorkloadGenerator(Menu menu, long seed, double zipfExponent, double voteShare, double searchShare,
+            double filterShare, long operationsPerDay) {
+        if (voteShare < 0 || searchShare < 0 || filterShare < 0 || voteShare + searchShare + filterShare > 1
+                || operationsPerDay < 1) {
+            throw new IllegalArgumentException("Shares must be between 0 and 1 and there must be some operations");
+        }
+        List<FoodItem> items = menu.getAllFoodItems();
+        if (items.isEmpty()) {
+            throw new IllegalArgumentException("The menu has no items");
+        }
+        this.random = new Random(seed);
+        this.voteShare = voteShare;
+        this.searchShare = searchShare;
+        this.filterShare = filterShare;
+
+        byPopularity = items.toArray(new FoodItem[0]);
+        for (int i = byPopularity.length - 1; i > 0; i--) { // popularity does not follow menu order
+            int j = random.nextInt(i + 1);
+            FoodItem swap = byPopularity[i];
+            byPopularity[i] = byPopularity[j];
+            byPopularity[j] = swap;
+        }
+        popularityCdf = new double[byPopularity.length];
+        double total = 0;
+        for (int rank = 0; rank < popularityCdf.length; rank++) {
+            total += 1 / Math.pow(rank + 1, zipfExponent);
+            popularityCdf[rank] = total;
+        }
+        for (int rank = 0; rank < popularityCdf.length; rank++) {
+            popularityCdf[rank] /= total;
+        }
+        upVoteShare = new double[byPopularity.length];
+        for (int i = 0; i < upVoteShare.length; i++) {
+            upVoteShare[i] = 0.2 + 0.6 * random.nextDouble();
+        }
+
+        double meanRelativeRate = 0;
+        for (int minute = 0; minute < 24 * 60; minute++) {
+            meanRelativeRate += relativeRate(minute / 60.0) / (24 * 60);
+        }
+        peakOperationsPerMilli = operationsPerDay / (meanRelativeRate * DAY_MILLIS);
+    }
+
+    /**
+     * Builds a menu of made-up dishes, split evenly over breakfast, lunch and dinner, each with one or two categories.
+     * Names are 2 to 5 syllables long, so prefixes are shared the way real dish names share them.
+     * @param size The number of items.
+     * @param seed Seeds the names and categories.
+     * @return A new menu.
+     */
+    public static Menu generateMenu(int size, long seed) {
+        Random random = new Random(seed);
+        Menu menu = new Menu();
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            name.setLength(0);
+            int syllables = 2 + random.nextInt(4);
+            for (int s = 0; s < syllables; s++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                if (s == 1 && syllables > 3 && random.nextBoolean()) {
+                    name.append(' ');
+                }
+            }
+            name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+            List<String> categories = new ArrayList<>(2);
+            categories.add(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            String second = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            if (random.nextBoolean() && !categories.contains(second)) {
+                categories.add(second);
+            }
+            menu.addFoodItem(MEALS[i % MEALS.length], new FoodItem(name.toString(), categories));
+        }
+        return menu;
+    }
+
+    /**
+     * Returns the next operation of the stream. Operations come in time order and wrap around to the next day.
+     * @return The operation.
+     */
+    public Operation next() {
+        long at = nextArrival();
+        double kind = random.nextDouble();
+        if (kind < voteShare) {
+            int rank = popularItem();
+            int delta = random.nextDouble() < upVoteShare[rank] ? 1 : -1;
+            return new Operation(Kind.VOTE, at, byPopularity[rank], delta, null);
+        }
+        if (kind < voteShare + searchShare) {
+            String name = byPopularity[popularItem()].getName().toLowerCase();
+            int length = Math.min(name.length(), 1 + random.nextInt(4)); // people rarely type more before picking
+            return new Operation(Kind.SEARCH, at, null, 0, name.substring(0, length));
+        }
+        if (kind < voteShare + searchShare + filterShare) {
+            return new Operation(Kind.FILTER, at, null, 0, CATEGORIES[weighted(CATEGORY_WEIGHTS)]);
+        }
+        return new Operation(Kind.TOP, at, null, 0, null);
+    }
+
+    /**
+     * Returns the next operations of the stream.
+     * @param count How many to generate.
+     * @return A new list of the operations, in time order.
+     */
+    public List<Operation> next(int count) {
+        List<Operation> operations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            operations.add(next());
+        }
+        return operations;
+    }
+
+    /**
+     * Returns only votes, in bulk form, as a quick way to give a fresh menu believable ratings.
+     * @param count How many votes to cast.
+     * @return The votes.
+     */
+    public List<Vote> votes(int count) {
+        List<Vote> votes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int rank = popularItem();
+            votes.add(new Vote(byPopularity[rank], random.nextDouble() < upVoteShare[rank] ? 1 : -1));
+        }
+        return votes;
+    }
+
+    /**
+     * Samples the popularity rank of an item from the Zipf distribution.
+     */
+    private int popularItem() {
+        int index = Arrays.binarySearch(popularityCdf, random.nextDouble());
+        return Math.min(popularityCdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+
+    private int weighted(double[] weights) {
+        double pick = random.nextDouble();
+        for (int i = 0; i < weights.length - 1; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return i;
+            }
+        }
+        return weights.length - 1;
+    }
+
+    /**
+     * Advances the simulated clock to the next arrival. Arrivals are drawn at the peak rate and kept with
+     * probability rate(t) / peak (thinning), which gives a Poisson process with the time-varying rate.
+     */
+    private long nextArrival() {
+        while (true) {
+            clockMillis += -Math.log(1 - random.nextDouble()) / peakOperationsPerMilli;
+            double hour = (clockMillis % DAY_MILLIS) / 3_600_000;
+            if (random.nextDouble() < relativeRate(hour)) {
+                return (long) clockMillis;
+            }
+        }
+    }
+
+    /**
+     * The arrival rate at an hour of the day, relative to the highest rush (never above 1).
+     * @param hour Hours since midnight.
+     * @return The relative rate.
+     */
+    static double relativeRate(double hour) {
+        double rate = BASE_RATE;
+        for (int i = 0; i < RUSH_HOURS.length; i++) {
+            double distance = (hour - RUSH_HOURS[i]) / RUSH_SPREAD_HOURS;
+            rate += RUSH_HEIGHTS[i] * Math.exp(-distance * distance / 2);
+        }
+        return Math.min(1, rate);
+    }
+}
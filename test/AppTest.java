@@ -1,7 +1,42 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import com.sun.net.httpserver.HttpServer;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import javax.swing.JPanel;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import org.junit.jupiter.api.BeforeEach;
@@ -80,6 +115,60 @@ public void testDownVoteDecreasesRating() {
     assertEquals(2, foodItem2.getRating());
 }
 
+/**
+ * Tests that a batch of votes is summed per item and applied to each item.
+ */
+@Test
+public void testApplyVotesBatch() {
+    foodItem1.setRating(0);
+    foodItem2.setRating(5);
+    FoodItem.applyVotes(List.of(
+        new Vote(foodItem1, 1), new Vote(foodItem1, 1), new Vote(foodItem2, -3), new Vote(foodItem1, -1), new Vote(null, 4)));
+    assertEquals(1, foodItem1.getRating());
+    assertEquals(2, foodItem2.getRating());
+
+    menu.updateTopKFoodItems(1);
+    assertEquals(foodItem2, menu.getTopFoodItem());
+}
+
+/**
+ * Stress test: many threads voting at once on indexed items must not lose a single vote, and the
+ * rankings must agree with the final ratings.
+ */
+@Test
+public void testConcurrentVotesAreNotLost() throws InterruptedException {
+    int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+    int votesPerThread = 20_000;
+    foodItem1.setRating(0);
+    foodItem2.setRating(0);
+    runVoters(threads, votesPerThread, List.of(foodItem1, foodItem2));
+
+    assertEquals(threads * votesPerThread / 2, foodItem1.getRating());
+    assertEquals(threads * votesPerThread / 2, foodItem2.getRating());
+    menu.updateTopKFoodItems(3);
+    assertEquals(List.of(foodItem2, foodItem1, foodItem3), menu.getTopKFoodItems());
+    assertEquals(List.of(foodItem1, foodItem3), autoComplete.topCompletions("s", 2));
+}
+
+/**
+ * Starts the given number of threads that each up vote the items in turn, and waits for all of them.
+ */
+private static void runVoters(int threads, int votesPerThread, List<FoodItem> items) throws InterruptedException {
+    List<Thread> voters = new ArrayList<>();
+    for (int t = 0; t < threads; t++) {
+        Thread voter = new Thread(() -> {
+            for (int i = 0; i < votesPerThread; i++) {
+                items.get(i % items.size()).upVote();
+            }
+        });
+        voters.add(voter);
+        voter.start();
+    }
+    for (Thread voter : voters) {
+        voter.join();
+    }
+}
+
 //////////////////////////////////////////////////////////////////////////////////////////
 //////////////////// Menu Class Tests ////////////////////////////
 
@@ -148,6 +237,234 @@ public void testGetMenuForMissingMealType() {
     assertTrue(breakfastItems.isEmpty());
 }
 
+/**
+ * Tests that the overall top K follows votes cast after the items were added.
+ */
+@Test
+public void testTopKFollowsVotes() {
+    foodItem1.setRating(1);
+    foodItem2.setRating(2);
+    foodItem3.setRating(3);
+    menu.updateTopKFoodItems(2);
+    assertEquals(List.of(foodItem3, foodItem2), menu.getTopKFoodItems());
+
+    foodItem1.upVote();
+    foodItem1.upVote();
+    foodItem1.upVote();
+    foodItem3.downVote();
+    menu.updateTopKFoodItems(3);
+    assertEquals(List.of(foodItem1, foodItem2, foodItem3), menu.getTopKFoodItems());
+}
+
+/**
+ * Tests that the top item of a category follows votes and ignores items outside the category.
+ */
+@Test
+public void testTopItemInCategoryFollowsVotes() {
+    foodItem2.setRating(1);
+    foodItem3.setRating(2);
+    foodItem1.setRating(10);
+    assertEquals(foodItem3, menu.getTopItemInCategory("Vegetarian"));
+
+    foodItem2.upVote();
+    foodItem2.upVote();
+    assertEquals(foodItem2, menu.getTopItemInCategory(" vegetarian "));
+    assertEquals(foodItem1, menu.getTopItemInCategory("gluten free"));
+    assertEquals(null, menu.getTopItemInCategory("Kosher"));
+}
+
+/**
+ * Tests AND and OR filters over several categories.
+ */
+@Test
+public void testMultiCategoryFilters() {
+    assertEquals(List.of(foodItem3), menu.getFoodItemsInAllCategories("Vegetarian", "vegan"));
+    assertEquals(List.of(foodItem1, foodItem3), menu.getFoodItemsInAnyCategory("Halal", "Vegan"));
+    assertTrue(menu.getFoodItemsInAllCategories("Halal", "Vegan").isEmpty());
+    assertTrue(menu.getFoodItemsInAllCategories("Vegan", "Kosher").isEmpty());
+    assertEquals(List.of(foodItem3), menu.getFoodItemsInAnyCategory("Vegan", "Kosher"));
+}
+
+/**
+ * Tests that replacing an item's categories moves it between category filters and rankings.
+ */
+@Test
+public void testSetCategoryRefilesItem() {
+    foodItem2.setCategory(new ArrayList<>(List.of("Vegan")));
+    assertEquals(List.of(foodItem3), menu.getFoodItemsByCategory("Vegetarian"));
+    assertEquals(List.of(foodItem2, foodItem3), menu.getFoodItemsByCategory("Vegan"));
+
+    foodItem2.setRating(7);
+    assertEquals(foodItem2, menu.getTopItemInCategory("Vegan"));
+    assertEquals(foodItem3, menu.getTopItemInCategory("Vegetarian"));
+}
+
+/**
+ * Tests that unique category results drop repeated dishes and come back sorted by rating.
+ */
+@Test
+public void testUniqueFoodItemsByCategory() {
+    FoodItem saladAgain = new FoodItem("salad ", List.of("Vegetarian"));
+    menu.addFoodItem("Dinner", saladAgain);
+    foodItem2.setRating(1);
+    foodItem3.setRating(4);
+
+    List<FoodItem> unique = menu.getUniqueFoodItemsByCategory("Vegetarian");
+    assertEquals(List.of(foodItem3, foodItem2), unique);
+    assertTrue(menu.getUniqueFoodItemsByCategory(null).isEmpty());
+}
+
+/**
+ * Stress test: readers iterate, filter and rank the menu while writers add items, re-categorize and vote.
+ * Every read must see a consistent version (meal sizes never shrink, a view never changes while it is read)
+ * and must never wait for or be broken by a writer.
+ */
+@Test
+public void testMenuReadsStayConsistentUnderConcurrentWrites() throws Exception {
+    int writers = 2;
+    int readers = 4;
+    int itemsPerWriter = 2000;
+    int halalBefore = menu.getFoodItemsByCategory("halal").size();
+    CountDownLatch start = new CountDownLatch(1);
+    AtomicInteger done = new AtomicInteger();
+    AtomicInteger reads = new AtomicInteger();
+    List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+    List<Thread> threads = new ArrayList<>();
+    for (int w = 0; w < writers; w++) {
+        String meal = "MEAL" + w;
+        threads.add(new Thread(() -> {
+            try {
+                start.await();
+                for (int i = 0; i < itemsPerWriter; i++) {
+                    FoodItem item = new FoodItem(meal + " dish " + i, new ArrayList<>(List.of("Vegan")));
+                    menu.addFoodItem(meal, item);
+                    item.setRating(1 + i % 5);
+                    if (i % 3 == 0) {
+                        item.setCategory(new ArrayList<>(List.of("Halal")));
+                    }
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            } finally {
+                done.incrementAndGet();
+            }
+        }));
+    }
+    for (int r = 0; r < readers; r++) {
+        threads.add(new Thread(() -> {
+            try {
+                start.await();
+                int[] lastSizes = new int[writers];
+                while (done.get() < writers) {
+                    Map<String, List<FoodItem>> view = menu.getMenue();
+                    for (int w = 0; w < writers; w++) {
+                        List<FoodItem> items = view.getOrDefault("MEAL" + w, List.of());
+                        int size = items.size();
+                        assertTrue(size >= lastSizes[w], "A meal shrank between two reads");
+                        int seen = 0;
+                        for (FoodItem item : items) {
+                            assertTrue(item != null);
+                            seen++;
+                        }
+                        assertEquals(size, seen, "A view changed while it was read");
+                        lastSizes[w] = size;
+                    }
+                    menu.getFoodItemsInAnyCategory("vegan", "halal");
+                    menu.getTopItemInCategory("halal");
+                    reads.incrementAndGet();
+                }
+            } catch (Throwable e) {
+                errors.add(e);
+            }
+        }));
+    }
+    threads.forEach(Thread::start);
+    start.countDown();
+    for (Thread thread : threads) {
+        thread.join(60_000);
+    }
+
+    assertTrue(errors.isEmpty(), "Errors: " + errors);
+    assertTrue(reads.get() > 0);
+    for (int w = 0; w < writers; w++) {
+        assertEquals(itemsPerWriter, menu.getMenuForMeal("MEAL" + w).size());
+    }
+    int halal = halalBefore + (itemsPerWriter + 2) / 3 * writers;
+    assertEquals(halal, menu.getFoodItemsByCategory("halal").size());
+}
+
+/**
+ * Tests that filtering a large menu by category while other threads vote always returns every unique item, sorted.
+ */
+@Test
+public void testUniqueByCategoryWhileVoting() throws Exception {
+    Menu generated = WorkloadGenerator.generateMenu(6000, 3);
+    int vegan = generated.getUniqueFoodItemsByCategory("Vegan").size();
+    List<FoodItem> items = generated.getAllFoodItems();
+    Thread voter = new Thread(() -> {
+        Random random = new Random(6);
+        while (!Thread.currentThread().isInterrupted()) {
+            items.get(random.nextInt(items.size())).setRating(random.nextInt(100));
+        }
+    });
+    voter.start();
+    try {
+        for (int i = 0; i < 100; i++) {
+            assertEquals(vegan, generated.getUniqueFoodItemsByCategory("Vegan").size());
+        }
+    } finally {
+        voter.interrupt();
+        voter.join();
+    }
+    List<FoodItem> settled = generated.getUniqueFoodItemsByCategory("Vegan");
+    for (int i = 1; i < settled.size(); i++) {
+        assertTrue(new FoodComparator().compare(settled.get(i - 1), settled.get(i)) <= 0);
+    }
+}
+
+/**
+ * Tests that categories past the 63 with their own mask bit are accepted and still filtered exactly, through the
+ * shared overflow bit.
+ */
+@Test
+public void testCategoriesPastTheMaskBits() {
+    Menu tagged = new Menu();
+    List<FoodItem> items = new ArrayList<>();
+    for (int i = 0; i < CategoryDictionary.MASK_BITS + 10; i++) {
+        FoodItem item = new FoodItem("Dish " + i, List.of("Overflow Tag " + i, "Vegan"));
+        item.setRating(i);
+        items.add(item);
+        tagged.addFoodItem("Lunch", item);
+    }
+    FoodItem last = items.get(items.size() - 1);
+    int lastId = CategoryDictionary.lookup("Overflow Tag " + (items.size() - 1));
+    assertTrue(lastId >= CategoryDictionary.OVERFLOW_BIT);
+    assertTrue(last.hasCategory(lastId));
+    assertFalse(items.get(items.size() - 2).hasCategory(lastId));
+
+    String tag = "overflow tag " + (items.size() - 1);
+    assertEquals(List.of(last), tagged.getFoodItemsByCategory(tag));
+    assertEquals(List.of(last), tagged.getUniqueFoodItemsByCategory(tag));
+    assertEquals(last, tagged.getTopItemInCategory(tag));
+    assertEquals(items.size(), tagged.getFoodItemsByCategory("Vegan").size());
+    assertEquals(items.get(3), tagged.getTopItemInCategory("Overflow Tag 3"));
+}
+
+/**
+ * Tests that looking up unknown spellings of a category finds it without remembering them, so strings from clients
+ * cannot grow the dictionary.
+ */
+@Test
+public void testCategoryLookupDoesNotCacheClientSpellings() {
+    int vegan = CategoryDictionary.intern("Vegan");
+    int before = CategoryDictionary.spellingCount();
+    for (int i = 0; i < 1000; i++) {
+        assertEquals(vegan, CategoryDictionary.lookup(" ".repeat(i % 7) + "vEGAN" + "-".repeat(i / 7)));
+        assertEquals(-1, CategoryDictionary.lookup("no such category " + i));
+    }
+    assertEquals(before, CategoryDictionary.spellingCount());
+}
+
 //////////////////////////////////////////////////////////////////////////////////////////
 //////////////////// JsoupScraper Class Tests ////////////////////////////
 
@@ -162,6 +479,351 @@ public void testGetMenuForMissingMealType() {
 //     // Additional assertions would go here.
 // }
 
+/**
+ * Tests parsing a saved copy of the menu page: only "Specials" items with a known label are kept.
+ */
+@Test
+public void testParseMenuFromFixture() throws IOException {
+    Document page = Jsoup.parse(Files.readString(Path.of("test/fixtures/cafemac-menu.html")));
+    List<String> meals = new ArrayList<>();
+    Menu parsed = JsoupScraper.parseMenu(page, (mealType, items) -> meals.add(mealType + " " + items.size()));
+
+    assertEquals(List.of("BREAKFAST 4", "LUNCH 5", "DINNER 5"), meals);
+    assertEquals("Chicken Shawarma", parsed.getMenuForMeal("Lunch").get(0).getName());
+    assertEquals(List.of("Halal", "Gluten-Free"), parsed.getMenuForMeal("Lunch").get(0).getCategory());
+    assertEquals(7, parsed.getFoodItemsByCategory("Gluten-Free").size());
+}
+
+/**
+ * Tests that parsing the page as a stream, one meal section at a time, gives the same menu as parsing the whole document.
+ */
+@Test
+public void testStreamingParseMatchesDocumentParse() throws IOException {
+    Path fixture = Path.of("test/fixtures/cafemac-menu.html");
+    Menu fromDocument = JsoupScraper.parseMenu(Jsoup.parse(Files.readString(fixture)), (mealType, items) -> { });
+    List<String> meals = new ArrayList<>();
+    Menu streamed;
+    try (Reader html = Files.newBufferedReader(fixture)) {
+        streamed = JsoupScraper.parseMenu(html, "https://macalester.cafebonappetit.com/", (mealType, items) -> meals.add(mealType));
+    }
+
+    assertEquals(List.of("BREAKFAST", "LUNCH", "DINNER"), meals);
+    assertEquals(fromDocument.getMenue().keySet(), streamed.getMenue().keySet());
+    for (String meal : fromDocument.getMenue().keySet()) {
+        List<FoodItem> expected = fromDocument.getMenuForMeal(meal);
+        List<FoodItem> actual = streamed.getMenuForMeal(meal);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertEquals(expected.get(i).getCategory(), actual.get(i).getCategory());
+        }
+    }
+}
+
+/**
+ * Tests the single-pass extractor on a section whose specials tab button comes after the tab contents:
+ * only specials items are kept, labels are deduplicated, and items without a known label are dropped.
+ */
+@Test
+public void testMenuExtractorSinglePass() {
+    Document page = Jsoup.parse("<section data-jump-nav-title='Dinner'>"
+        + "<div class='c-tab__content' id='t-grill'><div class='site-panel__daypart-item'>"
+        + "<button class='h4 site-panel__daypart-item-title'>Burger</button><img alt='Halal'></div></div>"
+        + "<div class='c-tab__content' id='t-specials'>"
+        + "<div class='site-panel__daypart-item'><button class='h4 site-panel__daypart-item-title'> Dal <b>Makhani</b> </button>"
+        + "<img alt='Vegan'><img alt='vegan option'><img alt='Gluten free'></div>"
+        + "<div class='site-panel__daypart-item'><button class='h4 site-panel__daypart-item-title'>Cookie</button><img alt='Seafood'></div>"
+        + "</div>"
+        + "<div role='tablist'><button aria-controls='t-grill'>Dinner Grill</button>"
+        + "<button aria-controls='t-specials'>dinner SPECIALS</button></div></section>");
+    MenuExtractor extractor = new MenuExtractor(label -> label.contains("vegan") ? "Vegan" : label.contains("gluten") ? "Gluten-Free" : null);
+
+    List<FoodItem> specials = extractor.extractSpecials(page.selectFirst("section"), "DINNER");
+
+    assertEquals(1, specials.size());
+    assertEquals("Dal Makhani", specials.get(0).getName());
+    assertEquals(List.of("Vegan", "Gluten-Free"), specials.get(0).getCategory());
+    assertTrue(extractor.extractSpecials(page.selectFirst("section"), "BRUNCH").isEmpty());
+}
+
+/**
+ * Tests that a repeat load within the time-to-live sends no request, and that an expired page is
+ * revalidated with a conditional request whose 304 answer reuses the parsed menu.
+ */
+@Test
+public void testMenuCacheConditionalRequests() throws Exception {
+    FixtureServer server = new FixtureServer();
+    Path dir = Files.createTempDirectory("menucache");
+    MutableClock clock = new MutableClock();
+    MenuCache cache = new MenuCache(server.url(), dir, Duration.ofMinutes(15), Duration.ZERO, clock);
+    try {
+        long start = System.nanoTime();
+        Menu first = cache.load((mealType, items) -> { });
+        long coldNanos = System.nanoTime() - start;
+        assertEquals(1, server.requests());
+        assertEquals(server.bodyLength(), cache.getBytesDownloaded());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertSame(first, cache.load((mealType, items) -> { }));
+        assertEquals(1, server.requests());
+
+        clock.advance(Duration.ofMinutes(20));
+        start = System.nanoTime();
+        List<String> meals = new ArrayList<>();
+        assertSame(first, cache.load((mealType, items) -> meals.add(mealType)));
+        long revalidatedNanos = System.nanoTime() - start;
+        assertEquals(2, server.requests());
+        assertEquals(1, cache.getNotModifiedCount());
+        assertEquals(server.bodyLength(), cache.getBytesDownloaded());
+        assertEquals(List.of("BREAKFAST", "LUNCH", "DINNER"), meals);
+        assertTrue(revalidatedNanos < coldNanos, "a 304 should be quicker than downloading and parsing the page");
+
+        MenuCache restarted = new MenuCache(server.url(), dir, Duration.ZERO, Duration.ZERO, clock);
+        Menu fromDisk = restarted.load((mealType, items) -> { });
+        assertEquals(3, server.requests());
+        assertEquals(0, restarted.getBytesDownloaded());
+        assertEquals(5, fromDisk.getMenuForMeal("Dinner").size());
+    } finally {
+        server.stop();
+        deleteDirectory(dir);
+    }
+}
+
+/**
+ * Tests that downloads overlapping in one cache directory each write their own temporary page, so the page left in
+ * place is whole and no temporary file is left behind.
+ */
+@Test
+public void testMenuCacheOverlappingDownloads() throws Exception {
+    FixtureServer server = new FixtureServer(50);
+    Path dir = Files.createTempDirectory("menucache");
+    MutableClock clock = new MutableClock();
+    ExecutorService loaders = Executors.newVirtualThreadPerTaskExecutor();
+    try {
+        List<Future<Menu>> loads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            MenuCache cache = new MenuCache(server.url(), dir, Duration.ofMinutes(15), Duration.ZERO, clock);
+            loads.add(loaders.submit(() -> cache.load((mealType, items) -> { })));
+        }
+        for (Future<Menu> load : loads) {
+            assertEquals(5, load.get().getMenuForMeal("Dinner").size());
+        }
+        assertEquals(8, server.requests());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(List.of(), files.filter(file -> file.toString().endsWith(".tmp")).toList());
+        }
+
+        Menu fromDisk = new MenuCache(server.url(), dir, Duration.ofMinutes(15), Duration.ZERO, clock).load((mealType, items) -> { });
+        assertEquals(8, server.requests());
+        assertEquals(5, fromDisk.getMenuForMeal("Dinner").size());
+    } finally {
+        loaders.shutdownNow();
+        server.stop();
+        deleteDirectory(dir);
+    }
+}
+
+/**
+ * Tests that in the stale-while-revalidate window the cached menu is returned at once and refreshed in the background.
+ */
+@Test
+public void testMenuCacheStaleWhileRevalidate() throws Exception {
+    FixtureServer server = new FixtureServer();
+    Path dir = Files.createTempDirectory("menucache");
+    MutableClock clock = new MutableClock();
+    MenuCache cache = new MenuCache(server.url(), dir, Duration.ofMinutes(15), Duration.ofHours(6), clock);
+    try {
+        Menu first = cache.load((mealType, items) -> { });
+        clock.advance(Duration.ofHours(1));
+        assertSame(first, cache.load((mealType, items) -> { }));
+        cache.awaitRevalidation();
+        assertEquals(2, server.requests());
+        assertEquals(1, cache.getNotModifiedCount());
+
+        assertSame(first, cache.load((mealType, items) -> { }));
+        assertEquals(2, server.requests());
+    } finally {
+        server.stop();
+        deleteDirectory(dir);
+    }
+}
+
+/**
+ * Tests that the scheduler fetches every (cafe, date) page in parallel without exceeding the per-host limit,
+ * so that the wall-clock time is close to pages / limit round trips, and that failed pages are recorded.
+ */
+@Test
+public void testMenuSchedulerFetchesInParallel() throws Exception {
+    FixtureServer server = new FixtureServer(150);
+    try {
+        List<Cafe> cafes = List.of(new Cafe("Cafe Mac", server.url() + "cafe-mac/"), new Cafe("Atrium", server.url() + "atrium/"));
+        MenuScheduler scheduler = new MenuScheduler(4, 1000, 8);
+
+        long start = System.nanoTime();
+        MenuCalendar week = scheduler.fetchDays(cafes, LocalDate.of(2025, 4, 28), 4);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals(8, week.size());
+        assertEquals(8, server.requests());
+        assertTrue(server.maxInFlight() <= 4, "at most 4 requests in flight, saw " + server.maxInFlight());
+        assertTrue(elapsedMillis < 8 * 150, "8 pages at 4 at a time should take about 2 round trips, took " + elapsedMillis + " ms");
+        assertEquals(List.of(LocalDate.of(2025, 4, 28), LocalDate.of(2025, 4, 29), LocalDate.of(2025, 4, 30), LocalDate.of(2025, 5, 1)),
+            new ArrayList<>(week.getDates()));
+        assertEquals(List.of("Atrium", "Cafe Mac"), new ArrayList<>(week.getMenusOn(LocalDate.of(2025, 4, 30)).keySet()));
+        assertEquals(5, week.get(LocalDate.of(2025, 5, 1), "Atrium").getMenuForMeal("Lunch").size());
+
+        MenuCalendar partial = scheduler.fetch(List.of(new Cafe("Gone", server.url() + "missing/")), List.of(LocalDate.of(2025, 4, 28)));
+        assertEquals(0, partial.size());
+        assertEquals(1, partial.getFailures().size());
+    } finally {
+        server.stop();
+    }
+}
+
+/**
+ * Tests that requests queued behind the per-host limit still start at the host's rate when the requests in flight
+ * all finish at once, rather than together.
+ */
+@Test
+public void testMenuSchedulerPacesQueuedRequests() throws Exception {
+    FixtureServer server = new FixtureServer(500, true);
+    try {
+        MenuScheduler scheduler = new MenuScheduler(4, 20, 1);
+        scheduler.fetchDays(List.of(new Cafe("Cafe Mac", server.url())), LocalDate.of(2025, 4, 28), 8);
+
+        List<Long> arrivals = server.arrivals();
+        Collections.sort(arrivals);
+        assertEquals(8, arrivals.size());
+        // The four that queued for a slot (the first four are skewed by connection set-up) need three more tokens.
+        long spreadMillis = (arrivals.get(7) - arrivals.get(4)) / 1_000_000;
+        assertTrue(spreadMillis >= 100, "4 queued requests at 20/s should start over 150 ms, took " + spreadMillis + " ms");
+    } finally {
+        server.stop();
+    }
+}
+
+/**
+ * Tests that the token bucket lets a burst through at once and then paces requests at its rate.
+ */
+@Test
+public void testTokenBucketPacesRequests() throws InterruptedException {
+    TokenBucket bucket = new TokenBucket(20, 2);
+    long start = System.nanoTime();
+    for (int i = 0; i < 6; i++) {
+        bucket.acquire();
+    }
+    long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+    assertTrue(elapsedMillis >= 180, "4 requests past the burst at 20/s need 200 ms, took " + elapsedMillis + " ms");
+}
+
+/**
+ * A local stand-in for the Bon Appétit site: serves the saved menu page with an ETag and answers
+ * conditional requests for that ETag with 304 Not Modified. Paths containing "missing" get a 404.
+ * It can also wait before answering, to stand in for network latency, and records the most requests it had in flight
+ * and when each request arrived. A batched server holds every answer until the next multiple of the delay since it
+ * started, so the requests in flight all finish together.
+ */
+private static class FixtureServer {
+    private final HttpServer server;
+    private final byte[] body;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+
+    FixtureServer() throws IOException {
+        this(0);
+    }
+
+    FixtureServer(long delayMillis) throws IOException {
+        this(delayMillis, false);
+    }
+
+    FixtureServer(long delayMillis, boolean batched) throws IOException {
+        long startedAt = System.nanoTime();
+        body = Files.readAllBytes(Path.of("test/fixtures/cafemac-menu.html"));
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", exchange -> {
+            long arrivedAt = System.nanoTime();
+            arrivals.add(arrivedAt);
+            requests.incrementAndGet();
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                long sinceStart = (arrivedAt - startedAt) / 1_000_000;
+                Thread.sleep(batched ? delayMillis - sinceStart % delayMillis : delayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.decrementAndGet();
+            if (exchange.getRequestURI().getPath().contains("missing")) {
+                exchange.sendResponseHeaders(404, -1);
+            } else if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            }
+            exchange.close();
+        });
+        server.start();
+    }
+
+    String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/";
+    }
+
+    int requests() {
+        return requests.get();
+    }
+
+    long bodyLength() {
+        return body.length;
+    }
+
+    int maxInFlight() {
+        return maxInFlight.get();
+    }
+
+    List<Long> arrivals() {
+        synchronized (arrivals) {
+            return new ArrayList<>(arrivals);
+        }
+    }
+
+    void stop() {
+        server.stop(0);
+    }
+}
+
+/**
+ * A clock that only moves when a test advances it.
+ */
+private static class MutableClock extends Clock {
+    private Instant now = Instant.parse("2025-04-28T12:00:00Z");
+
+    void advance(Duration duration) {
+        now = now.plus(duration);
+    }
+
+    @Override
+    public Instant instant() {
+        return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        return this;
+    }
+}
+
 //////////////////////////////////////////////////////////////////////////////////////////
 //////////////////// AutoComplete Class Tests ////////////////////////////
 
@@ -254,4 +916,1367 @@ public void testSearchByPrefixWithNullQuery() {
     List<FoodItem> results = autoComplete.searchByPrefix(null);
     assertTrue(results.isEmpty());
 }
-}
\ No newline at end of file
+
+/**
+ * Tests that a bulk-built trie has the same contents, order and rankings as one built with insert.
+ */
+@Test
+public void testBulkLoadMatchesInserts() {
+    Random random = new Random(18);
+    List<String> words = new ArrayList<>();
+    List<FoodItem> items = new ArrayList<>();
+    Trie inserted = new Trie(3);
+    for (int i = 0; i < 200; i++) {
+        StringBuilder word = new StringBuilder();
+        for (int c = random.nextInt(5); c >= 0; c--) {
+            word.append("abc".charAt(random.nextInt(3)));
+        }
+        FoodItem item = new FoodItem(word.toString(), null);
+        item.setRating(random.nextInt(50));
+        words.add(word.toString());
+        items.add(item);
+    }
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < words.size(); i++) {
+        order.add(i);
+    }
+    order.sort(Comparator.comparing(words::get));
+    List<String> sortedWords = new ArrayList<>();
+    List<FoodItem> sortedItems = new ArrayList<>();
+    for (int i : order) {
+        sortedWords.add(words.get(i));
+        sortedItems.add(items.get(i));
+        inserted.insert(words.get(i), items.get(i));
+    }
+    Trie bulk = new Trie(3);
+    bulk.bulkLoad(sortedWords, sortedItems);
+
+    for (String prefix : List.of("", "a", "ab", "cab", "ccc", "x")) {
+        assertEquals(inserted.searchByPrefix(prefix), bulk.searchByPrefix(prefix), prefix);
+        assertEquals(inserted.topCompletions(prefix, 3), bulk.topCompletions(prefix, 3), prefix);
+    }
+    items.get(0).setRating(1000);
+    assertEquals(items.get(0), bulk.topCompletions("", 1).get(0));
+    try {
+        bulk.bulkLoad(List.of("b", "a"), List.of(foodItem1, foodItem2));
+        assertTrue(false, "unsorted words should be rejected");
+    } catch (IllegalArgumentException e) {
+        assertTrue(e.getMessage().contains("sorted"));
+    }
+}
+
+/**
+ * Tests that a search or typing cursor that picked up a generation before it was replaced still finds its items, and
+ * that the retired trie no longer follows ratings.
+ */
+@Test
+public void testSearchOnRetiredGeneration() {
+    AutoComplete index = new AutoComplete();
+    index.addMenuItems(menu);
+    Trie retired = index.getTrie();
+    PrefixCursor cursor = retired.cursor();
+    cursor.moveTo("pi");
+    List<FoodItem> topBefore = retired.topCompletions("", 3);
+
+    Menu more = new Menu();
+    more.addFoodItem("Dinner", new FoodItem("Kebab", null));
+    index.addMenuItems(more);
+    assertTrue(retired != index.getTrie());
+
+    assertEquals(List.of(foodItem1), retired.searchByPrefix("shaw"));
+    assertEquals(List.of(foodItem2), cursor.results());
+    cursor.moveTo("sal");
+    assertEquals(List.of(foodItem3), cursor.results());
+    foodItem3.setRating(100);
+    assertEquals(topBefore, retired.topCompletions("", 3));
+    assertEquals(foodItem3, index.topCompletions("", 1).get(0));
+}
+
+/**
+ * Tests that adding items publishes a new generation, keeps earlier items once per name, and retires the old trie
+ * without emptying it.
+ */
+@Test
+public void testAddMenuItemsSwapsGenerations() throws Exception {
+    AutoComplete index = new AutoComplete();
+    index.addMenuItems(menu);
+    Trie first = index.getTrie();
+    long generation = index.getGeneration();
+    FoodItem kebab = new FoodItem("Kebab", null);
+    Menu more = new Menu();
+    more.addFoodItem("Dinner", new FoodItem("SALAD", null));
+    more.addFoodItem("Dinner", kebab);
+    index.addMenuItems(more);
+
+    assertEquals(generation + 1, index.getGeneration());
+    assertEquals(List.of(foodItem3), index.searchByPrefix("sal"));
+    assertEquals(List.of(kebab), index.searchByPrefix("keb"));
+    assertEquals(3, first.searchByPrefix("").size()); // retired, not emptied
+
+    Menu big = new Menu();
+    for (int i = 0; i < 2000; i++) {
+        big.addFoodItem("Lunch", new FoodItem("dish " + i, null));
+    }
+    AtomicInteger partial = new AtomicInteger();
+    Thread reader = new Thread(() -> {
+        while (!Thread.currentThread().isInterrupted()) {
+            int found = index.searchByPrefix("dish").size();
+            if (found != 0 && found != 2000) {
+                partial.incrementAndGet();
+            }
+        }
+    });
+    reader.start();
+    for (int i = 0; i < 20; i++) {
+        index.clear();
+        index.addMenuItems(big);
+    }
+    reader.interrupt();
+    reader.join();
+    assertEquals(0, partial.get());
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// Trie Class Tests ////////////////////////////
+
+/**
+ * Tests that children inserted out of order are still found, and that prefix results come back in character order.
+ */
+@Test
+public void testTrieChildrenStaySorted() {
+    Trie trie = new Trie();
+    FoodItem zucchini = new FoodItem("Zucchini", null);
+    FoodItem apple = new FoodItem("Apple", null);
+    FoodItem mango = new FoodItem("Mango", null);
+    trie.insert("zucchini", zucchini);
+    trie.insert("apple", apple);
+    trie.insert("mango", mango);
+
+    assertEquals(List.of(apple, mango, zucchini), trie.searchByPrefix(""));
+    assertEquals(List.of(mango), trie.searchByPrefix("man"));
+    assertTrue(trie.searchByPrefix("b").isEmpty());
+}
+
+/**
+ * Tests that several items can end at the same node and that a word which is a prefix of another keeps its items.
+ */
+@Test
+public void testTrieSharedPrefixesAndDuplicateWords() {
+    Trie trie = new Trie();
+    FoodItem tea = new FoodItem("Tea", null);
+    FoodItem teaAgain = new FoodItem("Tea", null);
+    FoodItem teacake = new FoodItem("Teacake", null);
+    trie.insert("tea", tea);
+    trie.insert("tea", teaAgain);
+    trie.insert("teacake", teacake);
+
+    assertEquals(List.of(tea, teaAgain, teacake), trie.searchByPrefix("tea"));
+    assertEquals(List.of(teacake), trie.searchByPrefix("teac"));
+
+    trie.clear();
+    assertTrue(trie.searchByPrefix("tea").isEmpty());
+}
+
+/**
+ * Tests that ranked completions come back in rating order and follow later votes.
+ */
+@Test
+public void testTopCompletionsFollowVotes() {
+    FoodItem sushi = new FoodItem("Sushi", null);
+    Menu sMenu = new Menu();
+    sMenu.addFoodItem("Lunch", foodItem1);
+    sMenu.addFoodItem("Lunch", foodItem3);
+    sMenu.addFoodItem("Lunch", sushi);
+    AutoComplete ranked = new AutoComplete();
+    ranked.addMenuItems(sMenu);
+
+    foodItem1.setRating(2);
+    foodItem3.setRating(5);
+    sushi.setRating(3);
+    assertEquals(List.of(foodItem3, sushi, foodItem1), ranked.topCompletions("s", 3));
+    assertEquals(List.of(foodItem3), ranked.topCompletions("S", 1));
+
+    for (int i = 0; i < 4; i++) {
+        foodItem1.upVote();
+    }
+    assertEquals(List.of(foodItem1, foodItem3), ranked.topCompletions("s", 2));
+
+    foodItem1.setRating(-1);
+    assertEquals(List.of(foodItem3, sushi), ranked.topCompletions("s", 2));
+    assertEquals(List.of(foodItem1), ranked.topCompletions("shaw", 5));
+}
+
+/**
+ * Tests that asking for more items than a node caches still returns a correctly ranked list.
+ */
+@Test
+public void testTopCompletionsBeyondRankingSize() {
+    Trie trie = new Trie(2);
+    List<FoodItem> soups = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+        FoodItem soup = new FoodItem("Soup " + i, null);
+        soup.setRating(i);
+        soups.add(soup);
+        trie.insert("soup " + i, soup);
+    }
+    assertEquals(List.of(soups.get(4), soups.get(3)), trie.topCompletions("soup", 2));
+    assertEquals(List.of(soups.get(4), soups.get(3), soups.get(2), soups.get(1)), trie.topCompletions("soup", 4));
+
+    soups.get(0).setRating(10);
+    assertEquals(List.of(soups.get(0), soups.get(4)), trie.topCompletions("so", 2));
+
+    trie.clear();
+    soups.get(1).setRating(20);
+    assertTrue(trie.topCompletions("soup", 2).isEmpty());
+}
+
+/**
+ * Tests typo-tolerant search: misspellings, missing letters and swapped letters still find the item,
+ * and closer matches come before better rated but more distant ones.
+ */
+@Test
+public void testFuzzySearchToleratesTypos() {
+    FoodItem pizza = new FoodItem("Pizza", null);
+    FoodItem chicken = new FoodItem("Chicken Shawarma", null);
+    Trie trie = new Trie();
+    trie.insert("shawarma", foodItem1);
+    trie.insert("pizza", pizza);
+    trie.insert("piza", foodItem2);
+    trie.insert("chicken shawarma", chicken);
+    trie.insert("shawarma", chicken);
+    pizza.setRating(50);
+    foodItem1.setRating(5);
+
+    assertEquals(List.of(foodItem1, chicken), trie.fuzzySearch("shawrma", 1, 5));
+    assertEquals(List.of(foodItem1, chicken), trie.fuzzySearch("sahwarma", 1, 5));
+    assertEquals(List.of(foodItem2, pizza), trie.fuzzySearch("piza", 1, 5));
+    assertEquals(List.of(pizza), trie.fuzzySearch("pizz", 0, 5));
+    assertTrue(trie.fuzzySearch("burger", 2, 5).isEmpty());
+    assertEquals(List.of(foodItem2), autoComplete.fuzzySearch("PIAZ", 1, 5));
+}
+
+/**
+ * Tests the pruned trie walk against brute force: the edit distance from the query to every prefix of every name.
+ */
+@Test
+public void testFuzzySearchMatchesBruteForce() {
+    Random random = new Random(14);
+    String letters = "abcde";
+    Trie trie = new Trie();
+    Map<FoodItem, String> names = new IdentityHashMap<>();
+    for (int i = 0; i < 300; i++) {
+        StringBuilder name = new StringBuilder();
+        for (int c = 2 + random.nextInt(6); c > 0; c--) {
+            name.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        FoodItem item = new FoodItem(name.toString(), null);
+        item.setRating(random.nextInt(100));
+        names.put(item, name.toString());
+        trie.insert(name.toString(), item);
+    }
+    for (int q = 0; q < 50; q++) {
+        StringBuilder query = new StringBuilder();
+        for (int c = 1 + random.nextInt(5); c > 0; c--) {
+            query.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        for (int maxDistance = 0; maxDistance <= 2; maxDistance++) {
+            Set<FoodItem> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Map.Entry<FoodItem, String> entry : names.entrySet()) {
+                if (prefixEditDistance(entry.getValue(), query.toString()) <= maxDistance) {
+                    expected.add(entry.getKey());
+                }
+            }
+            List<FoodItem> found = trie.fuzzySearch(query.toString(), maxDistance, 1000);
+            assertEquals(expected.size(), found.size(), "query " + query + " at distance " + maxDistance);
+            assertTrue(expected.containsAll(found));
+        }
+    }
+}
+
+/**
+ * The smallest optimal string alignment distance between the query and any prefix of the name.
+ */
+private static int prefixEditDistance(String name, String query) {
+    int[][] d = new int[name.length() + 1][query.length() + 1];
+    for (int j = 0; j <= query.length(); j++) {
+        d[0][j] = j;
+    }
+    int best = d[0][query.length()];
+    for (int i = 1; i <= name.length(); i++) {
+        d[i][0] = i;
+        for (int j = 1; j <= query.length(); j++) {
+            int cost = name.charAt(i - 1) == query.charAt(j - 1) ? 0 : 1;
+            d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+            if (i > 1 && j > 1 && name.charAt(i - 1) == query.charAt(j - 2) && name.charAt(i - 2) == query.charAt(j - 1)) {
+                d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+            }
+        }
+        best = Math.min(best, d[i][query.length()]);
+    }
+    return best;
+}
+
+/**
+ * Tests that words further into a name are found, that several words narrow the result, and that infix search finds
+ * text inside a word.
+ */
+@Test
+public void testNameIndexFindsWordsAndInfixes() {
+    FoodItem thighs = new FoodItem("Grilled Chicken Thighs", null);
+    FoodItem mac = new FoodItem("Mac and Cheese", null);
+    FoodItem wrap = new FoodItem("Chicken Caesar Wrap", null);
+    AutoComplete index = new AutoComplete();
+    Menu menu = new Menu();
+    menu.addFoodItem("Lunch", thighs);
+    menu.addFoodItem("Lunch", mac);
+    menu.addFoodItem("Dinner", wrap);
+    index.addMenuItems(menu);
+
+    assertTrue(index.searchByPrefix("chicken").contains(wrap));
+    assertFalse(index.searchByPrefix("chicken").contains(thighs));
+    assertEquals(Set.of(thighs, wrap), new HashSet<>(index.searchWords("Chicken")));
+    assertEquals(List.of(thighs), index.searchWords("chick thi"));
+    assertEquals(List.of(mac), index.searchWords("cheese"));
+    assertTrue(index.searchWords("chicken cheese").isEmpty());
+    assertEquals(List.of(mac), index.searchSubstring("eese"));
+    assertEquals(List.of(mac), index.searchSubstring("and chee"));
+    assertEquals(Set.of(thighs, wrap), new HashSet<>(index.searchSubstring("ck")));
+}
+
+/**
+ * Tests both infix modes (trigram postings and suffix array) against String.contains on random names.
+ */
+@Test
+public void testNameIndexSubstringModesMatchContains() {
+    Random random = new Random(15);
+    String letters = "abc ";
+    List<FoodItem> items = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+        StringBuilder name = new StringBuilder();
+        for (int c = 3 + random.nextInt(10); c > 0; c--) {
+            name.append(letters.charAt(random.nextInt(letters.length())));
+        }
+        items.add(new FoodItem(name.toString(), null));
+    }
+    NameIndex trigrams = new NameIndex(items, false);
+    NameIndex suffixes = new NameIndex(items, true);
+    for (int q = 0; q < 100; q++) {
+        StringBuilder query = new StringBuilder();
+        for (int c = 1 + random.nextInt(5); c > 0; c--) {
+            query.append("abc".charAt(random.nextInt(3)));
+        }
+        List<FoodItem> expected = new ArrayList<>();
+        for (FoodItem item : items) {
+            if (String.join(" ", NameIndex.tokenize(item.getName())).contains(query)) {
+                expected.add(item);
+            }
+        }
+        assertEquals(expected, trigrams.searchSubstring(query.toString()), "query " + query);
+        assertEquals(expected, suffixes.searchSubstring(query.toString()), "query " + query);
+    }
+}
+
+/**
+ * Tests that a cursor moved one keystroke at a time finds the same items as a search from the root.
+ */
+@Test
+public void testPrefixCursorMatchesSearchByPrefix() {
+    Trie trie = new Trie();
+    trie.insert("salad", foodItem3);
+    trie.insert("sambusa", foodItem1);
+    trie.insert("shawarma", foodItem2);
+    trie.insert("sa", foodItem2);
+    PrefixCursor cursor = trie.cursor();
+
+    assertEquals(trie.searchByPrefix(""), cursor.results());
+    cursor.advance('s');
+    cursor.advance('a');
+    assertEquals("sa", cursor.getPrefix());
+    assertEquals(trie.searchByPrefix("sa"), cursor.results());
+    assertEquals(List.of(foodItem2, foodItem3, foodItem1), cursor.results());
+    cursor.advance('x');
+    assertFalse(cursor.hasMatches());
+    assertTrue(cursor.results().isEmpty());
+    cursor.retreat();
+    cursor.advance('l');
+    assertEquals(List.of(foodItem3), cursor.results());
+    assertEquals(trie.topCompletions("sal", 5), cursor.top(5));
+    cursor.moveTo("sh");
+    assertEquals(List.of(foodItem2), cursor.results());
+    trie.insert("shish kebab", foodItem1);
+    assertEquals(trie.searchByPrefix("sh"), cursor.results());
+    cursor.moveTo("");
+    try {
+        cursor.retreat();
+        assertTrue(false, "retreat past the empty prefix should fail");
+    } catch (IllegalStateException e) {
+        assertTrue(e.getMessage().contains("empty prefix"));
+    }
+}
+
+/**
+ * Tests that a cursor walks its query again after the trie is rebuilt, and that a running iterator fails instead.
+ */
+@Test
+public void testPrefixCursorRevalidatesAfterRebuild() {
+    Trie trie = new Trie();
+    trie.insert("salad", foodItem3);
+    trie.insert("sambusa", foodItem1);
+    PrefixCursor cursor = trie.cursor();
+    cursor.moveTo("sa");
+    Iterator<FoodItem> running = cursor.iterator();
+    assertEquals(foodItem3, running.next());
+
+    trie.clear();
+    assertFalse(cursor.hasMatches());
+    trie.insert("samosa", foodItem2);
+    assertEquals(List.of(foodItem2), cursor.results());
+    try {
+        running.next();
+        assertTrue(false, "an iterator over a cleared trie should fail");
+    } catch (ConcurrentModificationException e) {
+        assertTrue(e.getMessage().contains("cleared"));
+    }
+
+    AutoComplete index = new AutoComplete();
+    index.addMenuItems(menu);
+    assertEquals(index.searchByPrefix("sh"), index.searchAsTyped("sh"));
+    assertEquals(index.searchByPrefix("s"), index.searchAsTyped("S"));
+    index.clear();
+    assertTrue(index.searchAsTyped("s").isEmpty());
+}
+
+/**
+ * Tests that ranked results sort by the ratings items had when the sort started, so votes landing during a sort
+ * cannot break it, and that a key such as a fuzzy distance is compared before the rating.
+ */
+@Test
+public void testRankedSortsWhileVotesChangeRatings() throws Exception {
+    List<FoodItem> items = new ArrayList<>();
+    Trie trie = new Trie(3);
+    for (int i = 0; i < 2000; i++) {
+        FoodItem item = new FoodItem("dish " + i, null);
+        items.add(item);
+        trie.insert(item.getName(), item);
+    }
+    Thread voter = new Thread(() -> {
+        Random random = new Random(4);
+        while (!Thread.currentThread().isInterrupted()) {
+            FoodItem item = items.get(random.nextInt(items.size()));
+            if (random.nextBoolean()) {
+                item.upVote();
+            } else {
+                item.downVote();
+            }
+        }
+    });
+    voter.start();
+    try {
+        for (int i = 0; i < 200; i++) {
+            assertEquals(1000, trie.topCompletions("dish", 1000).size());
+        }
+    } finally {
+        voter.interrupt();
+        voter.join();
+    }
+
+    FoodItem near = new FoodItem("b", null);
+    FoodItem far = new FoodItem("a", null);
+    far.setRating(10);
+    List<FoodItem> sorted = new ArrayList<>(List.of(far, near, foodItem2, foodItem1));
+    FoodComparator.sortByRating(sorted, item -> item == far ? 1 : 0);
+    assertEquals(List.of(foodItem2, foodItem1, near, far), sorted); // names compare as FoodComparator does: "Piza" < "b"
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// VoteLog Class Tests ////////////////////////////
+
+/**
+ * Tests that votes written through the log come back after the log is closed and reopened.
+ */
+@Test
+public void testVoteLogRestoresRatingsAfterRestart() throws Exception {
+    Path dir = Files.createTempDirectory("votelog");
+    try (VoteLog log = new VoteLog(dir)) {
+        assertEquals(0, log.attach(menu));
+        log.vote(foodItem1, 1);
+        log.vote(foodItem1, 1);
+        log.vote(foodItem2, -1);
+    }
+
+    Menu reloaded = new Menu();
+    FoodItem shawarma = new FoodItem("Shawarma", List.of("Halal"));
+    FoodItem pizza = new FoodItem("Piza", List.of("Vegetarian"));
+    FoodItem dinnerShawarma = new FoodItem("Shawarma", List.of("Halal"));
+    reloaded.addFoodItem("Lunch", shawarma);
+    reloaded.addFoodItem("Lunch", pizza);
+    reloaded.addFoodItem("Dinner", dinnerShawarma);
+    try (VoteLog log = new VoteLog(dir)) {
+        assertEquals(2, log.attach(reloaded));
+    }
+    assertEquals(2, shawarma.getRating());
+    assertEquals(-1, pizza.getRating());
+    assertEquals(0, dinnerShawarma.getRating());
+    deleteDirectory(dir);
+}
+
+/**
+ * Tests that a log which was never closed (a crash) is replayed on top of the last snapshot, and that
+ * compaction empties the log without counting any vote twice.
+ */
+@Test
+public void testVoteLogReplaysSnapshotPlusTail() throws Exception {
+    Path dir = Files.createTempDirectory("votelog");
+    VoteLog crashed = new VoteLog(dir, 1_000_000, 1);
+    crashed.attach(menu);
+    for (int i = 0; i < 50; i++) {
+        crashed.vote(foodItem3, 1);
+    }
+    crashed.compact();
+    assertEquals(0, crashed.getLoggedVoteCount());
+    for (int i = 0; i < 7; i++) {
+        crashed.vote(foodItem3, -1);
+    }
+    crashed.sync();
+
+    try (VoteLog recovered = new VoteLog(dir)) {
+        assertEquals(43, (int) recovered.getStoredRating("dinner", "Salad"));
+        assertEquals(null, recovered.getStoredRating("dinner", "Soup"));
+    }
+    deleteDirectory(dir);
+}
+
+/**
+ * Tests that records found behind a gap in the log (left over from a torn write) are ignored and cleared.
+ */
+@Test
+public void testVoteLogIgnoresRecordsAfterGap() throws Exception {
+    Path dir = Files.createTempDirectory("votelog");
+    VoteLog crashed = new VoteLog(dir);
+    crashed.attach(menu);
+    for (int i = 0; i < 4; i++) {
+        crashed.vote(foodItem1, 1);
+    }
+    crashed.sync();
+    try (FileChannel file = FileChannel.open(dir.resolve("votes.log"), StandardOpenOption.WRITE)) {
+        file.write(ByteBuffer.allocate(16), 16 + 16);
+    }
+
+    try (VoteLog recovered = new VoteLog(dir)) {
+        assertEquals(1, recovered.getLoggedVoteCount());
+        assertEquals(1, (int) recovered.getStoredRating("LUNCH", "Shawarma"));
+    }
+    try (VoteLog reopened = new VoteLog(dir)) {
+        assertEquals(1, (int) reopened.getStoredRating("LUNCH", "Shawarma"));
+    }
+    deleteDirectory(dir);
+}
+
+/**
+ * Tests that ratings seeded for a menu the log knows nothing about survive a crash: they are snapshotted at once, so
+ * the votes replayed from the log land on the seeded ratings, and every other item keeps its seed too.
+ */
+@Test
+public void testSeededRatingsSurviveCrash() throws Exception {
+    Path dir = Files.createTempDirectory("votelog");
+    VoteLog crashed = new VoteLog(dir, 1_000_000, 1);
+    MainApp.prepareRatings(menu, crashed, seeded -> {
+        foodItem1.setRating(20);
+        foodItem2.setRating(30);
+        foodItem3.setRating(40);
+    });
+    crashed.vote(foodItem1, 1);
+    crashed.vote(foodItem1, 1);
+    crashed.sync(); // then the process dies without close()
+
+    Menu reloaded = new Menu();
+    FoodItem shawarma = new FoodItem("Shawarma", null);
+    FoodItem pizza = new FoodItem("Piza", null);
+    reloaded.addFoodItem("Lunch", shawarma);
+    reloaded.addFoodItem("Lunch", pizza);
+    try (VoteLog recovered = new VoteLog(dir)) {
+        MainApp.prepareRatings(reloaded, recovered, seeded -> assertTrue(false, "ratings were restored, not seeded"));
+    }
+    assertEquals(22, shawarma.getRating());
+    assertEquals(30, pizza.getRating());
+    deleteDirectory(dir);
+}
+
+/**
+ * Deletes a temporary directory and the files in it.
+ */
+private static void deleteDirectory(Path dir) throws IOException {
+    try (var files = Files.list(dir)) {
+        for (Path file : files.toList()) {
+            Files.delete(file);
+        }
+    }
+    Files.delete(dir);
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// MenuLoader Class Tests ////////////////////////////
+
+/**
+ * Tests that meals are published one by one before the finished, indexed menu.
+ */
+@Test
+public void testMenuLoaderPublishesMealsThenMenu() throws Exception {
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(1);
+    MenuLoader loader = new MenuLoader(listener -> {
+        listener.mealLoaded("LUNCH", List.of(foodItem1, foodItem2));
+        listener.mealLoaded("DINNER", List.of(foodItem3));
+        return menu;
+    }, Runnable::run);
+
+    loader.load(loaded -> events.add("prepare"), new MenuLoader.Listener() {
+        @Override
+        public void mealLoaded(String mealType, List<FoodItem> items) {
+            events.add(mealType + " " + items.size());
+        }
+
+        @Override
+        public void menuLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+            events.add("loaded " + loadedAutoComplete.searchByPrefix("s").size());
+            done.countDown();
+        }
+    });
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(List.of("LUNCH 2", "DINNER 1", "prepare", "loaded 2"), events);
+}
+
+/**
+ * Tests that cancelling a running load interrupts it and drops everything it would have published.
+ */
+@Test
+public void testMenuLoaderCancelDropsResults() throws Exception {
+    CountDownLatch started = new CountDownLatch(1);
+    CountDownLatch interrupted = new CountDownLatch(1);
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    MenuLoader loader = new MenuLoader(listener -> {
+        started.countDown();
+        try {
+            Thread.sleep(10_000);
+        } catch (InterruptedException e) {
+            interrupted.countDown();
+            Thread.currentThread().interrupt();
+        }
+        listener.mealLoaded("LUNCH", List.of(foodItem1));
+        return menu;
+    }, Runnable::run);
+
+    loader.load(loaded -> events.add("prepare"), new MenuLoader.Listener() {
+        @Override
+        public void mealLoaded(String mealType, List<FoodItem> items) {
+            events.add(mealType);
+        }
+
+        @Override
+        public void menuLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+            events.add("loaded");
+        }
+    });
+    assertTrue(started.await(5, TimeUnit.SECONDS));
+    assertTrue(loader.isLoading());
+    assertTrue(loader.cancel());
+
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    Thread.sleep(50);
+    assertTrue(events.isEmpty());
+    assertFalse(loader.isLoading());
+    assertFalse(loader.cancel());
+}
+
+/**
+ * Tests that loading from a snapshot publishes the saved menu first, then the fresh one, and saves the fresh one.
+ */
+@Test
+public void testMenuLoaderShowsSnapshotFirst() throws Exception {
+    Path dir = Files.createTempDirectory("snapshot");
+    Path file = dir.resolve("menu.snapshot");
+    MenuSnapshot.write(file, menu, autoComplete);
+    Menu fresh = new Menu();
+    fresh.addFoodItem("Breakfast", new FoodItem("Waffles", List.of("Vegetarian")));
+    List<String> events = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(1);
+    MenuLoader loader = new MenuLoader(listener -> fresh, Runnable::run, file);
+    try {
+        loader.loadFromSnapshot(loaded -> { }, new MenuLoader.Listener() {
+            @Override
+            public void snapshotLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+                events.add("snapshot " + loadedMenu.getMenuForMeal("Lunch").size());
+            }
+
+            @Override
+            public void mealLoaded(String mealType, List<FoodItem> items) {
+            }
+
+            @Override
+            public void menuLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+                events.add("loaded " + loadedMenu.getMenuForMeal("Breakfast").size());
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("snapshot 2", "loaded 1"), events);
+        assertEquals("Waffles", MenuSnapshot.read(file).getAutoComplete().searchByPrefix("waf").get(0).getName());
+    } finally {
+        deleteDirectory(dir);
+    }
+}
+
+/**
+ * Tests that a burst of keystrokes is searched once, for the last query, and that its latency is recorded.
+ */
+@Test
+public void testLiveSearchDebouncesKeystrokes() throws Exception {
+    List<String> searched = Collections.synchronizedList(new ArrayList<>());
+    List<String> shown = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(1);
+    AutoComplete index = new AutoComplete();
+    index.addMenuItems(menu);
+    LiveSearch search = new LiveSearch(query -> {
+        searched.add(query);
+        return index.searchByPrefix(query);
+    }, Runnable::run, 100, (query, results) -> {
+        shown.add(query + " " + results.size());
+        done.countDown();
+    });
+
+    search.queryChanged("s");
+    search.queryChanged("sh");
+    search.queryChanged("sha");
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    Thread.sleep(150);
+    assertEquals(List.of("sha"), searched);
+    assertEquals(List.of("sha 1"), shown);
+    assertEquals(1, search.getLatency().getCount());
+    assertTrue(search.getLatency().percentile(50) >= TimeUnit.MILLISECONDS.toNanos(100));
+}
+
+/**
+ * Tests that results of a slow search are dropped once a newer query has come in.
+ */
+@Test
+public void testLiveSearchDropsStaleResults() throws Exception {
+    CountDownLatch slowStarted = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    List<String> shown = Collections.synchronizedList(new ArrayList<>());
+    LiveSearch search = new LiveSearch(query -> {
+        if (query.equals("slow")) {
+            slowStarted.countDown();
+            try {
+                release.await(); // ignores the interrupt below, like a search that cannot be stopped
+            } catch (InterruptedException e) {
+                try {
+                    release.await();
+                } catch (InterruptedException again) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        return List.of(foodItem1);
+    }, Runnable::run, 0, (query, results) -> {
+        shown.add(query);
+        done.countDown();
+    });
+
+    search.searchNow("slow");
+    assertTrue(slowStarted.await(5, TimeUnit.SECONDS));
+    search.searchNow("fast");
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    release.countDown();
+    Thread.sleep(100);
+    assertEquals(List.of("fast"), shown);
+}
+
+/**
+ * Tests that a load whose source or preparation throws still ends with menuLoaded, with an empty menu, so the UI
+ * leaves its loading state.
+ */
+@Test
+public void testMenuLoaderReportsFailedLoad() throws Exception {
+    List<Menu> loaded = Collections.synchronizedList(new ArrayList<>());
+    CountDownLatch done = new CountDownLatch(2);
+    MenuLoader.Listener listener = new MenuLoader.Listener() {
+        @Override
+        public void mealLoaded(String mealType, List<FoodItem> items) {
+        }
+
+        @Override
+        public void menuLoaded(Menu loadedMenu, AutoComplete loadedAutoComplete) {
+            loaded.add(loadedMenu);
+            done.countDown();
+        }
+    };
+    new MenuLoader(meals -> {
+        throw new IllegalStateException("page changed");
+    }, Runnable::run).load(prepared -> { }, listener);
+    new MenuLoader(meals -> menu, Runnable::run).load(prepared -> {
+        throw new IllegalStateException("vote log broken");
+    }, listener);
+
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    assertEquals(2, loaded.size());
+    assertTrue(loaded.get(0).getMenue().isEmpty());
+    assertTrue(loaded.get(1).getMenue().isEmpty());
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// MenuSnapshot Class Tests ////////////////////////////
+
+/**
+ * Tests that a snapshot gives back the meals, categories, ratings and a working, ranked autocomplete index.
+ */
+@Test
+public void testMenuSnapshotRoundTrip() throws IOException {
+    foodItem1.setRating(-3);
+    foodItem2.setRating(250);
+    foodItem3.setRating(7);
+    menu.addFoodItem("Lunch", new FoodItem("Sambusa", List.of("Halal")));
+    autoComplete = new AutoComplete();
+    autoComplete.addMenuItems(menu);
+    Path dir = Files.createTempDirectory("snapshot");
+    try {
+        Path file = dir.resolve("menu.snapshot");
+        MenuSnapshot.write(file, menu, autoComplete);
+        MenuSnapshot snapshot = MenuSnapshot.read(file);
+        Menu restored = snapshot.getMenu();
+
+        assertEquals(menu.getMenue().keySet(), restored.getMenue().keySet());
+        assertEquals(List.of("Shawarma", "Piza", "Sambusa"), restored.getMenuForMeal("Lunch").stream().map(FoodItem::getName).toList());
+        assertEquals(List.of("Halal", "Gluten-Free"), restored.getMenuForMeal("Lunch").get(0).getCategory());
+        assertEquals(-3, restored.getMenuForMeal("Lunch").get(0).getRating());
+        assertEquals(250, restored.getMenuForMeal("Lunch").get(1).getRating());
+        assertEquals(2, restored.getFoodItemsByCategory("Vegetarian").size());
+
+        AutoComplete index = snapshot.getAutoComplete();
+        assertEquals(List.of("Salad", "Sambusa", "Shawarma"), index.topCompletions("s", 5).stream().map(FoodItem::getName).toList());
+        FoodItem shawarma = restored.getMenuForMeal("Lunch").get(0);
+        shawarma.setRating(100);
+        assertSame(shawarma, index.topCompletions("s", 1).get(0));
+        assertEquals(3, index.searchByPrefix("s").size());
+    } finally {
+        deleteDirectory(dir);
+    }
+}
+
+/**
+ * Tests that a damaged snapshot is rejected instead of producing a wrong menu.
+ */
+@Test
+public void testMenuSnapshotRejectsDamage() throws IOException {
+    Path dir = Files.createTempDirectory("snapshot");
+    try {
+        Path file = dir.resolve("menu.snapshot");
+        MenuSnapshot.write(file, menu, autoComplete);
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0x55;
+        Files.write(file, bytes);
+        try {
+            MenuSnapshot.read(file);
+            assertTrue(false, "a damaged snapshot should not be read");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Corrupt"));
+        }
+    } finally {
+        deleteDirectory(dir);
+    }
+}
+
+/**
+ * Tests that snapshots written while votes land hold rankings that agree with the ratings written beside them.
+ */
+@Test
+public void testMenuSnapshotWhileVoting() throws Exception {
+    for (int i = 0; i < 40; i++) {
+        menu.addFoodItem("Lunch", new FoodItem("Soup " + i, List.of("Vegan")));
+    }
+    autoComplete = new AutoComplete();
+    autoComplete.addMenuItems(menu);
+    List<FoodItem> items = menu.getMenuForMeal("Lunch");
+    AtomicBoolean done = new AtomicBoolean();
+    Thread voter = new Thread(() -> {
+        for (int vote = 0; !done.get(); vote++) {
+            FoodItem item = items.get(vote % items.size());
+            item.setRating(item.getRating() + (vote % 3 == 0 ? -7 : 5));
+        }
+    });
+    Path dir = Files.createTempDirectory("snapshot");
+    voter.start();
+    try {
+        Path file = dir.resolve("menu.snapshot");
+        for (int round = 0; round < 20; round++) {
+            MenuSnapshot.write(file, menu, autoComplete);
+            List<FoodItem> ranked = MenuSnapshot.read(file).getAutoComplete().topCompletions("s", 50);
+            for (int i = 1; i < ranked.size(); i++) {
+                assertTrue(ranked.get(i - 1).getRating() >= ranked.get(i).getRating(), "ranked out of order in round " + round);
+            }
+        }
+    } finally {
+        done.set(true);
+        voter.join();
+        deleteDirectory(dir);
+    }
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// MenuTable Class Tests ////////////////////////////
+
+/**
+ * Tests that the menu list shows one row per header and item, and that filtering swaps the rows.
+ */
+@Test
+public void testMenuTableShowsSectionsAsRows() {
+    MenuTable table = new MenuTable((item, delta) -> {});
+    table.showMeals(menu.getMenue());
+    assertEquals(5, table.getRowCount()); // two meal headers and three items
+    assertEquals(null, table.getItemAt(0));
+    assertSame(foodItem1, table.getItemAt(1));
+    assertSame(foodItem2, table.getItemAt(2));
+    assertSame(foodItem3, table.getItemAt(4));
+
+    table.showItems("Vegetarian", menu.getUniqueFoodItemsByCategory("Vegetarian"));
+    assertEquals(3, table.getRowCount());
+    table.appendItems("Vegan", List.of());
+    assertEquals(5, table.getRowCount()); // a header and a "No items" message
+    assertEquals(null, table.getItemAt(4));
+    table.showMessage("Loading menu...");
+    assertEquals(1, table.getRowCount());
+}
+
+/**
+ * Tests that the vote buttons of a row vote on that row's item, and only item rows have them.
+ */
+@Test
+public void testMenuTableVoteButtonsCastVotes() {
+    List<String> votes = new ArrayList<>();
+    MenuTable table = new MenuTable((item, delta) -> {
+        item.addVotes(delta);
+        votes.add(item.getName() + " " + delta);
+    });
+    table.showMeals(menu.getMenue());
+    int before = foodItem2.getRating();
+    table.clickVote(2, MenuTable.UpVoteColumn);
+    table.clickVote(2, MenuTable.UpVoteColumn);
+    table.clickVote(1, MenuTable.DownVoteColumn);
+    table.clickVote(0, MenuTable.UpVoteColumn); // a header row: nothing to vote on
+    assertEquals(List.of("Piza 1", "Piza 1", "Shawarma -1"), votes);
+    assertEquals(before + 2, foodItem2.getRating());
+    assertFalse(table.isEditing());
+}
+
+/**
+ * Tests that a score change only repaints the rows in view.
+ */
+@Test
+public void testMenuTableRepaintsOnlyVisibleRows() {
+    MenuTable table = new MenuTable((item, delta) -> {});
+    table.showMeals(menu.getMenue());
+    table.setSize(600, 2 * table.getRowHeight()); // the Lunch header and Shawarma
+    assertEquals(1, table.itemsChanged(Set.of(foodItem1, foodItem3)));
+    assertEquals(0, table.itemsChanged(Set.of(foodItem3)));
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// MenuChangeBus Class Tests ////////////////////////////
+
+/**
+ * Tests that votes from several threads reach the UI in a few refreshes, each listing an item once.
+ */
+@Test
+public void testMenuChangeBusCoalescesVotes() throws Exception {
+    List<Set<FoodItem>> refreshes = Collections.synchronizedList(new ArrayList<>());
+    MenuChangeBus bus = new MenuChangeBus(16, 0.5, changed -> refreshes.add(new HashSet<>(changed)));
+    menu.addChangeListener(bus);
+    int before = foodItem1.getRating();
+    Thread[] voters = new Thread[2];
+    for (int t = 0; t < voters.length; t++) {
+        voters[t] = new Thread(() -> {
+            for (int i = 0; i < 500; i++) {
+                foodItem1.upVote();
+                foodItem2.downVote();
+            }
+        });
+        voters[t].start();
+    }
+    for (Thread voter : voters) {
+        voter.join();
+    }
+    long deadline = System.currentTimeMillis() + 5000;
+    while (System.currentTimeMillis() < deadline && !refreshed(refreshes, foodItem1, foodItem2)) {
+        Thread.sleep(10);
+    }
+    assertEquals(2000, bus.getChangeCount());
+    assertTrue(refreshed(refreshes, foodItem1, foodItem2));
+    assertTrue(bus.getRefreshCount() < 100, "votes should be coalesced: " + bus);
+    assertEquals(before + 1000, foodItem1.getRating());
+
+    menu.removeChangeListener(bus);
+    foodItem3.upVote();
+    assertEquals(2000, bus.getChangeCount());
+}
+
+private static boolean refreshed(List<Set<FoodItem>> refreshes, FoodItem... items) {
+    synchronized (refreshes) {
+        Set<FoodItem> all = new HashSet<>();
+        refreshes.forEach(all::addAll);
+        return all.containsAll(List.of(items));
+    }
+}
+
+/**
+ * Tests that slow refreshes are spaced out so they take no more than their share of the EDT.
+ */
+@Test
+public void testMenuChangeBusCapsEdtShare() throws Exception {
+    MenuChangeBus bus = new MenuChangeBus(5, 0.2, changed -> {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    });
+    long start = System.nanoTime();
+    while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(800)) {
+        bus.markDirty(foodItem1);
+        Thread.sleep(1);
+    }
+    long elapsed = System.nanoTime() - start;
+    bus.cancel();
+    assertTrue(bus.getRefreshCount() >= 2, bus.toString());
+    assertTrue(bus.getBusyNanos() < elapsed * 0.3, "refreshes took too much of the EDT: " + bus);
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// ImagePipeline Class Tests ////////////////////////////
+
+/**
+ * Tests that a scaled picture is cached by content and size, and read back from the cache the next time.
+ */
+@Test
+public void testImagePipelineCachesScaledImages() throws Exception {
+    Path dir = Files.createTempDirectory("images");
+    Path cache = Files.createTempDirectory("image-cache");
+    try {
+        Path source = dir.resolve("picture.png");
+        Files.copy(Path.of("res/JosephHappy.png"), source);
+        ImagePipeline pipeline = new ImagePipeline(cache, Runnable::run);
+
+        java.awt.image.BufferedImage first = pipeline.load(source, 50, 70).get();
+        assertEquals(50, first.getWidth());
+        assertEquals(70, first.getHeight());
+        Path entry = cache.resolve(ImagePipeline.cacheName(Files.readAllBytes(source), 50, 70));
+        assertTrue(Files.exists(entry));
+
+        java.awt.image.BufferedImage second = pipeline.load(source, 50, 70).get();
+        assertEquals(first.getRGB(25, 35), second.getRGB(25, 35));
+        pipeline.load(source, 40, 40).get();
+        try (var files = Files.list(cache)) {
+            assertEquals(2, files.count()); // one entry per size, no temporary files left
+        }
+
+        Files.writeString(source, "not an image");
+        try {
+            pipeline.loadNow(source, 50, 70);
+            assertTrue(false, "a file that is not an image should be rejected");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("Not an image"));
+        }
+    } finally {
+        deleteDirectory(dir);
+        deleteDirectory(cache);
+    }
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// WorkloadGenerator Class Tests ////////////////////////////
+
+/**
+ * Tests that the same seed gives the same menu and the same operations.
+ */
+@Test
+public void testWorkloadGeneratorIsDeterministic() {
+    Menu first = WorkloadGenerator.generateMenu(300, 42);
+    Menu second = WorkloadGenerator.generateMenu(300, 42);
+    List<String> names = first.getAllFoodItems().stream().map(FoodItem::getName).toList();
+    assertEquals(names, second.getAllFoodItems().stream().map(FoodItem::getName).toList());
+    assertEquals(300, names.size());
+
+    List<WorkloadGenerator.Operation> a = new WorkloadGenerator(first, 9).next(2000);
+    List<WorkloadGenerator.Operation> b = new WorkloadGenerator(second, 9).next(2000);
+    for (int i = 0; i < a.size(); i++) {
+        assertEquals(a.get(i).kind(), b.get(i).kind());
+        assertEquals(a.get(i).atMillis(), b.get(i).atMillis());
+        assertEquals(a.get(i).text(), b.get(i).text());
+        assertEquals(a.get(i).item() == null ? null : a.get(i).item().getName(),
+                b.get(i).item() == null ? null : b.get(i).item().getName());
+        assertTrue(i == 0 || a.get(i).atMillis() >= a.get(i - 1).atMillis());
+    }
+}
+
+/**
+ * Tests that popularity is skewed, that traffic peaks at meal times, and that the mix of operations is respected.
+ */
+@Test
+public void testWorkloadGeneratorShapesTraffic() {
+    Menu generated = WorkloadGenerator.generateMenu(1000, 3);
+    List<WorkloadGenerator.Operation> day = new WorkloadGenerator(generated, 5).next(86_400);
+    Map<FoodItem, Integer> votes = new IdentityHashMap<>();
+    int[] byHour = new int[24];
+    int[] byKind = new int[WorkloadGenerator.Kind.values().length];
+    for (WorkloadGenerator.Operation operation : day) {
+        byKind[operation.kind().ordinal()]++;
+        if (operation.atMillis() < 86_400_000L) {
+            byHour[(int) (operation.atMillis() / 3_600_000)]++;
+        }
+        if (operation.kind() == WorkloadGenerator.Kind.VOTE) {
+            votes.merge(operation.item(), 1, Integer::sum);
+            assertTrue(operation.delta() == 1 || operation.delta() == -1);
+        } else if (operation.kind() == WorkloadGenerator.Kind.SEARCH) {
+            assertFalse(autoCompleteOf(generated).searchByPrefix(operation.text()).isEmpty());
+        }
+    }
+    List<Integer> counts = new ArrayList<>(votes.values());
+    counts.sort(Collections.reverseOrder());
+    assertTrue(counts.get(0) > 20 * counts.get(counts.size() / 2), "popularity should be Zipf-skewed");
+    assertTrue(byHour[12] > 5 * byHour[3], "lunch should be busier than the night");
+    assertTrue(byHour[8] > 5 * byHour[3] && byHour[18] > 5 * byHour[3]);
+    assertEquals(0.70, byKind[0] / (double) day.size(), 0.02);
+    assertEquals(0.20, byKind[1] / (double) day.size(), 0.02);
+    assertEquals(0.05, byKind[3] / (double) day.size(), 0.01);
+}
+
+private AutoComplete generatedIndex;
+
+private AutoComplete autoCompleteOf(Menu generated) {
+    if (generatedIndex == null) {
+        generatedIndex = new AutoComplete();
+        generatedIndex.addMenuItems(generated);
+    }
+    return generatedIndex;
+}
+
+/**
+ * Tests that a small load test sends every operation and reports sensible percentiles.
+ */
+@Test
+public void testLoadHarnessReportsEveryOperation() throws Exception {
+    LoadHarness.Report report = new LoadHarness(200, 3, 2000, 11, 0, false).run();
+    int total = 0;
+    for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) {
+        total += report.getCount(kind);
+        assertTrue(report.percentile(kind, 50) <= report.percentile(kind, 99));
+        assertTrue(report.percentile(kind, 99) <= report.percentile(kind, 100));
+    }
+    assertEquals(6000, total);
+    assertTrue(report.getThroughput() > 0);
+    assertTrue(report.toString().contains("vote"));
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// MenuServer Class Tests ////////////////////////////
+
+/**
+ * Tests the JSON endpoints: menu, search, category, top-k and voting, and the errors for bad requests.
+ */
+@Test
+public void testMenuServerEndpoints() throws Exception {
+    MenuServer server = new MenuServer(menu, autoComplete, new InetSocketAddress("localhost", 0), 0);
+    server.start();
+    try {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + server.getPort();
+
+        HttpResponse<String> response = get(client, base + "/menu");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("{\"name\":\"Shawarma\",\"rating\":0,\"categories\":[\"Halal\",\"Gluten-Free\"]}"));
+        assertTrue(get(client, base + "/search?q=sh").body().contains("Shawarma"));
+        assertFalse(get(client, base + "/search?q=sh").body().contains("Salad"));
+        String vegetarian = get(client, base + "/category?name=vegetarian").body();
+        assertTrue(vegetarian.contains("Piza") && vegetarian.contains("Salad") && !vegetarian.contains("Shawarma"));
+
+        HttpResponse<String> vote = client.send(HttpRequest.newBuilder(URI.create(base + "/vote?name=piza&delta=1"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals("{\"name\":\"Piza\",\"rating\":1}", vote.body());
+        assertEquals(1, foodItem2.getRating());
+        assertTrue(get(client, base + "/top?k=1").body().startsWith("[{\"name\":\"Piza\""));
+
+        assertEquals(405, get(client, base + "/vote?name=piza").statusCode());
+        assertEquals(400, get(client, base + "/search").statusCode());
+        assertEquals(400, get(client, base + "/top?k=zero").statusCode());
+        assertEquals(404, get(client, base + "/nothing").statusCode());
+    } finally {
+        server.stop();
+    }
+}
+
+/**
+ * Tests that an item without a name does not stop the server: it is listed, and the named items can still be voted on.
+ */
+@Test
+public void testMenuServerSkipsUnnamedItems() throws Exception {
+    menu.addFoodItem("Lunch", new FoodItem(null, List.of("Vegan")));
+    MenuServer server = new MenuServer(menu, autoComplete, new InetSocketAddress("localhost", 0), 0);
+    server.start();
+    try {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + server.getPort();
+        assertTrue(get(client, base + "/menu").body().contains("{\"name\":null,"));
+        HttpResponse<String> vote = client.send(HttpRequest.newBuilder(URI.create(base + "/vote?name=salad&delta=1"))
+                .POST(HttpRequest.BodyPublishers.noBody()).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, vote.statusCode());
+    } finally {
+        server.stop();
+    }
+}
+
+/**
+ * Tests that a request that fails inside the server gets a 500 with a JSON error, and the server keeps serving.
+ */
+@Test
+public void testMenuServerAnswersFailuresWith500() throws Exception {
+    AutoComplete failing = new AutoComplete() {
+        @Override
+        public List<FoodItem> topCompletions(String query, int n) {
+            throw new IllegalStateException("index unavailable");
+        }
+    };
+    MenuServer server = new MenuServer(menu, failing, new InetSocketAddress("localhost", 0), 0);
+    server.start();
+    try {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + server.getPort();
+        HttpResponse<String> response = get(client, base + "/search?q=sh");
+        assertEquals(500, response.statusCode());
+        assertTrue(response.body().startsWith("{\"error\":"));
+        assertEquals(200, get(client, base + "/menu").statusCode());
+    } finally {
+        server.stop();
+    }
+}
+
+/**
+ * Tests that large responses are gzipped for clients that accept it, that connections are kept alive, and that a
+ * precomputed response follows votes once its staleness allowance has passed.
+ */
+@Test
+public void testMenuServerCompressesAndCachesHotResponses() throws Exception {
+    Menu generated = WorkloadGenerator.generateMenu(200, 4);
+    AutoComplete index = new AutoComplete();
+    index.addMenuItems(generated);
+    MenuServer server = new MenuServer(generated, index, new InetSocketAddress("localhost", 0), 200);
+    server.start();
+    try {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = "http://localhost:" + server.getPort();
+        HttpResponse<byte[]> zipped = client.send(HttpRequest.newBuilder(URI.create(base + "/menu"))
+                .header("Accept-Encoding", "gzip").build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals("gzip", zipped.headers().firstValue("Content-Encoding").orElse(""));
+        String plain = get(client, base + "/menu").body();
+        try (var in = new GZIPInputStream(new java.io.ByteArrayInputStream(zipped.body()))) {
+            assertEquals(plain, new String(in.readAllBytes(), java.nio.charset.StandardCharsets.UTF_8));
+        }
+        assertTrue(zipped.body().length * 3 < plain.length());
+
+        String top = get(client, base + "/top?k=1").body();
+        FoodItem last = generated.getAllFoodItems().get(0);
+        last.setRating(1_000_000);
+        assertEquals(top, get(client, base + "/top?k=1").body()); // still within the staleness allowance
+        Thread.sleep(250);
+        assertTrue(get(client, base + "/top?k=1").body().contains("\"rating\":1000000"));
+    } finally {
+        server.stop();
+    }
+}
+
+private static HttpResponse<String> get(HttpClient client, String uri) throws IOException, InterruptedException {
+    return client.send(HttpRequest.newBuilder(URI.create(uri)).build(), HttpResponse.BodyHandlers.ofString());
+}
+
+/**
+ * Tests that the load harness can drive the HTTP server.
+ */
+@Test
+public void testLoadHarnessOverHttp() throws Exception {
+    LoadHarness.Report report = new LoadHarness(100, 2, 300, 5, 0, true).run();
+    int total = 0;
+    for (WorkloadGenerator.Kind kind : WorkloadGenerator.Kind.values()) {
+        total += report.getCount(kind);
+    }
+    assertEquals(600, total);
+}
+
+//////////////////////////////////////////////////////////////////////////////////////////
+//////////////////// JfrAnalyzer Class Tests ////////////////////////////
+
+/**
+ * Tests that the Cafe Mac events stay out of a recording that does not ask for them.
+ */
+@Test
+public void testJfrEventsAreDisabledByDefault() throws Exception {
+    Path file = Files.createTempFile("default", ".jfr");
+    try (Recording recording = new Recording()) {
+        recording.start();
+        AutoComplete autoComplete = new AutoComplete();
+        autoComplete.addMenuItems(menu);
+        autoComplete.topCompletions("s", 5);
+        menu.getTopFoodItems(3);
+        recording.stop();
+        recording.dump(file);
+        assertTrue(JfrAnalyzer.analyze(file).getPhases().isEmpty());
+    } finally {
+        Files.deleteIfExists(file);
+    }
+}
+
+/**
+ * Tests that a recording made with res/cafemac.jfc breaks a menu load down into fetch, parse (with its network wait),
+ * index build, search and ranking, with the items and bytes each handled.
+ */
+@Test
+public void testJfrAnalyzerBreaksDownPhases() throws Exception {
+    FixtureServer server = new FixtureServer();
+    Path dir = Files.createTempDirectory("jfrcache");
+    Path file = Files.createTempFile("cafemac", ".jfr");
+    try (Recording recording = new Recording(Configuration.create(Path.of("res/cafemac.jfc")))) {
+        recording.start();
+        MenuCache cache = new MenuCache(server.url(), dir, Duration.ofMinutes(15), Duration.ZERO);
+        Menu loaded = cache.load((mealType, items) -> { });
+        AutoComplete autoComplete = new AutoComplete();
+        autoComplete.addMenuItems(loaded);
+        for (int i = 0; i < 10; i++) {
+            autoComplete.topCompletions("c", 5);
+        }
+        autoComplete.searchByPrefix("zzz");
+        loaded.getTopFoodItems(3);
+        recording.stop();
+        recording.dump(file);
+
+        JfrAnalyzer.Report report = JfrAnalyzer.analyze(file);
+        int items = loaded.getAllFoodItems().size();
+        assertEquals(1, report.getCount("Fetch"));
+        assertEquals(1, report.getCount("Menu Load (network)"));
+        assertEquals(items, report.getItems("Menu Load (network)"));
+        assertEquals(server.bodyLength(), report.getBytes("Parse (network)"));
+        assertEquals(items, report.getItems("Parse (network)"));
+        assertEquals(1, report.getCount("Parse (network): network wait"));
+        assertTrue(report.getTotalNanos("Parse (network): network wait") <= report.getTotalNanos("Parse (network)"));
+        assertEquals(1, report.getCount("Index Build"));
+        assertEquals(10, report.getCount("Search (top)"));
+        assertEquals(1, report.getCount("Search (prefix)"));
+        assertEquals(0, report.getItems("Search (prefix)"));
+        assertEquals(Math.min(3, items), report.getItems("Rank"));
+        assertTrue(report.percentile("Search (top)", 50) <= report.percentile("Search (top)", 100));
+        assertTrue(report.toString().contains("Index Build"));
+    } finally {
+        server.stop();
+        deleteDirectory(dir);
+        Files.deleteIfExists(file);
+    }
+}
+}